@@ -1,35 +1,100 @@
 package org.security.commandservice.client;
 
+import org.security.commandservice.dto.BatchReservationResultDTO;
+import org.security.commandservice.dto.ProductChangesDTO;
 import org.security.commandservice.dto.ProductResponseDTO;
+import org.security.commandservice.dto.StockHoldRequestDTO;
+import org.security.commandservice.dto.StockReservationDTO;
 import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
 import io.github.resilience4j.retry.annotation.Retry;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 
+import java.util.Collections;
+import java.util.List;
+
 @FeignClient(name = "product-service")
 public interface ProductServiceClient {
 
+    // The two lookups are retried and hedged by HedgedProductReads under the retry budget. No
+    // fallback: a failure has to reach the hedger as an exception, not as a missing product.
     @GetMapping("/api/products/{id}")
-    @CircuitBreaker(name = "product-service", fallbackMethod = "getProductByIdFallback")
-    @Retry(name = "product-service")
+    @CircuitBreaker(name = "product-service")
     ProductResponseDTO getProductById(@PathVariable("id") Long id);
 
+    @PostMapping("/api/products/lookup")
+    @CircuitBreaker(name = "product-service")
+    List<ProductResponseDTO> getProductsByIds(@RequestBody List<Long> ids);
+
+    // Every retry sends the same request id, so product service applies the reservation only once
     @PostMapping("/api/products/{id}/reserve")
     @CircuitBreaker(name = "product-service", fallbackMethod = "checkAndReserveStockFallback")
     @Retry(name = "product-service")
-    Boolean checkAndReserveStock(@PathVariable("id") Long id, @RequestParam Integer quantity);
+    Boolean checkAndReserveStock(@PathVariable("id") Long id, @RequestParam Integer quantity,
+                                 @RequestHeader("Idempotency-Key") String requestId);
 
-    // Fallback methods
-    default ProductResponseDTO getProductByIdFallback(Long id, Throwable throwable) {
-        System.err.println("Circuit breaker triggered for getProductById: " + throwable.getMessage());
-        return null; // Return null to indicate service unavailable
-    }
+    @PostMapping("/api/products/reserve-batch")
+    @CircuitBreaker(name = "product-service", fallbackMethod = "checkAndReserveStockBatchFallback")
+    @Retry(name = "product-service")
+    BatchReservationResultDTO checkAndReserveStockBatch(@RequestBody List<StockReservationDTO> reservations);
+
+    @PostMapping("/api/products/release-batch")
+    @CircuitBreaker(name = "product-service", fallbackMethod = "releaseStockBatchFallback")
+    @Retry(name = "product-service")
+    void releaseStockBatch(@RequestBody List<StockReservationDTO> releases);
+
+    // Two-phase reservation: hold the stock, then confirm the holds once the order is persisted
+    // or release them. The hold reference is the idempotency key of all three: it is chosen
+    // before the first attempt (a UUID per order, or "order-<id>" for the outbox) and sent
+    // unchanged by every retry, and product service stores it with the holds, so a replayed
+    // hold finds them and reserves nothing twice. No Idempotency-Key header is needed.
+    @PostMapping("/api/products/holds")
+    @CircuitBreaker(name = "product-service", fallbackMethod = "holdStockFallback")
+    @Retry(name = "product-service")
+    BatchReservationResultDTO holdStock(@RequestBody StockHoldRequestDTO request);
+
+    // No fallback: the caller has to know whether the holds were confirmed
+    @PostMapping("/api/products/holds/{holdReference}/confirm")
+    @CircuitBreaker(name = "product-service")
+    @Retry(name = "product-service")
+    void confirmHolds(@PathVariable("holdReference") String holdReference);
 
-    default Boolean checkAndReserveStockFallback(Long id, Integer quantity, Throwable throwable) {
+    @PostMapping("/api/products/holds/{holdReference}/release")
+    @CircuitBreaker(name = "product-service", fallbackMethod = "releaseHoldsFallback")
+    @Retry(name = "product-service")
+    void releaseHolds(@PathVariable("holdReference") String holdReference);
+
+    // Long-poll on the catalog change feed, used by ProductReplica. No retry or circuit breaker:
+    // the replica's sync loop retries on its own and falls back to the calls above while stale.
+    @GetMapping("/api/products/changes")
+    ProductChangesDTO getProductChanges(@RequestParam("since") long since, @RequestParam("waitMs") long waitMs);
+
+    // Fallback methods
+    default Boolean checkAndReserveStockFallback(Long id, Integer quantity, String requestId, Throwable throwable) {
         System.err.println("Circuit breaker triggered for checkAndReserveStock: " + throwable.getMessage());
         return false; // Return false to indicate operation failed
     }
+
+    default void releaseStockBatchFallback(List<StockReservationDTO> releases, Throwable throwable) {
+        System.err.println("Circuit breaker triggered for releaseStockBatch, stock not returned for " + releases + ": " + throwable.getMessage());
+    }
+
+    default BatchReservationResultDTO holdStockFallback(StockHoldRequestDTO request, Throwable throwable) {
+        System.err.println("Circuit breaker triggered for holdStock: " + throwable.getMessage());
+        return new BatchReservationResultDTO(false, Collections.emptyList()); // Nothing held, or left to expire
+    }
+
+    default void releaseHoldsFallback(String holdReference, Throwable throwable) {
+        System.err.println("Circuit breaker triggered for releaseHolds, holds " + holdReference + " left to expire: " + throwable.getMessage());
+    }
+
+    default BatchReservationResultDTO checkAndReserveStockBatchFallback(List<StockReservationDTO> reservations, Throwable throwable) {
+        System.err.println("Circuit breaker triggered for checkAndReserveStockBatch: " + throwable.getMessage());
+        return new BatchReservationResultDTO(false, Collections.emptyList()); // Nothing was reserved
+    }
 }
@@ -0,0 +1,11 @@
+package org.security.commandservice.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+@Configuration
+@EnableScheduling
+@ConditionalOnProperty(name = "order.intake.async.enabled", havingValue = "true")
+public class SchedulingConfig {
+}
@@ -1,15 +1,31 @@
 package org.security.commandservice.controller;
 
 import org.security.commandservice.dto.OrderDTO;
+import org.security.commandservice.dto.OrderPageDTO;
 import org.security.commandservice.dto.OrderRequestDTO;
+import org.security.commandservice.dto.OrderStatusTransitionDTO;
+import org.security.commandservice.dto.OrderStatusTransitionResultDTO;
+import org.security.commandservice.dto.ProductDailySalesDTO;
+import org.security.commandservice.dto.ProductSalesDTO;
+import org.security.commandservice.service.OrderExporter;
+import org.security.commandservice.service.OrderIdempotencyStore;
+import org.security.commandservice.service.OrderIntakeQueue;
 import org.security.commandservice.service.OrderService;
+import org.security.commandservice.service.ProductSalesRollup;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -21,35 +37,117 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 
+import java.net.URI;
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
 @RequestMapping("/orders")
-@CrossOrigin(origins = {"http://localhost:3000", "http://localhost:3001", "http://localhost:3002"}, allowCredentials = "true")
+@CrossOrigin(origins = {"http://localhost:3000", "http://localhost:3001", "http://localhost:3002"}, allowCredentials = "true",
+        exposedHeaders = {OrderController.NEXT_PAGE_TOKEN_HEADER, HttpHeaders.ETAG})
 @Tag(name = "Order Service", description = "API for managing orders")
 public class OrderController {
 
+    // Listings return one page as a plain array; the token for the next page, if any, is in this header
+    static final String NEXT_PAGE_TOKEN_HEADER = "X-Next-Page-Token";
+
+    // Set by clients on POST /orders so that retrying a request never places the order twice
+    static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
     private final OrderService orderService;
+    private final OrderIntakeQueue orderIntakeQueue;
+    private final OrderExporter orderExporter;
+    private final OrderIdempotencyStore orderIdempotencyStore;
+    private final ProductSalesRollup productSalesRollup;
+    private final int maxPageSize;
 
-    public OrderController(OrderService orderService) {
+    public OrderController(OrderService orderService, OrderIntakeQueue orderIntakeQueue, OrderExporter orderExporter,
+                           OrderIdempotencyStore orderIdempotencyStore, ProductSalesRollup productSalesRollup,
+                           @Value("${order.listing.max-page-size:200}") int maxPageSize) {
         this.orderService = orderService;
+        this.orderIntakeQueue = orderIntakeQueue;
+        this.orderExporter = orderExporter;
+        this.orderIdempotencyStore = orderIdempotencyStore;
+        this.productSalesRollup = productSalesRollup;
+        this.maxPageSize = maxPageSize;
     }
 
     @GetMapping
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<List<OrderDTO>> getAllOrders() {
+    public ResponseEntity<List<OrderDTO>> getAllOrders(@RequestParam(required = false) String pageToken,
+                                                       @RequestParam(defaultValue = "50") int size) {
         logUserAccess("GET /api/orders");
-        List<OrderDTO> orders = orderService.getAllOrders();
-        return ResponseEntity.ok(orders);
+        try {
+            return toPageResponse(orderService.getAllOrdersPage(pageToken, capPageSize(size)), null);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // Streams every order while reading it, for reporting; format is ndjson (default) or csv
+    @GetMapping("/export")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportOrders(@RequestParam(defaultValue = "ndjson") String format) {
+        logUserAccess("GET /api/orders/export?format=" + format);
+        try {
+            OrderExporter.Format exportFormat = OrderExporter.parseFormat(format);
+            StreamingResponseBody body = outputStream -> orderExporter.export(exportFormat, outputStream);
+            return ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType(exportFormat.getContentType()))
+                    .header(HttpHeaders.CONTENT_DISPOSITION,
+                            "attachment; filename=\"orders." + exportFormat.name().toLowerCase() + "\"")
+                    .body(body);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // Sales reports read the daily rollup, so they cost the same however many orders there are
+    @GetMapping("/stats/top-products")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<List<ProductSalesDTO>> getTopProducts(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "10") int limit) {
+        logUserAccess("GET /api/orders/stats/top-products?from=" + from + "&to=" + to + "&limit=" + limit);
+        try {
+            return ResponseEntity.ok(productSalesRollup.getTopProducts(from, to, limit));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/stats/products/{productId}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<List<ProductDailySalesDTO>> getProductSales(
+            @PathVariable Long productId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        logUserAccess("GET /api/orders/stats/products/" + productId + "?from=" + from + "&to=" + to);
+        try {
+            return ResponseEntity.ok(productSalesRollup.getDailySales(productId, from, to));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
 
     @GetMapping("/my-orders")
     // @PreAuthorize("hasRole('CLIENT')") // Temporarily disabled for testing
-    public ResponseEntity<List<OrderDTO>> getMyOrders() {
+    public ResponseEntity<List<OrderDTO>> getMyOrders(@RequestParam(required = false) String pageToken,
+                                                      @RequestParam(defaultValue = "50") int size,
+                                                      WebRequest webRequest) {
         String userId = getCurrentUserId();
         logUserAccess("GET /api/orders/my-orders for user: " + userId);
-        List<OrderDTO> orders = orderService.getOrdersByUser(userId);
-        return ResponseEntity.ok(orders);
+        try {
+            // A matching If-None-Match is answered with 304 before any order is loaded
+            String eTag = orderService.getOrdersETagByUser(userId);
+            if (webRequest.checkNotModified(eTag)) {
+                return null;
+            }
+            return toPageResponse(orderService.getOrdersPageByUser(userId, pageToken, capPageSize(size), eTag), eTag);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
 
     @GetMapping("/{id}")
@@ -68,7 +166,8 @@ public class OrderController {
                 return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
             }
 
-            return ResponseEntity.ok(order);
+            // Spring answers a matching If-None-Match with 304 and skips writing the body
+            return ResponseEntity.ok().eTag(OrderService.orderETag(order)).body(order);
         } catch (RuntimeException e) {
             return ResponseEntity.notFound().build();
         }
@@ -76,12 +175,31 @@ public class OrderController {
 
     @PostMapping
     // @PreAuthorize("hasRole('CLIENT')") // Temporarily disabled for testing - allow clients to create orders
-    public ResponseEntity<OrderDTO> createOrder(@RequestBody OrderRequestDTO orderRequest) {
+    public ResponseEntity<OrderDTO> createOrder(@RequestBody OrderRequestDTO orderRequest,
+                                                @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
         String userId = getCurrentUserId();
         logUserAccess("POST /api/orders for user: " + userId);
         try {
-            OrderDTO createdOrder = orderService.createOrder(orderRequest, userId);
-            return ResponseEntity.status(HttpStatus.CREATED).body(createdOrder);
+            // A repeated key gets the order placed by the first request, in its current state
+            OrderDTO order = idempotencyKey == null
+                    ? placeOrder(orderRequest, userId)
+                    : orderIdempotencyStore.placeOnce(userId, idempotencyKey, orderRequest,
+                            () -> placeOrder(orderRequest, userId), orderService::getOrderById);
+            if (orderIntakeQueue.isEnabled()) {
+                // Accepted as PENDING; the client polls the location until it is CONFIRMED or CANCELLED
+                URI location = ServletUriComponentsBuilder.fromCurrentRequest()
+                        .path("/{id}")
+                        .buildAndExpand(order.getId())
+                        .toUri();
+                return ResponseEntity.accepted().location(location).body(order);
+            }
+            return ResponseEntity.status(HttpStatus.CREATED).body(order);
+        } catch (OrderIntakeQueue.QueueFullException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).build();
+        } catch (OrderIdempotencyStore.KeyReusedException e) {
+            return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).build();
+        } catch (OrderIdempotencyStore.RequestInProgressException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().build();
         }
@@ -99,6 +217,41 @@ public class OrderController {
         }
     }
 
+    // Bulk compare-and-set for fulfillment workers: each line applies only if the order is still
+    // at its expected version and may move to the new status; outcomes are reported per order
+    @PutMapping("/status")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<List<OrderStatusTransitionResultDTO>> transitionOrderStatuses(
+            @RequestBody List<OrderStatusTransitionDTO> transitions) {
+        logUserAccess("PUT /api/orders/status (" + transitions.size() + " transitions)");
+        try {
+            return ResponseEntity.ok(orderService.transitionOrderStatuses(transitions));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    private OrderDTO placeOrder(OrderRequestDTO orderRequest, String userId) {
+        return orderIntakeQueue.isEnabled()
+                ? orderService.submitOrder(orderRequest, userId)
+                : orderService.createOrder(orderRequest, userId);
+    }
+
+    private int capPageSize(int size) {
+        return Math.max(1, Math.min(size, maxPageSize));
+    }
+
+    private ResponseEntity<List<OrderDTO>> toPageResponse(OrderPageDTO page, String eTag) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (eTag != null) {
+            response.eTag(eTag);
+        }
+        if (page.getNextPageToken() != null) {
+            response.header(NEXT_PAGE_TOKEN_HEADER, page.getNextPageToken());
+        }
+        return response.body(page.getOrders());
+    }
+
     private String getCurrentUserId() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         return authentication != null ? authentication.getName() : null;
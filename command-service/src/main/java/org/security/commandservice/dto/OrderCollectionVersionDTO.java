@@ -0,0 +1,17 @@
+package org.security.commandservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Aggregates over a user's orders that change whenever any of them does, read in place
+// of the orders themselves to answer conditional GETs
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderCollectionVersionDTO {
+
+    private Long orderCount;
+    private Long maxId;
+    private Long versionSum;
+}
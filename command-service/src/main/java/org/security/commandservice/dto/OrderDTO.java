@@ -1,5 +1,6 @@
 package org.security.commandservice.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -19,4 +20,8 @@ public class OrderDTO {
     private BigDecimal totalAmount;
     private String userId;
     private List<OrderItemDTO> orderItems;
+
+    // Sent as the ETag header rather than in the body
+    @JsonIgnore
+    private Long version;
 }
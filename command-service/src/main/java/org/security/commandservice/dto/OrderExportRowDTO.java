@@ -0,0 +1,29 @@
+package org.security.commandservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.security.commandservice.model.Order;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// One order line joined with its order, as read by the export cursor. The item
+// columns are null for an order without items.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderExportRowDTO {
+
+    private Long orderId;
+    private LocalDateTime orderDate;
+    private Order.OrderStatus status;
+    private BigDecimal totalAmount;
+    private String userId;
+    private Long version;
+    private Long itemId;
+    private Long productId;
+    private String productName;
+    private Integer quantity;
+    private BigDecimal price;
+}
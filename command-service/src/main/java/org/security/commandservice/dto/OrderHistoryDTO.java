@@ -0,0 +1,18 @@
+package org.security.commandservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// The newest orders of one user, newest first, together with the collection version of all of
+// that user's orders they correspond to; the unit OrderHistoryCache keeps per user
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderHistoryDTO {
+
+    private OrderCollectionVersionDTO version;
+    private List<OrderDTO> orders;
+}
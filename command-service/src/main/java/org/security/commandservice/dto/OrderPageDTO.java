@@ -0,0 +1,17 @@
+package org.security.commandservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderPageDTO {
+
+    private List<OrderDTO> orders;
+    // Opaque continuation token, null on the last page
+    private String nextPageToken;
+}
@@ -0,0 +1,16 @@
+package org.security.commandservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// One line of PUT /orders/status: applied only if the order is still at expectedVersion
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderStatusTransitionDTO {
+
+    private Long id;
+    private Long expectedVersion;
+    private String newStatus;
+}
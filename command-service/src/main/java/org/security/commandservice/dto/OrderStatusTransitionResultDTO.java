@@ -0,0 +1,21 @@
+package org.security.commandservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Outcome of one transition; status and version are the order's current ones (null when not found)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderStatusTransitionResultDTO {
+
+    private Long id;
+    private Outcome outcome;
+    private String status;
+    private Long version;
+
+    public enum Outcome {
+        UPDATED, NOT_FOUND, VERSION_CONFLICT, TRANSITION_NOT_ALLOWED, INVALID_STATUS
+    }
+}
@@ -0,0 +1,17 @@
+package org.security.commandservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.security.commandservice.model.Order;
+
+// Current status and version of an order, read without loading the entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderStatusVersionDTO {
+
+    private Long id;
+    private Order.OrderStatus status;
+    private Long version;
+}
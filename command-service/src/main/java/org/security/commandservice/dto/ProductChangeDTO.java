@@ -0,0 +1,19 @@
+package org.security.commandservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductChangeDTO {
+
+    private Long seq;
+    private Long productId;
+    private String name;
+    private BigDecimal price;
+    private boolean deleted;
+}
@@ -0,0 +1,19 @@
+package org.security.commandservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductChangesDTO {
+
+    private List<ProductChangeDTO> changes;
+    // Pass as ?since= on the next call
+    private long latestSeq;
+    // True when changes is a full snapshot of the catalog rather than a delta
+    private boolean snapshot;
+}
@@ -0,0 +1,20 @@
+package org.security.commandservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// Sales of one product on one day
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductDailySalesDTO {
+
+    private Long productId;
+    private LocalDate salesDate;
+    private Long unitsSold;
+    private BigDecimal revenue;
+}
@@ -0,0 +1,18 @@
+package org.security.commandservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+// Sales of one product summed over a date range
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductSalesDTO {
+
+    private Long productId;
+    private Long unitsSold;
+    private BigDecimal revenue;
+}
@@ -0,0 +1,17 @@
+package org.security.commandservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockHoldRequestDTO {
+
+    // Chosen by the caller, one per order; placing the same holds again is a no-op
+    private String holdReference;
+    private List<StockReservationDTO> items;
+}
@@ -0,0 +1,53 @@
+package org.security.commandservice.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// One row per order accepted by async intake whose stock has not been reserved yet.
+// The row is deleted in the same transaction that moves the order out of PENDING.
+@Entity
+@Table(name = "order_outbox")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderOutbox {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "order_id", nullable = false)
+    private Long orderId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private OutboxStatus status;
+
+    @Column(nullable = false)
+    private Integer attempts;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "claimed_at")
+    private LocalDateTime claimedAt;
+
+    // Not claimed again before this time after a failed attempt; null when due right away
+    @Column(name = "next_attempt_at")
+    private LocalDateTime nextAttemptAt;
+
+    public OrderOutbox(Long orderId) {
+        this.orderId = orderId;
+        this.status = OutboxStatus.NEW;
+        this.attempts = 0;
+        this.createdAt = LocalDateTime.now();
+    }
+
+    public enum OutboxStatus {
+        NEW, PROCESSING
+    }
+}
@@ -0,0 +1,45 @@
+package org.security.commandservice.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// Units sold and revenue of one product on one day, by order date. Maintained by
+// ProductSalesRollup in the same transaction as every order insert and cancellation,
+// so sales reports read one row per product and day instead of every order line.
+@Entity
+@Table(name = "product_sales_daily",
+        indexes = @Index(name = "idx_product_sales_daily_sales_date", columnList = "sales_date"))
+@IdClass(ProductSalesDaily.Key.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductSalesDaily {
+
+    @Id
+    @Column(name = "product_id")
+    private Long productId;
+
+    @Id
+    @Column(name = "sales_date")
+    private LocalDate salesDate;
+
+    @Column(name = "units_sold", nullable = false)
+    private Long unitsSold;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal revenue;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long productId;
+        private LocalDate salesDate;
+    }
+}
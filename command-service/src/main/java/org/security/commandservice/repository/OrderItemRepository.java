@@ -1,11 +1,13 @@
 package org.security.commandservice.repository;
 
+import org.security.commandservice.dto.ProductDailySalesDTO;
 import org.security.commandservice.model.OrderItem;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -18,4 +20,11 @@ public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
 
     @Query("SELECT SUM(oi.quantity) FROM OrderItem oi WHERE oi.productId = :productId")
     Long sumQuantityByProductId(@Param("productId") Long productId);
+
+    // The lines of the given orders summed per product and order day, for ProductSalesRollup
+    @Query("SELECT new org.security.commandservice.dto.ProductDailySalesDTO(oi.productId, CAST(o.orderDate AS LocalDate), " +
+           "SUM(oi.quantity), SUM(oi.price * oi.quantity)) " +
+           "FROM OrderItem oi JOIN oi.order o WHERE o.id IN :orderIds " +
+           "GROUP BY oi.productId, CAST(o.orderDate AS LocalDate)")
+    List<ProductDailySalesDTO> sumSalesByProductAndDay(@Param("orderIds") Collection<Long> orderIds);
 }
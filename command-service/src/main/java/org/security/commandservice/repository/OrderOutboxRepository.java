@@ -0,0 +1,39 @@
+package org.security.commandservice.repository;
+
+import org.security.commandservice.model.OrderOutbox;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface OrderOutboxRepository extends JpaRepository<OrderOutbox, Long> {
+
+    // NEW entries whose backoff after a failed attempt has passed
+    @Query("SELECT o FROM OrderOutbox o WHERE o.status = org.security.commandservice.model.OrderOutbox.OutboxStatus.NEW " +
+           "AND (o.nextAttemptAt IS NULL OR o.nextAttemptAt <= :now) ORDER BY o.id")
+    List<OrderOutbox> findDue(@Param("now") LocalDateTime now, Pageable pageable);
+
+    // Only one worker (on any instance) can move a given entry from NEW to PROCESSING
+    @Modifying
+    @Query("UPDATE OrderOutbox o SET o.status = org.security.commandservice.model.OrderOutbox.OutboxStatus.PROCESSING, " +
+           "o.claimedAt = :now WHERE o.id = :id AND o.status = org.security.commandservice.model.OrderOutbox.OutboxStatus.NEW")
+    int claim(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE OrderOutbox o SET o.status = org.security.commandservice.model.OrderOutbox.OutboxStatus.NEW, " +
+           "o.attempts = o.attempts + 1, o.claimedAt = NULL, o.nextAttemptAt = :nextAttemptAt WHERE o.id = :id")
+    int requeue(@Param("id") Long id, @Param("nextAttemptAt") LocalDateTime nextAttemptAt);
+
+    // Entries claimed by a worker that died before finishing them
+    @Modifying
+    @Query("UPDATE OrderOutbox o SET o.status = org.security.commandservice.model.OrderOutbox.OutboxStatus.NEW, " +
+           "o.claimedAt = NULL WHERE o.status = org.security.commandservice.model.OrderOutbox.OutboxStatus.PROCESSING " +
+           "AND o.claimedAt < :claimedBefore")
+    int requeueStale(@Param("claimedBefore") LocalDateTime claimedBefore);
+}
@@ -1,12 +1,25 @@
 package org.security.commandservice.repository;
 
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.security.commandservice.dto.OrderCollectionVersionDTO;
+import org.security.commandservice.dto.OrderExportRowDTO;
+import org.security.commandservice.dto.OrderStatusVersionDTO;
 import org.security.commandservice.model.Order;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Long> {
@@ -16,6 +29,65 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
     @Query("SELECT o FROM Order o WHERE o.userId = :userId ORDER BY o.orderDate DESC")
     List<Order> findByUserIdOrderByOrderDateDesc(@Param("userId") String userId);
 
+    // Keyset pagination on (order_date DESC, id DESC): each page starts strictly after the
+    // last row of the previous one, so deep pages cost the same as the first
+    @Query("SELECT o.id FROM Order o ORDER BY o.orderDate DESC, o.id DESC")
+    List<Long> findFirstPageIds(Pageable pageable);
+
+    @Query("SELECT o.id FROM Order o WHERE o.orderDate < :orderDate OR (o.orderDate = :orderDate AND o.id < :id) " +
+           "ORDER BY o.orderDate DESC, o.id DESC")
+    List<Long> findPageIdsAfter(@Param("orderDate") LocalDateTime orderDate, @Param("id") Long id, Pageable pageable);
+
+    @Query("SELECT o.id FROM Order o WHERE o.userId = :userId ORDER BY o.orderDate DESC, o.id DESC")
+    List<Long> findFirstPageIdsByUserId(@Param("userId") String userId, Pageable pageable);
+
+    @Query("SELECT o.id FROM Order o WHERE o.userId = :userId " +
+           "AND (o.orderDate < :orderDate OR (o.orderDate = :orderDate AND o.id < :id)) " +
+           "ORDER BY o.orderDate DESC, o.id DESC")
+    List<Long> findPageIdsByUserIdAfter(@Param("userId") String userId, @Param("orderDate") LocalDateTime orderDate,
+                                        @Param("id") Long id, Pageable pageable);
+
+    @EntityGraph(attributePaths = "orderItems")
+    @Query("SELECT o FROM Order o WHERE o.id IN :ids")
+    List<Order> findAllWithItemsByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Forward-only cursor over every order line for the export. Rows are unmanaged DTOs, so the
+    // persistence context stays empty, and the fetch size keeps the JDBC driver from buffering
+    // the whole result (PostgreSQL only honours it inside a transaction).
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "500"))
+    @Query("SELECT new org.security.commandservice.dto.OrderExportRowDTO(o.id, o.orderDate, o.status, o.totalAmount, " +
+           "o.userId, o.version, oi.id, oi.productId, oi.productName, oi.quantity, oi.price) " +
+           "FROM Order o LEFT JOIN o.orderItems oi ORDER BY o.id, oi.id")
+    Stream<OrderExportRowDTO> streamAllForExport();
+
+    // Version of a user's order history for its ETag. Only the status of an order changes after
+    // it is placed, and every change bumps its version, so the sum moves when an admin ships or
+    // cancels any of the user's orders; the count and newest id move when one is placed or deleted.
+    @Query("SELECT new org.security.commandservice.dto.OrderCollectionVersionDTO(COUNT(o), COALESCE(MAX(o.id), 0L), " +
+           "COALESCE(SUM(o.version), 0L)) FROM Order o WHERE o.userId = :userId")
+    OrderCollectionVersionDTO findCollectionVersionByUserId(@Param("userId") String userId);
+
     @Query("SELECT COUNT(o) FROM Order o WHERE o.userId = :userId")
     long countByUserId(@Param("userId") String userId);
+
+    // Compare-and-set for orders sharing one expected version; the statuses the new one may be
+    // reached from are checked in the same statement, so nothing is read beforehand
+    @Modifying
+    @Query("UPDATE Order o SET o.status = :newStatus, o.version = o.version + 1 " +
+           "WHERE o.id IN :ids AND o.version = :expectedVersion AND o.status IN :allowedFrom")
+    int transitionStatus(@Param("ids") Collection<Long> ids, @Param("expectedVersion") Long expectedVersion,
+                         @Param("allowedFrom") Collection<Order.OrderStatus> allowedFrom,
+                         @Param("newStatus") Order.OrderStatus newStatus);
+
+    // The orders transitionStatus would change, locked (without their items) so that exactly
+    // these are cancelled and taken out of the sales rollup
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT o FROM Order o WHERE o.id IN :ids AND o.version = :expectedVersion AND o.status IN :allowedFrom " +
+           "ORDER BY o.id")
+    List<Order> findTransitionableWithLock(@Param("ids") Collection<Long> ids, @Param("expectedVersion") Long expectedVersion,
+                                      @Param("allowedFrom") Collection<Order.OrderStatus> allowedFrom);
+
+    @Query("SELECT new org.security.commandservice.dto.OrderStatusVersionDTO(o.id, o.status, o.version) " +
+           "FROM Order o WHERE o.id IN :ids")
+    List<OrderStatusVersionDTO> findStatusVersionsByIdIn(@Param("ids") Collection<Long> ids);
 }
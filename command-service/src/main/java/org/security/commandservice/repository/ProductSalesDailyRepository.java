@@ -0,0 +1,41 @@
+package org.security.commandservice.repository;
+
+import org.security.commandservice.dto.ProductDailySalesDTO;
+import org.security.commandservice.dto.ProductSalesDTO;
+import org.security.commandservice.model.ProductSalesDaily;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface ProductSalesDailyRepository extends JpaRepository<ProductSalesDaily, ProductSalesDaily.Key> {
+
+    // Upsert: the first sale of a product on a day creates its row, later ones add to it, in one
+    // atomic statement (ON CONFLICT on PostgreSQL, MERGE on H2), so racing orders never collide
+    @Modifying
+    @Query("INSERT INTO ProductSalesDaily (productId, salesDate, unitsSold, revenue) " +
+           "VALUES (:productId, :salesDate, :units, :revenue) " +
+           "ON CONFLICT (productId, salesDate) DO UPDATE " +
+           "SET unitsSold = unitsSold + excluded.unitsSold, revenue = revenue + excluded.revenue")
+    int addSales(@Param("productId") Long productId, @Param("salesDate") LocalDate salesDate,
+                 @Param("units") Long units, @Param("revenue") BigDecimal revenue);
+
+    // Reads one row per product and day in the range, however many order lines they summarise
+    @Query("SELECT new org.security.commandservice.dto.ProductSalesDTO(s.productId, SUM(s.unitsSold), SUM(s.revenue)) " +
+           "FROM ProductSalesDaily s WHERE s.salesDate BETWEEN :from AND :to " +
+           "GROUP BY s.productId ORDER BY SUM(s.unitsSold) DESC, s.productId")
+    List<ProductSalesDTO> findTopProducts(@Param("from") LocalDate from, @Param("to") LocalDate to, Pageable pageable);
+
+    @Query("SELECT new org.security.commandservice.dto.ProductDailySalesDTO(s.productId, s.salesDate, s.unitsSold, s.revenue) " +
+           "FROM ProductSalesDaily s WHERE s.productId = :productId AND s.salesDate BETWEEN :from AND :to " +
+           "ORDER BY s.salesDate")
+    List<ProductDailySalesDTO> findDailySales(@Param("productId") Long productId,
+                                              @Param("from") LocalDate from, @Param("to") LocalDate to);
+}
@@ -0,0 +1,199 @@
+package org.security.commandservice.service;
+
+import feign.FeignException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+// Runs idempotent reads from product service (product lookups) with hedging and budgeted
+// retries. A call still running after the operation's hedge-percentile latency gets a second,
+// identical call, and whichever answers first wins. The hedge is not pinned to another instance:
+// the load balancer's round-robin usually picks the next one, but with concurrent traffic (or a
+// single instance) it can land on the same pod, so hedging only trims tail latency on average.
+// Failures reach this class as exceptions (the lookups have no fallback), so a failed call
+// never wins over a slower successful one. A read that fails is retried up to
+// max-attempts with exponential backoff and full jitter. Both hedges and retries spend
+// RetryBudget tokens, so neither multiplies the load during an incident.
+@Component
+public class HedgedProductReads {
+
+    private final RetryBudget retryBudget;
+    private final MeterRegistry meterRegistry;
+    private final boolean hedgingEnabled;
+    private final double hedgePercentile;
+    private final long minHedgeDelayMillis;
+    private final int maxAttempts;
+    private final long backoffBaseMillis;
+    private final long backoffMaxMillis;
+
+    private final Counter hedges;
+    private final Counter hedgeWins;
+    private final Timer latencySaved;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public HedgedProductReads(RetryBudget retryBudget, MeterRegistry meterRegistry,
+                              @Value("${order.product-calls.hedging.enabled:true}") boolean hedgingEnabled,
+                              @Value("${order.product-calls.hedging.percentile:0.95}") double hedgePercentile,
+                              @Value("${order.product-calls.hedging.min-delay-ms:20}") long minHedgeDelayMillis,
+                              @Value("${order.product-calls.read.max-attempts:3}") int maxAttempts,
+                              @Value("${order.product-calls.read.backoff-base-ms:50}") long backoffBaseMillis,
+                              @Value("${order.product-calls.read.backoff-max-ms:1000}") long backoffMaxMillis) {
+        this.retryBudget = retryBudget;
+        this.meterRegistry = meterRegistry;
+        this.hedgingEnabled = hedgingEnabled;
+        this.hedgePercentile = hedgePercentile;
+        this.minHedgeDelayMillis = minHedgeDelayMillis;
+        this.maxAttempts = maxAttempts;
+        this.backoffBaseMillis = backoffBaseMillis;
+        this.backoffMaxMillis = backoffMaxMillis;
+        this.hedges = Counter.builder("order.product.hedges")
+                .description("Product service reads that were sent a second time after the hedge delay")
+                .register(meterRegistry);
+        this.hedgeWins = Counter.builder("order.product.hedge.wins")
+                .description("Hedged product service reads answered first by the second call")
+                .register(meterRegistry);
+        this.latencySaved = Timer.builder("order.product.hedge.latency.saved")
+                .description("How much later the first call of a read answered than the hedge that won")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    // operation names the read in the latency metrics and picks its hedge delay
+    public <T> T read(String operation, Supplier<T> call) {
+        Timer latency = Timer.builder("order.product.read.latency")
+                .description("Latency of single product service read calls, hedges included")
+                .tag("operation", operation)
+                .publishPercentiles(hedgePercentile)
+                .register(meterRegistry);
+        Supplier<T> timedCall = () -> latency.record(call);
+        retryBudget.recordCall();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return hedgingEnabled ? hedged(timedCall, hedgeDelayMillis(latency)) : timedCall.get();
+            } catch (RuntimeException e) {
+                if (!isRetryable(e) || attempt >= maxAttempts || !retryBudget.tryAcquire("retry")) {
+                    throw e;
+                }
+                backOff(attempt);
+            }
+        }
+    }
+
+    // A 4xx (e.g. an unknown product) would only be answered the same way again
+    private static boolean isRetryable(RuntimeException e) {
+        return !(e instanceof FeignException feignException && feignException.status() >= 400
+                && feignException.status() < 500);
+    }
+
+    private <T> T hedged(Supplier<T> call, long hedgeDelayMillis) {
+        CompletableFuture<T> primary = callAsync(call);
+        try {
+            return primary.get(hedgeDelayMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // Still running: hedge below
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while reading from product service");
+        }
+        if (!retryBudget.tryAcquire("hedge")) {
+            return await(primary);
+        }
+
+        hedges.increment();
+        CompletableFuture<T> hedge = callAsync(call);
+        // The first success wins; the read only fails once both calls have failed
+        CompletableFuture<T> first = new CompletableFuture<>();
+        AtomicInteger failures = new AtomicInteger();
+        primary.whenComplete((result, failure) -> settle(first, result, failure, failures));
+        hedge.whenComplete((result, failure) -> settle(first, result, failure, failures));
+        T result = await(first);
+        if (hedge.isDone() && !hedge.isCompletedExceptionally() && !primary.isDone()) {
+            hedgeWins.increment();
+            long hedgeAnsweredAt = System.nanoTime();
+            primary.thenRun(() -> latencySaved.record(System.nanoTime() - hedgeAnsweredAt, TimeUnit.NANOSECONDS));
+        }
+        return result;
+    }
+
+    private static <T> void settle(CompletableFuture<T> first, T result, Throwable failure, AtomicInteger failures) {
+        if (failure == null) {
+            first.complete(result);
+        } else if (failures.incrementAndGet() == 2) {
+            first.completeExceptionally(failure);
+        }
+    }
+
+    // Calls on a virtual thread with the caller's security context and MDC, as ProductFanOut does
+    private <T> CompletableFuture<T> callAsync(Supplier<T> call) {
+        Callable<T> task = ProductFanOut.withCallerContext(call::get, SecurityContextHolder.getContext(),
+                MDC.getCopyOfContextMap());
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return task.call();
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    // Until enough calls have been timed the percentile is 0 and min-delay-ms applies
+    private long hedgeDelayMillis(Timer latency) {
+        double percentileMillis = 0;
+        for (ValueAtPercentile value : latency.takeSnapshot().percentileValues()) {
+            percentileMillis = value.value(TimeUnit.MILLISECONDS);
+        }
+        return Math.max(minHedgeDelayMillis, (long) percentileMillis);
+    }
+
+    private void backOff(int attempt) {
+        long ceiling = Math.min(backoffMaxMillis, backoffBaseMillis << Math.min(attempt - 1, 20));
+        try {
+            Thread.sleep(Duration.ofMillis(ThreadLocalRandom.current().nextLong(ceiling + 1)));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while backing off a product service read");
+        }
+    }
+
+    private static <T> T await(CompletableFuture<T> call) {
+        try {
+            return call.join();
+        } catch (CompletionException e) {
+            throw unwrap(e.getCause());
+        }
+    }
+
+    private static RuntimeException unwrap(Throwable failure) {
+        return failure instanceof RuntimeException runtime ? runtime : new RuntimeException(failure);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
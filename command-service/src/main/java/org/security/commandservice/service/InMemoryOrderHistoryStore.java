@@ -0,0 +1,74 @@
+package org.security.commandservice.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.security.commandservice.dto.OrderDTO;
+import org.security.commandservice.dto.OrderHistoryDTO;
+import org.security.commandservice.dto.OrderItemDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.UnaryOperator;
+
+// Default OrderHistoryStore: a Caffeine cache in this instance, bounded by the estimated heap
+// size of its entries rather than their number, since one user's history may hold a single
+// order and another's a full page of large orders. The least recently used entries go first.
+@Component
+@ConditionalOnProperty(name = "order.history-cache.store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryOrderHistoryStore implements OrderHistoryStore {
+
+    // Rough per-object footprints, including headers, boxed fields and the BigDecimals
+    private static final int ENTRY_BYTES = 200;
+    private static final int ORDER_BYTES = 250;
+    private static final int ITEM_BYTES = 150;
+
+    private final Cache<String, OrderHistoryDTO> histories;
+
+    public InMemoryOrderHistoryStore(MeterRegistry meterRegistry,
+                                     @Value("${order.history-cache.maximum-weight-bytes:67108864}") long maximumWeightBytes,
+                                     @Value("${order.history-cache.expire-after-access-ms:600000}") long expireAfterAccessMillis) {
+        this.histories = Caffeine.newBuilder()
+                .maximumWeight(maximumWeightBytes)
+                .weigher(InMemoryOrderHistoryStore::estimateBytes)
+                .expireAfterAccess(Duration.ofMillis(expireAfterAccessMillis))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, histories, "order-history");
+        Gauge.builder("order.history-cache.weight", histories, cache -> cache.policy().eviction()
+                        .map(eviction -> eviction.weightedSize().orElse(0L)).orElse(0L))
+                .description("Estimated bytes held by cached order histories")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public OrderHistoryDTO get(String userId) {
+        return histories.getIfPresent(userId);
+    }
+
+    @Override
+    public void put(String userId, OrderHistoryDTO history) {
+        histories.put(userId, history);
+    }
+
+    @Override
+    public void update(String userId, UnaryOperator<OrderHistoryDTO> change) {
+        histories.asMap().computeIfPresent(userId, (key, history) -> change.apply(history));
+    }
+
+    static int estimateBytes(String userId, OrderHistoryDTO history) {
+        long bytes = ENTRY_BYTES + 2L * userId.length();
+        for (OrderDTO order : history.getOrders()) {
+            bytes += ORDER_BYTES + 2L * order.getUserId().length();
+            for (OrderItemDTO item : order.getOrderItems()) {
+                bytes += ITEM_BYTES + (item.getProductName() != null ? 2L * item.getProductName().length() : 0);
+            }
+        }
+        return (int) Math.min(bytes, Integer.MAX_VALUE);
+    }
+}
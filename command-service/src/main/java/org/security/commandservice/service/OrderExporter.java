@@ -0,0 +1,141 @@
+package org.security.commandservice.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.security.commandservice.dto.OrderDTO;
+import org.security.commandservice.dto.OrderExportRowDTO;
+import org.security.commandservice.dto.OrderItemDTO;
+import org.security.commandservice.repository.OrderRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+// Writes every order to an output stream while reading it from a database cursor, so
+// the export needs the same heap for ten orders as for ten million.
+@Component
+public class OrderExporter {
+
+    private static final int FLUSH_EVERY_ROWS = 1000;
+    private static final String CSV_HEADER =
+            "order_id,order_date,status,total_amount,user_id,product_id,product_name,quantity,price";
+
+    private final OrderRepository orderRepository;
+    private final ObjectMapper objectMapper;
+
+    public OrderExporter(OrderRepository orderRepository, ObjectMapper objectMapper) {
+        this.orderRepository = orderRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    public static Format parseFormat(String format) {
+        try {
+            return Format.valueOf(format.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Unsupported export format: " + format);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public void export(Format format, OutputStream outputStream) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        try (Stream<OrderExportRowDTO> rows = orderRepository.streamAllForExport()) {
+            if (format == Format.CSV) {
+                writeCsv(rows.iterator(), writer);
+            } else {
+                writeNdjson(rows.iterator(), writer);
+            }
+        }
+        writer.flush();
+    }
+
+    // One line per order line item; an order without items gets one line with empty item columns
+    private void writeCsv(Iterator<OrderExportRowDTO> rows, Writer writer) throws IOException {
+        writer.write(CSV_HEADER);
+        writer.write('\n');
+        int written = 0;
+        while (rows.hasNext()) {
+            OrderExportRowDTO row = rows.next();
+            writer.write(String.join(",",
+                    csv(row.getOrderId()), csv(row.getOrderDate()), csv(row.getStatus()), csv(row.getTotalAmount()),
+                    csv(row.getUserId()), csv(row.getProductId()), csv(row.getProductName()), csv(row.getQuantity()),
+                    csv(row.getPrice())));
+            writer.write('\n');
+            flushPeriodically(writer, ++written);
+        }
+    }
+
+    // One JSON document per order, in the same shape as GET /orders/{id}. Rows arrive ordered
+    // by order id, so only the order currently being assembled is held in memory.
+    private void writeNdjson(Iterator<OrderExportRowDTO> rows, Writer writer) throws IOException {
+        OrderDTO current = null;
+        int written = 0;
+        while (rows.hasNext()) {
+            OrderExportRowDTO row = rows.next();
+            if (current == null || !current.getId().equals(row.getOrderId())) {
+                if (current != null) {
+                    writeJsonLine(current, writer);
+                    flushPeriodically(writer, ++written);
+                }
+                current = new OrderDTO(row.getOrderId(), row.getOrderDate(), row.getStatus().name(),
+                        row.getTotalAmount(), row.getUserId(), new ArrayList<>(), row.getVersion());
+            }
+            if (row.getItemId() != null) {
+                current.getOrderItems().add(new OrderItemDTO(row.getItemId(), row.getProductId(),
+                        row.getProductName(), row.getQuantity(), row.getPrice()));
+            }
+        }
+        if (current != null) {
+            writeJsonLine(current, writer);
+        }
+    }
+
+    private void writeJsonLine(OrderDTO order, Writer writer) throws IOException {
+        try {
+            writer.write(objectMapper.writeValueAsString(order));
+        } catch (JsonProcessingException e) {
+            throw new IOException("Could not serialize order " + order.getId(), e);
+        }
+        writer.write('\n');
+    }
+
+    private static void flushPeriodically(Writer writer, int written) throws IOException {
+        if (written % FLUSH_EVERY_ROWS == 0) {
+            writer.flush();
+        }
+    }
+
+    private static String csv(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        if (text.contains(",") || text.contains("\"") || text.contains("\n") || text.contains("\r")) {
+            return "\"" + text.replace("\"", "\"\"") + "\"";
+        }
+        return text;
+    }
+
+    public enum Format {
+        NDJSON("application/x-ndjson"), CSV("text/csv");
+
+        private final String contentType;
+
+        Format(String contentType) {
+            this.contentType = contentType;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package org.security.commandservice.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.security.commandservice.dto.OrderCollectionVersionDTO;
+import org.security.commandservice.dto.OrderDTO;
+import org.security.commandservice.dto.OrderHistoryDTO;
+import org.security.commandservice.model.Order;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// The newest orders-per-user orders of each user, behind the first page of GET /orders/my-orders.
+// OrderService writes new orders and status changes through to the cached entry once they commit
+// instead of evicting it, so the refresh a client does after each action is still a hit. An entry
+// is only used while its collection version matches the user's current one; changes the cache
+// does not see (bulk status updates, other replicas with a per-instance store) make it stale and
+// it is reloaded on the next read.
+@Component
+public class OrderHistoryCache {
+
+    private final OrderHistoryStore store;
+    private final boolean enabled;
+    private final int ordersPerUser;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter staleEntries;
+
+    public OrderHistoryCache(OrderHistoryStore store, MeterRegistry meterRegistry,
+                             @Value("${order.history-cache.enabled:true}") boolean enabled,
+                             @Value("${order.history-cache.orders-per-user:50}") int ordersPerUser) {
+        this.store = store;
+        this.enabled = enabled;
+        this.ordersPerUser = ordersPerUser;
+        this.hits = lookups(meterRegistry, "hit");
+        this.misses = lookups(meterRegistry, "miss");
+        this.staleEntries = lookups(meterRegistry, "stale");
+    }
+
+    // Whether a first page of pageSize orders can be served from a cached history
+    public boolean covers(int pageSize) {
+        return enabled && pageSize <= ordersPerUser;
+    }
+
+    public int getOrdersPerUser() {
+        return ordersPerUser;
+    }
+
+    // The user's cached history if it was cached at eTag, the user's current collection version
+    public OrderHistoryDTO get(String userId, String eTag) {
+        OrderHistoryDTO history = store.get(userId);
+        if (history == null) {
+            misses.increment();
+            return null;
+        }
+        if (!OrderService.collectionETag(history.getVersion()).equals(eTag)) {
+            staleEntries.increment();
+            return null;
+        }
+        hits.increment();
+        return history;
+    }
+
+    public void put(String userId, OrderHistoryDTO history) {
+        if (enabled) {
+            store.put(userId, history);
+        }
+    }
+
+    // Both changes apply once the surrounding transaction commits, so a rolled back one never shows up
+    public void orderPlaced(OrderDTO order) {
+        if (enabled) {
+            afterCommit(() -> store.update(order.getUserId(), history -> withPlacedOrder(history, order)));
+        }
+    }
+
+    // A status change bumps the order's version by one, so the collection's version sum too
+    public void statusChanged(String userId, Long orderId, Order.OrderStatus status) {
+        if (enabled) {
+            afterCommit(() -> store.update(userId, history -> withStatus(history, orderId, status.name())));
+        }
+    }
+
+    private OrderHistoryDTO withPlacedOrder(OrderHistoryDTO history, OrderDTO order) {
+        OrderCollectionVersionDTO version = history.getVersion();
+        OrderCollectionVersionDTO newVersion = new OrderCollectionVersionDTO(version.getOrderCount() + 1,
+                Math.max(version.getMaxId(), order.getId()), version.getVersionSum() + order.getVersion());
+        // Already there when the entry was loaded between the order's commit and this update
+        if (history.getOrders().stream().anyMatch(cached -> cached.getId().equals(order.getId()))) {
+            return new OrderHistoryDTO(newVersion, history.getOrders());
+        }
+        List<OrderDTO> orders = new ArrayList<>(Math.min(history.getOrders().size() + 1, ordersPerUser));
+        orders.add(order);
+        history.getOrders().stream().limit(ordersPerUser - 1).forEach(orders::add);
+        return new OrderHistoryDTO(newVersion, List.copyOf(orders));
+    }
+
+    // Entries are shared with concurrent readers, so the changed order is copied rather than modified
+    private static OrderHistoryDTO withStatus(OrderHistoryDTO history, Long orderId, String status) {
+        OrderCollectionVersionDTO version = history.getVersion();
+        OrderCollectionVersionDTO newVersion = new OrderCollectionVersionDTO(version.getOrderCount(),
+                version.getMaxId(), version.getVersionSum() + 1);
+        List<OrderDTO> orders = history.getOrders().stream()
+                // An order already in the new status was loaded after the change committed
+                .map(order -> order.getId().equals(orderId) && !order.getStatus().equals(status)
+                        ? new OrderDTO(order.getId(), order.getOrderDate(), status, order.getTotalAmount(),
+                                order.getUserId(), order.getOrderItems(), order.getVersion() + 1)
+                        : order)
+                .toList();
+        return new OrderHistoryDTO(newVersion, orders);
+    }
+
+    private static Counter lookups(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("order.history-cache.lookups")
+                .description("First pages of GET /orders/my-orders looked up in the order history cache")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private static void afterCommit(Runnable change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    change.run();
+                }
+            });
+        } else {
+            change.run();
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package org.security.commandservice.service;
+
+import org.security.commandservice.dto.OrderHistoryDTO;
+
+import java.util.function.UnaryOperator;
+
+// Where OrderHistoryCache keeps its entries, by user id. InMemoryOrderHistoryStore is the
+// default and is local to each instance; with order.history-cache.store=shared the application
+// provides a bean of its own backed by a cache every replica reads, so a history cached or
+// updated by one replica serves the others. Entries are checked against the database's
+// collection version before they are used, so a store may drop or lose any of them.
+public interface OrderHistoryStore {
+
+    // null when there is no entry for the user
+    OrderHistoryDTO get(String userId);
+
+    void put(String userId, OrderHistoryDTO history);
+
+    // Replaces the user's entry, if there is one, with change applied to it; a null result
+    // removes it. A shared store that cannot apply it atomically should remove the entry instead.
+    void update(String userId, UnaryOperator<OrderHistoryDTO> change);
+}
@@ -0,0 +1,112 @@
+package org.security.commandservice.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.security.commandservice.dto.OrderDTO;
+import org.security.commandservice.dto.OrderRequestDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// Remembers which order each (user, Idempotency-Key) of POST /orders created, for ttl-ms, so a
+// client retrying after a lost response gets that order back instead of placing a second one.
+// Only the order id is kept; a replay loads the order's current state. A repeat that arrives
+// while the first request is still running waits for it. Failed requests are forgotten, so
+// they can be retried with the same key.
+@Component
+public class OrderIdempotencyStore {
+
+    private static final int MAX_KEY_LENGTH = 64;
+
+    private final Cache<String, PlacedOrder> placedOrders;
+    private final long inFlightWaitMillis;
+    private final Counter replays;
+
+    public OrderIdempotencyStore(MeterRegistry meterRegistry,
+                                 @Value("${order.idempotency.ttl-ms:86400000}") long ttlMillis,
+                                 @Value("${order.idempotency.maximum-size:100000}") long maximumSize,
+                                 @Value("${order.idempotency.in-flight-wait-ms:30000}") long inFlightWaitMillis) {
+        this.placedOrders = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofMillis(ttlMillis))
+                .build();
+        this.inFlightWaitMillis = inFlightWaitMillis;
+        this.replays = Counter.builder("order.idempotency.replays")
+                .description("POST /orders requests answered with the order of an earlier request with the same key")
+                .register(meterRegistry);
+        Gauge.builder("order.idempotency.size", placedOrders, Cache::estimatedSize)
+                .description("Idempotency keys currently remembered")
+                .register(meterRegistry);
+    }
+
+    // Places the order once per key; repeats of the same request get loadOrder(id of that order)
+    public OrderDTO placeOnce(String userId, String idempotencyKey, OrderRequestDTO request,
+                              Supplier<OrderDTO> placeOrder, Function<Long, OrderDTO> loadOrder) {
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new RuntimeException("Idempotency key must be 1 to " + MAX_KEY_LENGTH + " characters");
+        }
+        // Keys are per user, so one client can never be handed another client's order
+        String key = userId + ":" + idempotencyKey;
+        PlacedOrder placed = new PlacedOrder(request.hashCode(), new CompletableFuture<>());
+        PlacedOrder existing = placedOrders.asMap().putIfAbsent(key, placed);
+        if (existing == null) {
+            return place(key, placed, placeOrder);
+        }
+        if (existing.requestHash() != placed.requestHash()) {
+            throw new KeyReusedException("Idempotency key " + idempotencyKey + " was already used for another order");
+        }
+        replays.increment();
+        return loadOrder.apply(await(existing));
+    }
+
+    private OrderDTO place(String key, PlacedOrder placed, Supplier<OrderDTO> placeOrder) {
+        try {
+            OrderDTO order = placeOrder.get();
+            placed.orderId().complete(order.getId());
+            return order;
+        } catch (RuntimeException e) {
+            placedOrders.asMap().remove(key, placed);
+            placed.orderId().completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private Long await(PlacedOrder placed) {
+        try {
+            return placed.orderId().get(inFlightWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new RequestInProgressException("The first request with this idempotency key is still being processed");
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : new RuntimeException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for the first request with this idempotency key");
+        }
+    }
+
+    // A hash of the request body is enough to tell a genuine retry from a reused key
+    private record PlacedOrder(int requestHash, CompletableFuture<Long> orderId) {
+    }
+
+    public static class KeyReusedException extends RuntimeException {
+        public KeyReusedException(String message) {
+            super(message);
+        }
+    }
+
+    public static class RequestInProgressException extends RuntimeException {
+        public RequestInProgressException(String message) {
+            super(message);
+        }
+    }
+}
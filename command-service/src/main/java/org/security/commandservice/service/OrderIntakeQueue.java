@@ -0,0 +1,111 @@
+package org.security.commandservice.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.security.commandservice.model.OrderOutbox;
+import org.security.commandservice.repository.OrderOutboxRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+// DB-backed work queue for async order intake. Entries live in the order_outbox table,
+// so orders accepted before a restart are still processed after it. A failed entry waits an
+// exponentially growing, jittered delay (backoff-base-ms doubling per attempt, capped at
+// backoff-max-ms) before it is claimed again, so a short product service outage does not
+// use up all attempts and cancel orders that were already accepted.
+@Component
+public class OrderIntakeQueue {
+
+    private final OrderOutboxRepository orderOutboxRepository;
+    private final boolean enabled;
+    private final long capacity;
+    private final long claimTimeoutMillis;
+    private final long backoffBaseMillis;
+    private final long backoffMaxMillis;
+
+    public OrderIntakeQueue(OrderOutboxRepository orderOutboxRepository,
+                            MeterRegistry meterRegistry,
+                            @Value("${order.intake.async.enabled:false}") boolean enabled,
+                            @Value("${order.intake.async.queue-capacity:1000}") long capacity,
+                            @Value("${order.intake.async.claim-timeout-ms:60000}") long claimTimeoutMillis,
+                            @Value("${order.intake.async.backoff-base-ms:1000}") long backoffBaseMillis,
+                            @Value("${order.intake.async.backoff-max-ms:60000}") long backoffMaxMillis) {
+        this.orderOutboxRepository = orderOutboxRepository;
+        this.enabled = enabled;
+        this.capacity = capacity;
+        this.claimTimeoutMillis = claimTimeoutMillis;
+        this.backoffBaseMillis = backoffBaseMillis;
+        this.backoffMaxMillis = backoffMaxMillis;
+        if (enabled) {
+            Gauge.builder("order.intake.queue.depth", orderOutboxRepository, OrderOutboxRepository::count)
+                    .description("Orders accepted by async intake whose stock has not been reserved yet")
+                    .register(meterRegistry);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Soft bound: concurrent submissions may overshoot the capacity by a few entries
+    public void checkCapacity() {
+        if (orderOutboxRepository.count() >= capacity) {
+            throw new QueueFullException("Order intake queue is full (" + capacity + " pending orders)");
+        }
+    }
+
+    // Joins the caller's transaction so the entry commits together with its order
+    @Transactional
+    public void enqueue(Long orderId) {
+        orderOutboxRepository.save(new OrderOutbox(orderId));
+    }
+
+    // Oldest due entries first; an entry another instance claimed in the meantime is skipped
+    @Transactional
+    public List<OrderOutbox> claimNext(int limit) {
+        LocalDateTime now = LocalDateTime.now();
+        List<OrderOutbox> claimed = new ArrayList<>();
+        for (OrderOutbox entry : orderOutboxRepository.findDue(now, PageRequest.of(0, limit))) {
+            if (orderOutboxRepository.claim(entry.getId(), now) == 1) {
+                claimed.add(entry);
+            }
+        }
+        return claimed;
+    }
+
+    @Transactional
+    public void requeue(OrderOutbox entry) {
+        orderOutboxRepository.requeue(entry.getId(), LocalDateTime.now().plus(backoff(entry.getAttempts())));
+    }
+
+    // Half the exponential delay plus a random share of the other half, so entries that failed
+    // together during an outage do not all come back in the same poll
+    Duration backoff(int attempts) {
+        long delayMillis = Math.min(backoffMaxMillis, backoffBaseMillis << Math.min(attempts, 20));
+        return Duration.ofMillis(delayMillis / 2 + ThreadLocalRandom.current().nextLong(delayMillis / 2 + 1));
+    }
+
+    @Transactional
+    public int requeueStale() {
+        return orderOutboxRepository.requeueStale(LocalDateTime.now().minusNanos(claimTimeoutMillis * 1_000_000));
+    }
+
+    // Joins the caller's transaction so the entry disappears together with the order's PENDING status
+    @Transactional
+    public void complete(OrderOutbox entry) {
+        orderOutboxRepository.deleteById(entry.getId());
+    }
+
+    public static class QueueFullException extends RuntimeException {
+        public QueueFullException(String message) {
+            super(message);
+        }
+    }
+}
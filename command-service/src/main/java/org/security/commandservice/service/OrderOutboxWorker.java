@@ -0,0 +1,76 @@
+package org.security.commandservice.service;
+
+import jakarta.annotation.PreDestroy;
+import org.security.commandservice.model.OrderOutbox;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+// Drains the async intake queue with a fixed number of workers. The poller only claims
+// as many entries as there are idle workers, the rest stay NEW in the database.
+@Component
+@ConditionalOnProperty(name = "order.intake.async.enabled", havingValue = "true")
+public class OrderOutboxWorker {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderOutboxWorker.class);
+
+    private final OrderService orderService;
+    private final OrderIntakeQueue orderIntakeQueue;
+    private final int maxAttempts;
+    private final Semaphore idleWorkers;
+    private final ExecutorService workers;
+
+    public OrderOutboxWorker(OrderService orderService,
+                             OrderIntakeQueue orderIntakeQueue,
+                             @Value("${order.intake.async.workers:4}") int workerCount,
+                             @Value("${order.intake.async.max-attempts:5}") int maxAttempts) {
+        this.orderService = orderService;
+        this.orderIntakeQueue = orderIntakeQueue;
+        this.maxAttempts = maxAttempts;
+        this.idleWorkers = new Semaphore(workerCount);
+        this.workers = Executors.newFixedThreadPool(workerCount, Thread.ofPlatform().name("order-intake-", 0).factory());
+    }
+
+    @Scheduled(fixedDelayString = "${order.intake.async.poll-interval-ms:200}")
+    public void poll() {
+        orderIntakeQueue.requeueStale();
+        int idle = idleWorkers.availablePermits();
+        if (idle == 0) {
+            return;
+        }
+        for (OrderOutbox entry : orderIntakeQueue.claimNext(idle)) {
+            idleWorkers.acquireUninterruptibly();
+            workers.execute(() -> {
+                try {
+                    process(entry);
+                } finally {
+                    idleWorkers.release();
+                }
+            });
+        }
+    }
+
+    void process(OrderOutbox entry) {
+        boolean lastAttempt = entry.getAttempts() + 1 >= maxAttempts;
+        try {
+            if (!orderService.processPendingOrder(entry, lastAttempt)) {
+                orderIntakeQueue.requeue(entry);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Processing of pending order {} failed, retrying later", entry.getOrderId(), e);
+            orderIntakeQueue.requeue(entry);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdown();
+    }
+}
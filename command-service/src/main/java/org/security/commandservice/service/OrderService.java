@@ -1,46 +1,177 @@
 package org.security.commandservice.service;
 
 import org.security.commandservice.client.ProductServiceClient;
+import org.security.commandservice.dto.BatchReservationResultDTO;
+import org.security.commandservice.dto.OrderCollectionVersionDTO;
 import org.security.commandservice.dto.OrderDTO;
+import org.security.commandservice.dto.OrderHistoryDTO;
 import org.security.commandservice.dto.OrderItemDTO;
+import org.security.commandservice.dto.OrderItemRequestDTO;
+import org.security.commandservice.dto.OrderPageDTO;
 import org.security.commandservice.dto.OrderRequestDTO;
+import org.security.commandservice.dto.OrderStatusTransitionDTO;
+import org.security.commandservice.dto.OrderStatusTransitionResultDTO;
+import org.security.commandservice.dto.OrderStatusVersionDTO;
 import org.security.commandservice.dto.ProductResponseDTO;
+import org.security.commandservice.dto.StockHoldRequestDTO;
+import org.security.commandservice.dto.StockReservationDTO;
 import org.security.commandservice.model.Order;
 import org.security.commandservice.model.OrderItem;
+import org.security.commandservice.model.OrderOutbox;
 import org.security.commandservice.repository.OrderRepository;
 import org.security.commandservice.repository.OrderItemRepository;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 @Transactional
 public class OrderService {
 
+    static final int MAX_STATUS_TRANSITIONS = 10_000;
+    // Ids per UPDATE ... WHERE id IN (...), well below the bind parameter limits of the drivers
+    private static final int STATUS_UPDATE_CHUNK_SIZE = 1_000;
+
     private final OrderRepository orderRepository;
     private final OrderItemRepository orderItemRepository;
     private final ProductServiceClient productServiceClient;
+    private final HedgedProductReads productReads;
+    private final ProductFanOut productFanOut;
+    private final ProductReplica productReplica;
+    private final OrderIntakeQueue orderIntakeQueue;
+    private final ProductSalesRollup productSalesRollup;
+    private final OrderHistoryCache orderHistoryCache;
+    private final TransactionTemplate transactionTemplate;
 
-    public OrderService(OrderRepository orderRepository, OrderItemRepository orderItemRepository, ProductServiceClient productServiceClient) {
+    public OrderService(OrderRepository orderRepository, OrderItemRepository orderItemRepository,
+                        ProductServiceClient productServiceClient, HedgedProductReads productReads,
+                        ProductFanOut productFanOut,
+                        ProductReplica productReplica, OrderIntakeQueue orderIntakeQueue,
+                        ProductSalesRollup productSalesRollup, OrderHistoryCache orderHistoryCache,
+                        TransactionTemplate transactionTemplate) {
         this.orderRepository = orderRepository;
         this.orderItemRepository = orderItemRepository;
         this.productServiceClient = productServiceClient;
+        this.productReads = productReads;
+        this.productFanOut = productFanOut;
+        this.productReplica = productReplica;
+        this.orderIntakeQueue = orderIntakeQueue;
+        this.productSalesRollup = productSalesRollup;
+        this.orderHistoryCache = orderHistoryCache;
+        this.transactionTemplate = transactionTemplate;
     }
 
-    public List<OrderDTO> getAllOrders() {
-        return orderRepository.findAll().stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+    // One page of every user's orders, newest first. Pass the previous page's
+    // nextPageToken to continue, or null for the first page.
+    public OrderPageDTO getAllOrdersPage(String pageToken, int pageSize) {
+        return getOrdersPage(pageToken, pageSize,
+                orderRepository::findFirstPageIds,
+                (cursor, limit) -> orderRepository.findPageIdsAfter(cursor.orderDate(), cursor.id(), limit));
+    }
+
+    public OrderPageDTO getOrdersPageByUser(String userId, String pageToken, int pageSize) {
+        return getOrdersPage(pageToken, pageSize,
+                limit -> orderRepository.findFirstPageIdsByUserId(userId, limit),
+                (cursor, limit) -> orderRepository.findPageIdsByUserIdAfter(userId, cursor.orderDate(), cursor.id(), limit));
+    }
+
+    // Serves the first page from the order history cache while the cached copy is at eTag, the
+    // collection version the caller has just read; other pages always come from the database
+    public OrderPageDTO getOrdersPageByUser(String userId, String pageToken, int pageSize, String eTag) {
+        if (pageToken != null || pageSize < 1 || !orderHistoryCache.covers(pageSize)) {
+            return getOrdersPageByUser(userId, pageToken, pageSize);
+        }
+        OrderHistoryDTO history = orderHistoryCache.get(userId, eTag);
+        if (history == null) {
+            history = loadOrderHistory(userId);
+        }
+        List<OrderDTO> orders = history.getOrders();
+        boolean hasNextPage = history.getVersion().getOrderCount() > pageSize && orders.size() >= pageSize;
+        if (!hasNextPage) {
+            return new OrderPageDTO(orders, null);
+        }
+        OrderDTO last = orders.get(pageSize - 1);
+        return new OrderPageDTO(orders.subList(0, pageSize), new PageCursor(last.getOrderDate(), last.getId()).encode());
+    }
+
+    // The version is read before the orders: a change committing in between leaves an entry
+    // whose version is older than its orders, which the next read finds stale and reloads
+    private OrderHistoryDTO loadOrderHistory(String userId) {
+        OrderCollectionVersionDTO version = orderRepository.findCollectionVersionByUserId(userId);
+        OrderPageDTO newest = getOrdersPageByUser(userId, null, orderHistoryCache.getOrdersPerUser());
+        OrderHistoryDTO history = new OrderHistoryDTO(version, List.copyOf(newest.getOrders()));
+        orderHistoryCache.put(userId, history);
+        return history;
     }
 
-    public List<OrderDTO> getOrdersByUser(String userId) {
-        return orderRepository.findByUserIdOrderByOrderDateDesc(userId).stream()
-                .map(this::convertToDTO)
+    private OrderPageDTO getOrdersPage(String pageToken, int pageSize, Function<Pageable, List<Long>> firstPageIds,
+                                       BiFunction<PageCursor, Pageable, List<Long>> pageIdsAfter) {
+        if (pageSize < 1) {
+            throw new RuntimeException("Page size must be positive");
+        }
+        // One extra row tells whether there is a next page
+        Pageable limit = PageRequest.ofSize(pageSize + 1);
+        List<Long> ids = pageToken == null
+                ? firstPageIds.apply(limit)
+                : pageIdsAfter.apply(PageCursor.decode(pageToken), limit);
+
+        boolean hasNextPage = ids.size() > pageSize;
+        List<Long> pageIds = hasNextPage ? ids.subList(0, pageSize) : ids;
+        if (pageIds.isEmpty()) {
+            return new OrderPageDTO(Collections.emptyList(), null);
+        }
+
+        // Items of the whole page in one statement, then back into keyset order
+        Map<Long, Order> ordersById = orderRepository.findAllWithItemsByIdIn(pageIds).stream()
+                .collect(Collectors.toMap(Order::getId, Function.identity()));
+        List<Order> orders = pageIds.stream()
+                .map(ordersById::get)
+                .filter(Objects::nonNull)
                 .collect(Collectors.toList());
+
+        String nextPageToken = null;
+        if (hasNextPage && !orders.isEmpty()) {
+            Order last = orders.get(orders.size() - 1);
+            nextPageToken = new PageCursor(last.getOrderDate(), last.getId()).encode();
+        }
+        return new OrderPageDTO(orders.stream().map(this::convertToDTO).collect(Collectors.toList()), nextPageToken);
+    }
+
+    // Validator for every page of a user's listing, computed without loading any order.
+    // Order items never change after creation, so the orders' own versions cover them.
+    @Transactional(readOnly = true)
+    public String getOrdersETagByUser(String userId) {
+        return collectionETag(orderRepository.findCollectionVersionByUserId(userId));
+    }
+
+    public static String collectionETag(OrderCollectionVersionDTO collectionVersion) {
+        return "\"" + collectionVersion.getOrderCount() + "-" + collectionVersion.getMaxId()
+                + "-" + collectionVersion.getVersionSum() + "\"";
+    }
+
+    public static String orderETag(OrderDTO order) {
+        return "\"" + order.getVersion() + "\"";
     }
 
     public OrderDTO getOrderById(Long id) {
@@ -49,42 +180,136 @@ public class OrderService {
         return convertToDTO(order);
     }
 
-    @Transactional
+    // Runs without a transaction so that no DB connection is held during the remote calls
+    // to product service; only the final insert runs in a (short) transaction. The stock is
+    // held first and the holds are confirmed once the order is persisted; holds that are never
+    // confirmed expire in product service, so a crash in between loses no stock.
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public OrderDTO createOrder(OrderRequestDTO orderRequest, String userId) {
-        // Validate products and calculate total
-        BigDecimal totalAmount = BigDecimal.ZERO;
-        List<OrderItem> orderItems = orderRequest.getItems().stream()
-                .map(item -> {
-                    // Call product service to get product details and check stock
-                    ProductInfo productInfo = getProductInfo(item.getProductId());
-                    if (productInfo == null) {
-                        throw new RuntimeException("Product not found: " + item.getProductId());
-                    }
+        // Validate products and hold their stock
+        String holdReference = UUID.randomUUID().toString();
+        List<OrderItem> orderItems = productFanOut.isEnabled()
+                ? productFanOut.resolveAndHold(orderRequest.getItems(), holdReference)
+                : resolveAndHoldInBatch(orderRequest.getItems(), holdReference);
+        Order order = buildPendingOrder(orderItems, userId);
 
-                    // Check and reserve stock via product service
-                    boolean stockReserved = reserveProductStock(item.getProductId(), item.getQuantity());
-                    if (!stockReserved) {
-                        throw new RuntimeException("Insufficient stock for product: " + productInfo.getName());
-                    }
+        // Persist in one short transaction; give the held stock back if that fails
+        OrderDTO createdOrder;
+        try {
+            createdOrder = transactionTemplate.execute(status -> {
+                Order savedOrder = orderRepository.save(order);
+                productSalesRollup.recordOrder(savedOrder);
+                return convertToDTO(savedOrder);
+            });
+        } catch (RuntimeException e) {
+            productServiceClient.releaseHolds(holdReference);
+            throw e;
+        }
+        orderHistoryCache.orderPlaced(createdOrder);
 
-                    OrderItem orderItem = new OrderItem();
-                    orderItem.setProductId(item.getProductId());
-                    orderItem.setQuantity(item.getQuantity());
-                    orderItem.setPrice(productInfo.getPrice());
-                    orderItem.setProductName(productInfo.getName());
+        // Unconfirmed holds would expire and the stock could be sold again, so the order is cancelled
+        if (!confirmHolds(holdReference)) {
+            transactionTemplate.executeWithoutResult(status -> orderRepository.findById(createdOrder.getId())
+                    .ifPresent(savedOrder -> {
+                        changeStatus(savedOrder, Order.OrderStatus.CANCELLED);
+                        orderRepository.save(savedOrder);
+                    }));
+            productServiceClient.releaseHolds(holdReference);
+            throw new RuntimeException("Unable to confirm stock for order");
+        }
+        return createdOrder;
+    }
 
-                    return orderItem;
-                })
-                .collect(Collectors.toList());
+    // Async intake: persists the order as PENDING together with an outbox entry and returns
+    // without reserving stock; OrderOutboxWorker reserves it later and confirms or cancels the order
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public OrderDTO submitOrder(OrderRequestDTO orderRequest, String userId) {
+        validateItems(orderRequest.getItems());
+        orderIntakeQueue.checkCapacity();
+
+        Order order = buildPendingOrder(resolveOrderItems(orderRequest.getItems()), userId);
+        OrderDTO submittedOrder = transactionTemplate.execute(status -> {
+            Order savedOrder = orderRepository.save(order);
+            productSalesRollup.recordOrder(savedOrder);
+            orderIntakeQueue.enqueue(savedOrder.getId());
+            return convertToDTO(savedOrder);
+        });
+        orderHistoryCache.orderPlaced(submittedOrder);
+        return submittedOrder;
+    }
 
+    // Holds and confirms the stock of an order accepted by submitOrder and moves it to CONFIRMED
+    // or CANCELLED. Returns false when product service could not be reached and the entry
+    // should be retried; on the last attempt the order is cancelled instead. The holds are
+    // keyed by order id, so a retry after a lost response holds nothing twice.
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public boolean processPendingOrder(OrderOutbox entry, boolean lastAttempt) {
+        List<StockReservationDTO> reservations = transactionTemplate.execute(status ->
+                orderRepository.findById(entry.getOrderId())
+                        .filter(order -> order.getStatus() == Order.OrderStatus.PENDING)
+                        .map(order -> toReservations(order.getOrderItems()))
+                        .orElse(null));
+        if (reservations == null) {
+            // Deleted, or already moved out of PENDING (e.g. cancelled by an admin)
+            transactionTemplate.executeWithoutResult(status -> orderIntakeQueue.complete(entry));
+            return true;
+        }
+
+        String holdReference = "order-" + entry.getOrderId();
+        BatchReservationResultDTO reservation = holdProductStock(holdReference, reservations);
+        boolean productServiceUnavailable = !reservation.isReserved()
+                && (reservation.getInsufficientProductIds() == null || reservation.getInsufficientProductIds().isEmpty());
+        if (productServiceUnavailable && !lastAttempt) {
+            return false;
+        }
+
+        boolean reserved = reservation.isReserved();
+        if (reserved && !confirmHolds(holdReference)) {
+            if (!lastAttempt) {
+                return false;
+            }
+            reserved = false;
+        }
+        if (!reserved) {
+            // The order is cancelled; give back anything a failed hold call may have placed
+            productServiceClient.releaseHolds(holdReference);
+        }
+
+        // Should this fail, the entry is retried and finds its holds already confirmed
+        Order.OrderStatus outcome = reserved ? Order.OrderStatus.CONFIRMED : Order.OrderStatus.CANCELLED;
+        transactionTemplate.executeWithoutResult(status -> {
+            orderRepository.findById(entry.getOrderId()).ifPresent(order -> {
+                changeStatus(order, outcome);
+                orderRepository.save(order);
+            });
+            orderIntakeQueue.complete(entry);
+        });
+        return true;
+    }
+
+    private void validateItems(List<OrderItemRequestDTO> items) {
+        if (items == null || items.isEmpty()) {
+            throw new RuntimeException("Order must contain at least one item");
+        }
+        for (OrderItemRequestDTO item : items) {
+            if (item.getProductId() == null || item.getQuantity() == null || item.getQuantity() <= 0) {
+                throw new RuntimeException("Invalid order item: " + item);
+            }
+        }
+    }
+
+    private Order buildPendingOrder(List<OrderItem> orderItems, String userId) {
         // Calculate total
+        BigDecimal totalAmount = BigDecimal.ZERO;
         for (OrderItem item : orderItems) {
             totalAmount = totalAmount.add(item.getPrice().multiply(BigDecimal.valueOf(item.getQuantity())));
         }
 
         // Create order
         Order order = new Order();
-        order.setOrderDate(LocalDateTime.now());
+        // At the precision the column keeps, so the DTO cached for the order history and the
+        // page tokens built from it match the stored row
+        order.setOrderDate(LocalDateTime.now().truncatedTo(ChronoUnit.MICROS));
         order.setStatus(Order.OrderStatus.PENDING);
         order.setTotalAmount(totalAmount);
         order.setUserId(userId);
@@ -94,11 +319,47 @@ public class OrderService {
         for (OrderItem item : orderItems) {
             item.setOrder(order);
         }
+        return order;
+    }
 
-        Order savedOrder = orderRepository.save(order);
-        return convertToDTO(savedOrder);
+    private List<OrderItem> resolveAndHoldInBatch(List<OrderItemRequestDTO> items, String holdReference) {
+        List<OrderItem> orderItems = resolveOrderItems(items);
+
+        // Check and hold stock for the whole cart in a single call to product service. A failed
+        // call may still have placed the holds (e.g. the response was lost), so any outcome other
+        // than reserved releases the reference before the order is rejected.
+        BatchReservationResultDTO reservation = holdProductStock(holdReference, toReservations(orderItems));
+        if (!reservation.isReserved()) {
+            productServiceClient.releaseHolds(holdReference);
+            throw new RuntimeException(insufficientStockMessage(orderItems, reservation.getInsufficientProductIds()));
+        }
+        return orderItems;
     }
 
+    private List<OrderItem> resolveOrderItems(List<OrderItemRequestDTO> items) {
+        // Resolve the details of every product in the cart with one call to product service
+        Map<Long, ProductInfo> productInfos = getProductInfos(items);
+
+        return items.stream()
+                .map(item -> {
+                    ProductInfo productInfo = productInfos.get(item.getProductId());
+                    if (productInfo == null) {
+                        throw new RuntimeException("Product not found: " + item.getProductId());
+                    }
+
+                    OrderItem orderItem = new OrderItem();
+                    orderItem.setProductId(item.getProductId());
+                    orderItem.setQuantity(item.getQuantity());
+                    orderItem.setPrice(productInfo.getPrice());
+                    orderItem.setProductName(productInfo.getName());
+
+                    return orderItem;
+                })
+                .collect(Collectors.toList());
+    }
+
+    // Sets any status, as PUT /orders/{id}/status always has (admins use it to correct orders by
+    // hand); only the bulk transitionOrderStatuses enforces canTransitionTo
     @Transactional
     public OrderDTO updateOrderStatus(Long id, String status) {
         Order order = orderRepository.findById(id)
@@ -106,7 +367,7 @@ public class OrderService {
 
         try {
             Order.OrderStatus orderStatus = Order.OrderStatus.valueOf(status.toUpperCase());
-            order.setStatus(orderStatus);
+            changeStatus(order, orderStatus);
             Order updatedOrder = orderRepository.save(order);
             return convertToDTO(updatedOrder);
         } catch (IllegalArgumentException e) {
@@ -114,23 +375,180 @@ public class OrderService {
         }
     }
 
-    private ProductInfo getProductInfo(Long productId) {
+    // Keeps the sales rollup in step: cancelling an order takes its lines out, and moving it out
+    // of CANCELLED again puts them back. The owner's cached order history is updated on commit.
+    private void changeStatus(Order order, Order.OrderStatus newStatus) {
+        if (order.getStatus() != newStatus) {
+            orderHistoryCache.statusChanged(order.getUserId(), order.getId(), newStatus);
+        }
+        boolean wasCancelled = order.getStatus() == Order.OrderStatus.CANCELLED;
+        boolean cancelled = newStatus == Order.OrderStatus.CANCELLED;
+        order.setStatus(newStatus);
+        if (cancelled && !wasCancelled) {
+            productSalesRollup.recordCancellation(order);
+        } else if (wasCancelled && !cancelled) {
+            productSalesRollup.recordOrder(order);
+        }
+    }
+
+    // Set-based compare-and-set of many statuses: one UPDATE per (new status, expected version)
+    // and chunk of ids, with the allowed transitions checked in its WHERE clause. Only orders of
+    // a chunk that did not fully apply are read back, as id/status/version, to report why.
+    // Cancellations first lock the matching orders, so exactly those leave the sales rollup.
+    // Results are in request order. An order another writer moved to the same status from the
+    // same version at the same time is reported as updated; it is in the requested state either way.
+    // Cached order histories of the owners are left alone; their collection versions no longer
+    // match, so they are reloaded on their next read.
+    public List<OrderStatusTransitionResultDTO> transitionOrderStatuses(List<OrderStatusTransitionDTO> transitions) {
+        if (transitions.size() > MAX_STATUS_TRANSITIONS) {
+            throw new RuntimeException("At most " + MAX_STATUS_TRANSITIONS + " status transitions per request");
+        }
+        Map<Long, OrderStatusTransitionResultDTO> results = new LinkedHashMap<>();
+        Map<StatusTransitionGroup, List<Long>> idsByGroup = new LinkedHashMap<>();
+        for (OrderStatusTransitionDTO transition : transitions) {
+            if (transition.getId() == null || transition.getExpectedVersion() == null || transition.getNewStatus() == null) {
+                throw new RuntimeException("Each transition needs an id, expectedVersion and newStatus");
+            }
+            if (results.containsKey(transition.getId())) {
+                throw new RuntimeException("Order " + transition.getId() + " appears more than once");
+            }
+            results.put(transition.getId(), null); // keeps the request order for the results below
+            Order.OrderStatus newStatus = parseStatus(transition.getNewStatus());
+            if (newStatus == null) {
+                results.put(transition.getId(), new OrderStatusTransitionResultDTO(transition.getId(),
+                        OrderStatusTransitionResultDTO.Outcome.INVALID_STATUS, null, null));
+                continue;
+            }
+            idsByGroup.computeIfAbsent(new StatusTransitionGroup(newStatus, transition.getExpectedVersion()),
+                    group -> new ArrayList<>()).add(transition.getId());
+        }
+
+        idsByGroup.forEach((group, ids) -> {
+            // Ascending ids, so concurrent batches lock shared rows in the same order
+            List<Long> sortedIds = ids.stream().sorted().collect(Collectors.toList());
+            for (int from = 0; from < sortedIds.size(); from += STATUS_UPDATE_CHUNK_SIZE) {
+                List<Long> chunk = sortedIds.subList(from, Math.min(from + STATUS_UPDATE_CHUNK_SIZE, sortedIds.size()));
+                applyStatusTransition(group, chunk).forEach(result -> results.put(result.getId(), result));
+            }
+        });
+        return new ArrayList<>(results.values());
+    }
+
+    private List<OrderStatusTransitionResultDTO> applyStatusTransition(StatusTransitionGroup group, List<Long> ids) {
+        Set<Order.OrderStatus> allowedFrom = group.newStatus().allowedPredecessors();
+        int updated = 0;
+        if (group.newStatus() == Order.OrderStatus.CANCELLED) {
+            List<Long> cancelledIds = orderRepository.findTransitionableWithLock(ids, group.expectedVersion(), allowedFrom)
+                    .stream().map(Order::getId).collect(Collectors.toList());
+            if (!cancelledIds.isEmpty()) {
+                updated = orderRepository.transitionStatus(cancelledIds, group.expectedVersion(), allowedFrom, group.newStatus());
+                productSalesRollup.recordCancellations(cancelledIds);
+            }
+        } else if (!allowedFrom.isEmpty()) {
+            updated = orderRepository.transitionStatus(ids, group.expectedVersion(), allowedFrom, group.newStatus());
+        }
+        if (updated == ids.size()) {
+            return ids.stream()
+                    .map(id -> new OrderStatusTransitionResultDTO(id, OrderStatusTransitionResultDTO.Outcome.UPDATED,
+                            group.newStatus().name(), group.expectedVersion() + 1))
+                    .collect(Collectors.toList());
+        }
+
+        boolean anyUpdated = updated > 0;
+        Map<Long, OrderStatusVersionDTO> current = orderRepository.findStatusVersionsByIdIn(ids).stream()
+                .collect(Collectors.toMap(OrderStatusVersionDTO::getId, Function.identity()));
+        return ids.stream()
+                .map(id -> classifyStatusTransition(id, current.get(id), group, anyUpdated))
+                .collect(Collectors.toList());
+    }
+
+    private static OrderStatusTransitionResultDTO classifyStatusTransition(Long id, OrderStatusVersionDTO current,
+                                                                           StatusTransitionGroup group, boolean anyUpdated) {
+        if (current == null) {
+            return new OrderStatusTransitionResultDTO(id, OrderStatusTransitionResultDTO.Outcome.NOT_FOUND, null, null);
+        }
+        OrderStatusTransitionResultDTO.Outcome outcome;
+        if (anyUpdated && current.getStatus() == group.newStatus()
+                && current.getVersion().equals(group.expectedVersion() + 1)) {
+            outcome = OrderStatusTransitionResultDTO.Outcome.UPDATED;
+        } else if (!current.getVersion().equals(group.expectedVersion())) {
+            outcome = OrderStatusTransitionResultDTO.Outcome.VERSION_CONFLICT;
+        } else {
+            outcome = OrderStatusTransitionResultDTO.Outcome.TRANSITION_NOT_ALLOWED;
+        }
+        return new OrderStatusTransitionResultDTO(id, outcome, current.getStatus().name(), current.getVersion());
+    }
+
+    private static Order.OrderStatus parseStatus(String status) {
         try {
-            ProductResponseDTO product = productServiceClient.getProductById(productId);
-            return new ProductInfo(product.getName(), product.getPrice());
-        } catch (Exception e) {
+            return Order.OrderStatus.valueOf(status.toUpperCase());
+        } catch (IllegalArgumentException e) {
             return null;
         }
     }
 
-    private boolean reserveProductStock(Long productId, Integer quantity) {
+    // Name and price come from the local replica while it is fresh; only products it does not
+    // know (or all of them, when it is stale) are looked up in product service, in one call
+    private Map<Long, ProductInfo> getProductInfos(List<OrderItemRequestDTO> items) {
+        Map<Long, ProductInfo> productInfos = new HashMap<>();
+        List<Long> missingIds = new ArrayList<>();
+        items.stream()
+                .map(OrderItemRequestDTO::getProductId)
+                .distinct()
+                .forEach(productId -> productReplica.findFresh(productId).ifPresentOrElse(
+                        product -> productInfos.put(productId, new ProductInfo(product.getName(), product.getPrice())),
+                        () -> missingIds.add(productId)));
+        if (missingIds.isEmpty()) {
+            return productInfos;
+        }
+        try {
+            List<ProductResponseDTO> products = productReads.read("getProductsByIds",
+                    () -> productServiceClient.getProductsByIds(missingIds));
+            for (ProductResponseDTO product : products) {
+                productInfos.putIfAbsent(product.getId(), new ProductInfo(product.getName(), product.getPrice()));
+            }
+        } catch (Exception e) {
+            // Unresolved products are reported as not found by the caller
+        }
+        return productInfos;
+    }
+
+    private List<StockReservationDTO> toReservations(List<OrderItem> orderItems) {
+        return orderItems.stream()
+                .map(item -> new StockReservationDTO(item.getProductId(), item.getQuantity()))
+                .collect(Collectors.toList());
+    }
+
+    private BatchReservationResultDTO holdProductStock(String holdReference, List<StockReservationDTO> reservations) {
         try {
-            return productServiceClient.checkAndReserveStock(productId, quantity);
+            BatchReservationResultDTO result = productServiceClient.holdStock(new StockHoldRequestDTO(holdReference, reservations));
+            return result != null ? result : new BatchReservationResultDTO(false, Collections.emptyList());
+        } catch (Exception e) {
+            return new BatchReservationResultDTO(false, Collections.emptyList());
+        }
+    }
+
+    private boolean confirmHolds(String holdReference) {
+        try {
+            productServiceClient.confirmHolds(holdReference);
+            return true;
         } catch (Exception e) {
             return false;
         }
     }
 
+    private String insufficientStockMessage(List<OrderItem> orderItems, List<Long> insufficientProductIds) {
+        if (insufficientProductIds == null || insufficientProductIds.isEmpty()) {
+            return "Unable to reserve stock for order";
+        }
+        String productNames = orderItems.stream()
+                .filter(item -> insufficientProductIds.contains(item.getProductId()))
+                .map(OrderItem::getProductName)
+                .distinct()
+                .collect(Collectors.joining(", "));
+        return "Insufficient stock for product: " + productNames;
+    }
+
     private OrderDTO convertToDTO(Order order) {
         List<OrderItemDTO> itemDTOs = order.getOrderItems().stream()
                 .map(item -> new OrderItemDTO(
@@ -148,10 +566,34 @@ public class OrderService {
                 order.getStatus().name(),
                 order.getTotalAmount(),
                 order.getUserId(),
-                itemDTOs
+                itemDTOs,
+                order.getVersion()
         );
     }
 
+    private record StatusTransitionGroup(Order.OrderStatus newStatus, Long expectedVersion) {
+    }
+
+    // Position of the last order of a page, handed to clients as an opaque token
+    private record PageCursor(LocalDateTime orderDate, Long id) {
+
+        String encode() {
+            String cursor = orderDate + "|" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static PageCursor decode(String token) {
+            try {
+                String cursor = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+                int separator = cursor.lastIndexOf('|');
+                return new PageCursor(LocalDateTime.parse(cursor.substring(0, separator)),
+                        Long.valueOf(cursor.substring(separator + 1)));
+            } catch (RuntimeException e) {
+                throw new RuntimeException("Invalid page token: " + token);
+            }
+        }
+    }
+
     // Inner class for product information (would be a DTO in real implementation)
     private static class ProductInfo {
         private String name;
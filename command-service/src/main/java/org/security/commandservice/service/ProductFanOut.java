@@ -0,0 +1,179 @@
+package org.security.commandservice.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.security.commandservice.client.ProductServiceClient;
+import org.security.commandservice.dto.OrderItemRequestDTO;
+import org.security.commandservice.dto.ProductResponseDTO;
+import org.security.commandservice.dto.StockHoldRequestDTO;
+import org.security.commandservice.dto.StockReservationDTO;
+import org.security.commandservice.model.OrderItem;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.concurrent.DelegatingSecurityContextCallable;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Collectors;
+
+// Resolves every cart line and holds its stock concurrently on virtual threads, for product
+// service deployments where the batch lookup/hold calls are not used.
+@Component
+public class ProductFanOut {
+
+    private final ProductServiceClient productServiceClient;
+    private final ProductLookupCoalescer productLookups;
+    private final ProductReplica productReplica;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final int maxConcurrency;
+
+    public ProductFanOut(ProductServiceClient productServiceClient,
+                         ProductLookupCoalescer productLookups,
+                         ProductReplica productReplica,
+                         MeterRegistry meterRegistry,
+                         @Value("${order.product-calls.fan-out.enabled:false}") boolean enabled,
+                         @Value("${order.product-calls.fan-out.max-concurrency:8}") int maxConcurrency) {
+        this.productServiceClient = productServiceClient;
+        this.productLookups = productLookups;
+        this.productReplica = productReplica;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Returns the order items in cart order. Each line is held under the order's hold reference;
+    // the first failing line cancels the others and the whole reference is released before
+    // the failure is rethrown, including lines whose hold response was lost.
+    public List<OrderItem> resolveAndHold(List<OrderItemRequestDTO> items, String holdReference) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        SecurityContext securityContext = SecurityContextHolder.getContext();
+        Map<String, String> mdcContext = MDC.getCopyOfContextMap();
+        Semaphore permits = new Semaphore(maxConcurrency);
+        List<Future<OrderItem>> futures = new ArrayList<>(items.size());
+        // One hold per product: its first line holds the product's total quantity in the cart
+        Map<Long, Integer> quantitiesToHold = items.stream().collect(Collectors.toMap(
+                OrderItemRequestDTO::getProductId, OrderItemRequestDTO::getQuantity, Integer::sum));
+
+        RuntimeException failure;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            CompletionService<OrderItem> completionService = new ExecutorCompletionService<>(executor);
+            for (OrderItemRequestDTO item : items) {
+                Integer holdQuantity = quantitiesToHold.remove(item.getProductId());
+                Callable<OrderItem> line = () -> resolveAndHoldLine(item, holdReference, holdQuantity, permits);
+                futures.add(completionService.submit(withCallerContext(line, securityContext, mdcContext)));
+            }
+            failure = awaitAll(completionService, futures);
+        } // close() waits for cancelled lines, so no hold is placed after the release below
+
+        if (failure != null) {
+            productServiceClient.releaseHolds(holdReference);
+            sample.stop(fanOutTimer("failure"));
+            throw failure;
+        }
+        sample.stop(fanOutTimer("success"));
+        return futures.stream().map(Future::resultNow).collect(Collectors.toList());
+    }
+
+    private RuntimeException awaitAll(CompletionService<OrderItem> completionService, List<Future<OrderItem>> futures) {
+        try {
+            for (int i = 0; i < futures.size(); i++) {
+                completionService.take().get();
+            }
+            return null;
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            return e.getCause() instanceof RuntimeException cause ? cause : new RuntimeException(e.getCause());
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            return new RuntimeException("Interrupted while resolving order items");
+        }
+    }
+
+    private OrderItem resolveAndHoldLine(OrderItemRequestDTO item, String holdReference, Integer holdQuantity,
+                                         Semaphore permits) throws InterruptedException {
+        permits.acquire();
+        try {
+            ProductResponseDTO product = getProduct(item.getProductId());
+            if (product == null) {
+                throw new RuntimeException("Product not found: " + item.getProductId());
+            }
+            if (holdQuantity != null && !holdStock(holdReference, item.getProductId(), holdQuantity)) {
+                throw new RuntimeException("Insufficient stock for product: " + product.getName());
+            }
+
+            OrderItem orderItem = new OrderItem();
+            orderItem.setProductId(item.getProductId());
+            orderItem.setQuantity(item.getQuantity());
+            orderItem.setPrice(product.getPrice());
+            orderItem.setProductName(product.getName());
+            return orderItem;
+        } finally {
+            permits.release();
+        }
+    }
+
+    private ProductResponseDTO getProduct(Long productId) {
+        Optional<ProductResponseDTO> replicated = productReplica.findFresh(productId);
+        if (replicated.isPresent()) {
+            return replicated.get();
+        }
+        try {
+            return productLookups.getProductById(productId);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private boolean holdStock(String holdReference, Long productId, Integer quantity) {
+        try {
+            StockHoldRequestDTO request = new StockHoldRequestDTO(holdReference,
+                    List.of(new StockReservationDTO(productId, quantity)));
+            return productServiceClient.holdStock(request).isReserved();
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    // Carries the caller's security context and MDC (trace and span ids) onto the virtual thread
+    static <T> Callable<T> withCallerContext(Callable<T> task, SecurityContext securityContext,
+                                                     Map<String, String> mdcContext) {
+        Callable<T> withMdc = () -> {
+            if (mdcContext != null) {
+                MDC.setContextMap(mdcContext);
+            }
+            try {
+                return task.call();
+            } finally {
+                MDC.clear();
+            }
+        };
+        return new DelegatingSecurityContextCallable<>(withMdc, securityContext);
+    }
+
+    private Timer fanOutTimer(String outcome) {
+        return Timer.builder("order.product.fanout")
+                .description("Latency of resolving and reserving all lines of one order concurrently")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,109 @@
+package org.security.commandservice.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.security.commandservice.client.ProductServiceClient;
+import org.security.commandservice.dto.ProductResponseDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+// Single-flight in front of ProductServiceClient.getProductById: while a lookup of an id is in
+// flight, further callers for that id wait for its result instead of sending their own request,
+// so a burst of checkouts on the same few products costs one call per product. Results may also
+// be kept for result-ttl-micros, to cover callers that arrive just after the call returned.
+// Product reads are catalog data, so sharing a response fetched with another caller's token is fine.
+@Component
+public class ProductLookupCoalescer {
+
+    private final ProductServiceClient productServiceClient;
+    private final HedgedProductReads productReads;
+    private final boolean enabled;
+    private final ConcurrentMap<Long, CompletableFuture<ProductResponseDTO>> inFlight = new ConcurrentHashMap<>();
+    private final Cache<Long, ProductResponseDTO> recentResults;
+    private final Counter upstreamCalls;
+    private final Counter coalescedCalls;
+    private final Counter cachedCalls;
+
+    public ProductLookupCoalescer(ProductServiceClient productServiceClient, HedgedProductReads productReads,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${order.product-calls.coalescing.enabled:true}") boolean enabled,
+                                  @Value("${order.product-calls.coalescing.result-ttl-micros:0}") long resultTtlMicros) {
+        this.productServiceClient = productServiceClient;
+        this.productReads = productReads;
+        this.enabled = enabled;
+        this.recentResults = resultTtlMicros > 0
+                ? Caffeine.newBuilder()
+                        .maximumSize(10_000)
+                        .expireAfterWrite(Duration.ofNanos(resultTtlMicros * 1_000))
+                        .build()
+                : null;
+        this.upstreamCalls = lookups(meterRegistry, "upstream");
+        this.coalescedCalls = lookups(meterRegistry, "coalesced");
+        this.cachedCalls = lookups(meterRegistry, "cached");
+    }
+
+    public ProductResponseDTO getProductById(Long id) {
+        if (!enabled) {
+            upstreamCalls.increment();
+            return readProduct(id);
+        }
+        if (recentResults != null) {
+            ProductResponseDTO recent = recentResults.getIfPresent(id);
+            if (recent != null) {
+                cachedCalls.increment();
+                return recent;
+            }
+        }
+
+        CompletableFuture<ProductResponseDTO> call = new CompletableFuture<>();
+        CompletableFuture<ProductResponseDTO> running = inFlight.putIfAbsent(id, call);
+        if (running != null) {
+            coalescedCalls.increment();
+            return await(running);
+        }
+        upstreamCalls.increment();
+        try {
+            ProductResponseDTO product = readProduct(id);
+            // Cached before the call is removed from inFlight, so no caller in between misses both
+            if (product != null && recentResults != null) {
+                recentResults.put(id, product);
+            }
+            call.complete(product);
+            return product;
+        } catch (RuntimeException e) {
+            call.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(id, call);
+        }
+    }
+
+    private ProductResponseDTO readProduct(Long id) {
+        return productReads.read("getProductById", () -> productServiceClient.getProductById(id));
+    }
+
+    // The waiting callers get the failure of the call they joined, as thrown to its own caller
+    private static ProductResponseDTO await(CompletableFuture<ProductResponseDTO> call) {
+        try {
+            return call.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : new RuntimeException(e.getCause());
+        }
+    }
+
+    private static Counter lookups(MeterRegistry meterRegistry, String source) {
+        return Counter.builder("order.product.lookups")
+                .description("Product lookups by id, by whether they called product service, joined a call "
+                        + "in flight or were answered from the recent results")
+                .tag("source", source)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,135 @@
+package org.security.commandservice.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.security.commandservice.client.ProductServiceClient;
+import org.security.commandservice.dto.ProductChangeDTO;
+import org.security.commandservice.dto.ProductChangesDTO;
+import org.security.commandservice.dto.ProductResponseDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+// Local copy of product id -> name and price, kept up to date by long-polling product
+// service's change feed. Orders read prices from it and only call product service for
+// stock; while the replica is stale every lookup goes to product service instead.
+@Component
+public class ProductReplica {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductReplica.class);
+
+    private final ProductServiceClient productServiceClient;
+    private final boolean enabled;
+    private final long waitMillis;
+    private final long maxStalenessMillis;
+    private final long retryDelayMillis;
+
+    private final ConcurrentHashMap<Long, ProductResponseDTO> products = new ConcurrentHashMap<>();
+    // -1 until the first snapshot has been applied
+    private volatile long appliedSeq = -1;
+    // Wall-clock time of the last successful feed response, 0 before the first one
+    private volatile long lastSyncedAt;
+    private volatile Thread syncThread;
+
+    public ProductReplica(ProductServiceClient productServiceClient,
+                          MeterRegistry meterRegistry,
+                          @Value("${order.product-replica.enabled:false}") boolean enabled,
+                          @Value("${order.product-replica.wait-ms:20000}") long waitMillis,
+                          @Value("${order.product-replica.max-staleness-ms:30000}") long maxStalenessMillis,
+                          @Value("${order.product-replica.retry-delay-ms:2000}") long retryDelayMillis) {
+        this.productServiceClient = productServiceClient;
+        this.enabled = enabled;
+        this.waitMillis = waitMillis;
+        this.maxStalenessMillis = maxStalenessMillis;
+        this.retryDelayMillis = retryDelayMillis;
+        if (enabled) {
+            Gauge.builder("order.product.replica.staleness", this, replica -> replica.getStalenessMillis() / 1000.0)
+                    .description("Seconds since the product replica last heard from the change feed")
+                    .baseUnit("seconds")
+                    .register(meterRegistry);
+            Gauge.builder("order.product.replica.sequence", this, replica -> replica.appliedSeq)
+                    .description("Last product change feed sequence number applied to the replica")
+                    .register(meterRegistry);
+            Gauge.builder("order.product.replica.size", products, ConcurrentHashMap::size)
+                    .description("Products held by the replica")
+                    .register(meterRegistry);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (enabled) {
+            syncThread = Thread.ofVirtual().name("product-replica-sync").start(this::syncLoop);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (syncThread != null) {
+            syncThread.interrupt();
+        }
+    }
+
+    // Empty when the product is unknown or the replica is stale; the caller then asks product service
+    public Optional<ProductResponseDTO> findFresh(Long productId) {
+        return isFresh() ? Optional.ofNullable(products.get(productId)) : Optional.empty();
+    }
+
+    public boolean isFresh() {
+        return lastSyncedAt > 0 && getStalenessMillis() <= maxStalenessMillis;
+    }
+
+    public long getStalenessMillis() {
+        return lastSyncedAt == 0 ? Long.MAX_VALUE : System.currentTimeMillis() - lastSyncedAt;
+    }
+
+    private void syncLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                syncOnce();
+            } catch (RuntimeException e) {
+                log.warn("Product change feed unavailable, replica is {} ms stale", getStalenessMillis(), e);
+                try {
+                    Thread.sleep(retryDelayMillis);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    // One round trip to the change feed: a snapshot first, then long-polled deltas
+    void syncOnce() {
+        long since = appliedSeq;
+        ProductChangesDTO changes = productServiceClient.getProductChanges(since, since < 0 ? 0 : waitMillis);
+        apply(changes);
+        lastSyncedAt = System.currentTimeMillis();
+    }
+
+    private void apply(ProductChangesDTO changes) {
+        if (changes.isSnapshot()) {
+            Set<Long> snapshotIds = changes.getChanges().stream()
+                    .map(ProductChangeDTO::getProductId)
+                    .collect(Collectors.toSet());
+            products.keySet().retainAll(snapshotIds);
+        }
+        for (ProductChangeDTO change : changes.getChanges()) {
+            if (change.isDeleted()) {
+                products.remove(change.getProductId());
+            } else {
+                products.put(change.getProductId(),
+                        new ProductResponseDTO(change.getProductId(), change.getName(), change.getPrice()));
+            }
+        }
+        appliedSeq = changes.getLatestSeq();
+    }
+}
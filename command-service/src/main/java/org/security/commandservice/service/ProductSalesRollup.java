@@ -0,0 +1,103 @@
+package org.security.commandservice.service;
+
+import org.security.commandservice.dto.ProductDailySalesDTO;
+import org.security.commandservice.dto.ProductSalesDTO;
+import org.security.commandservice.model.Order;
+import org.security.commandservice.model.OrderItem;
+import org.security.commandservice.repository.OrderItemRepository;
+import org.security.commandservice.repository.ProductSalesDailyRepository;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Keeps product_sales_daily in step with the orders. Every record* call joins the transaction
+// that inserts or cancels the order, so the rollup commits or rolls back together with it.
+// Cancelled orders are taken out again on the day they were placed; an order an admin moves
+// out of CANCELLED is added back. Reports then cost one row per product and day.
+@Component
+public class ProductSalesRollup {
+
+    static final int MAX_TOP_PRODUCTS = 100;
+
+    private final ProductSalesDailyRepository productSalesDailyRepository;
+    private final OrderItemRepository orderItemRepository;
+
+    public ProductSalesRollup(ProductSalesDailyRepository productSalesDailyRepository,
+                              OrderItemRepository orderItemRepository) {
+        this.productSalesDailyRepository = productSalesDailyRepository;
+        this.orderItemRepository = orderItemRepository;
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordOrder(Order order) {
+        apply(salesOf(order), 1);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordCancellation(Order order) {
+        apply(salesOf(order), -1);
+    }
+
+    // Bulk cancellations: the lines of all orders are summed by the database in one query
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordCancellations(Collection<Long> orderIds) {
+        if (!orderIds.isEmpty()) {
+            apply(orderItemRepository.sumSalesByProductAndDay(orderIds), -1);
+        }
+    }
+
+    // Best sellers by units over [from, to], both inclusive
+    @Transactional(readOnly = true)
+    public List<ProductSalesDTO> getTopProducts(LocalDate from, LocalDate to, int limit) {
+        validateRange(from, to);
+        if (limit < 1 || limit > MAX_TOP_PRODUCTS) {
+            throw new RuntimeException("Limit must be between 1 and " + MAX_TOP_PRODUCTS);
+        }
+        return productSalesDailyRepository.findTopProducts(from, to, PageRequest.ofSize(limit));
+    }
+
+    // Days without sales are left out
+    @Transactional(readOnly = true)
+    public List<ProductDailySalesDTO> getDailySales(Long productId, LocalDate from, LocalDate to) {
+        validateRange(from, to);
+        return productSalesDailyRepository.findDailySales(productId, from, to);
+    }
+
+    private static List<ProductDailySalesDTO> salesOf(Order order) {
+        LocalDate salesDate = order.getOrderDate().toLocalDate();
+        Map<Long, ProductDailySalesDTO> salesByProduct = new TreeMap<>();
+        for (OrderItem item : order.getOrderItems()) {
+            BigDecimal revenue = item.getPrice().multiply(BigDecimal.valueOf(item.getQuantity()));
+            salesByProduct.merge(item.getProductId(),
+                    new ProductDailySalesDTO(item.getProductId(), salesDate, item.getQuantity().longValue(), revenue),
+                    (sum, line) -> new ProductDailySalesDTO(sum.getProductId(), salesDate,
+                            sum.getUnitsSold() + line.getUnitsSold(), sum.getRevenue().add(line.getRevenue())));
+        }
+        return new ArrayList<>(salesByProduct.values());
+    }
+
+    // Rows are written in (product, day) order, so concurrent orders lock shared rows in the same order
+    private void apply(List<ProductDailySalesDTO> sales, int sign) {
+        sales.stream()
+                .sorted(Comparator.comparing(ProductDailySalesDTO::getProductId)
+                        .thenComparing(ProductDailySalesDTO::getSalesDate))
+                .forEach(day -> productSalesDailyRepository.addSales(day.getProductId(), day.getSalesDate(),
+                        sign * day.getUnitsSold(), day.getRevenue().multiply(BigDecimal.valueOf(sign))));
+    }
+
+    private static void validateRange(LocalDate from, LocalDate to) {
+        if (from == null || to == null || from.isAfter(to)) {
+            throw new RuntimeException("A date range with from on or before to is required");
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package org.security.commandservice.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+// Token bucket that caps the extra calls to product service (retries and hedges) at a share of
+// its normal traffic: every call deposits percent/100 of a token and every extra call takes a
+// whole one. During an incident, when most calls fail, the bucket empties and failures are
+// returned instead of multiplying the load. min-per-second tokens trickle in regardless, so a
+// quiet instance can still retry, and max-tokens bounds the burst after a calm period.
+@Component
+public class RetryBudget {
+
+    private final double tokensPerCall;
+    private final double maxTokens;
+    private final double tokensPerNano;
+    private final MeterRegistry meterRegistry;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private double tokens;
+    private long refilledAt = System.nanoTime();
+
+    public RetryBudget(MeterRegistry meterRegistry,
+                       @Value("${order.product-calls.retry-budget.percent:10}") double percent,
+                       @Value("${order.product-calls.retry-budget.max-tokens:20}") double maxTokens,
+                       @Value("${order.product-calls.retry-budget.min-per-second:1}") double minPerSecond) {
+        this.tokensPerCall = percent / 100;
+        this.maxTokens = maxTokens;
+        this.tokensPerNano = minPerSecond / 1_000_000_000;
+        this.meterRegistry = meterRegistry;
+        this.tokens = maxTokens;
+        Gauge.builder("order.product.retry.budget.tokens", this, RetryBudget::availableTokens)
+                .description("Retries and hedges product service calls may currently add")
+                .register(meterRegistry);
+    }
+
+    // Once per read, for its first attempt only; retries and hedges spend tokens, never earn them
+    public void recordCall() {
+        lock.lock();
+        try {
+            refill();
+            tokens = Math.min(maxTokens, tokens + tokensPerCall);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // purpose ("retry" or "hedge") tags the exhaustion counter
+    public boolean tryAcquire(String purpose) {
+        lock.lock();
+        try {
+            refill();
+            if (tokens >= 1) {
+                tokens -= 1;
+                return true;
+            }
+        } finally {
+            lock.unlock();
+        }
+        Counter.builder("order.product.retry.budget.exhausted")
+                .description("Retries or hedges of product service calls skipped because the budget was spent")
+                .tag("purpose", purpose)
+                .register(meterRegistry)
+                .increment();
+        return false;
+    }
+
+    double availableTokens() {
+        lock.lock();
+        try {
+            refill();
+            return tokens;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(maxTokens, tokens + (now - refilledAt) * tokensPerNano);
+        refilledAt = now;
+    }
+}
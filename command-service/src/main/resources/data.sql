@@ -18,3 +18,10 @@ INSERT INTO order_items (id, order_id, product_id, quantity, price, product_name
 (4, 3, 4, 1, 1499.99, 'Ordinateur Portable ASUS', 0),
 (5, 4, 5, 1, 1199.99, 'Ordinateur Portable Apple MacBook Air', 0),
 (6, 5, 6, 1, 1799.99, 'Ordinateur Portable MSI', 0);
+
+-- Daily sales rollup of the sample orders (cancelled orders are not counted)
+INSERT INTO product_sales_daily (product_id, sales_date, units_sold, revenue)
+SELECT oi.product_id, CAST(o.order_date AS DATE), SUM(oi.quantity), SUM(oi.price * oi.quantity)
+FROM order_items oi JOIN orders o ON o.id = oi.order_id
+WHERE o.status <> 'CANCELLED'
+GROUP BY oi.product_id, CAST(o.order_date AS DATE);
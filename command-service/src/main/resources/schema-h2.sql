@@ -2,6 +2,8 @@
 -- This will be executed automatically by Spring Boot
 
 -- Ensure the schema is clean
+DROP TABLE IF EXISTS product_sales_daily CASCADE;
+DROP TABLE IF EXISTS order_outbox CASCADE;
 DROP TABLE IF EXISTS order_items CASCADE;
 DROP TABLE IF EXISTS orders CASCADE;
 
@@ -27,14 +29,41 @@ CREATE TABLE order_items (
     FOREIGN KEY (order_id) REFERENCES orders(id) ON DELETE CASCADE
 );
 
+-- Create order_outbox table (async intake work queue)
+CREATE TABLE order_outbox (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    order_id BIGINT NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    attempts INTEGER NOT NULL DEFAULT 0,
+    created_at TIMESTAMP NOT NULL,
+    claimed_at TIMESTAMP,
+    next_attempt_at TIMESTAMP,
+    FOREIGN KEY (order_id) REFERENCES orders(id) ON DELETE CASCADE
+);
+
+-- Create product_sales_daily table (per product and order day, maintained with every order)
+CREATE TABLE product_sales_daily (
+    product_id BIGINT NOT NULL,
+    sales_date DATE NOT NULL,
+    units_sold BIGINT NOT NULL,
+    revenue DECIMAL(19,2) NOT NULL,
+    PRIMARY KEY (product_id, sales_date)
+);
+
 -- Add constraints
 ALTER TABLE orders ADD CONSTRAINT orders_status_check CHECK (status IN ('PENDING', 'CONFIRMED', 'SHIPPED', 'DELIVERED', 'CANCELLED'));
 ALTER TABLE orders ADD CONSTRAINT orders_total_positive CHECK (total_amount >= 0);
 ALTER TABLE order_items ADD CONSTRAINT order_items_quantity_positive CHECK (quantity > 0);
 ALTER TABLE order_items ADD CONSTRAINT order_items_price_positive CHECK (price >= 0);
+ALTER TABLE order_outbox ADD CONSTRAINT order_outbox_status_check CHECK (status IN ('NEW', 'PROCESSING'));
 
 -- Add indexes for performance
 CREATE INDEX idx_orders_user_id ON orders(user_id);
 CREATE INDEX idx_orders_order_date ON orders(order_date DESC);
+-- Serves keyset pagination of /orders/my-orders on (order_date DESC, id DESC) per user
+CREATE INDEX idx_orders_user_id_order_date_id ON orders(user_id, order_date DESC, id DESC);
 CREATE INDEX idx_order_items_order_id ON order_items(order_id);
 CREATE INDEX idx_order_items_product_id ON order_items(product_id);
+CREATE INDEX idx_order_outbox_status_id ON order_outbox(status, id);
+-- Serves the date range scan of /orders/stats/top-products
+CREATE INDEX idx_product_sales_daily_sales_date ON product_sales_daily(sales_date);
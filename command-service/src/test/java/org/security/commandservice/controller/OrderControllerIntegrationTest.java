@@ -11,12 +11,25 @@ import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.security.commandservice.client.ProductServiceClient;
+import org.security.commandservice.dto.OrderItemRequestDTO;
 import org.security.commandservice.dto.OrderRequestDTO;
 import org.security.commandservice.dto.ProductResponseDTO;
+import org.security.commandservice.dto.OrderDTO;
+import org.security.commandservice.dto.OrderPageDTO;
+import org.security.commandservice.service.OrderExporter;
+import org.security.commandservice.service.OrderIdempotencyStore;
+import org.security.commandservice.service.OrderIntakeQueue;
 import org.security.commandservice.service.OrderService;
+import org.security.commandservice.service.ProductSalesRollup;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.ArgumentMatchers.nullable;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -32,6 +45,18 @@ class OrderControllerIntegrationTest {
     @MockBean
     private OrderService orderService;
 
+    @MockBean
+    private OrderIntakeQueue orderIntakeQueue;
+
+    @MockBean
+    private OrderExporter orderExporter;
+
+    @MockBean
+    private OrderIdempotencyStore orderIdempotencyStore;
+
+    @MockBean
+    private ProductSalesRollup productSalesRollup;
+
     @MockBean
     private ProductServiceClient productServiceClient;
 
@@ -41,6 +66,8 @@ class OrderControllerIntegrationTest {
     @Test
     @WithMockUser(roles = "ADMIN")
     void getAllOrders_shouldReturnOrders() throws Exception {
+        when(orderService.getAllOrdersPage(isNull(), anyInt())).thenReturn(new OrderPageDTO(java.util.List.of(), null));
+
         mockMvc.perform(get("/orders")
                 .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk());
@@ -48,11 +75,79 @@ class OrderControllerIntegrationTest {
 
     @Test
     void getMyOrders_shouldReturnUserOrders() throws Exception {
+        when(orderService.getOrdersPageByUser(nullable(String.class), isNull(), anyInt(), nullable(String.class)))
+                .thenReturn(new OrderPageDTO(java.util.List.of(), null));
+
         mockMvc.perform(get("/orders/my-orders")
                 .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk());
     }
 
+    @Test
+    @WithMockUser(username = "client-1", roles = "CLIENT")
+    void getMyOrders_shouldCapPageSizeAndExposeNextPageToken() throws Exception {
+        // Given
+        when(orderService.getOrdersPageByUser(eq("client-1"), eq("token-1"), eq(200), nullable(String.class)))
+                .thenReturn(new OrderPageDTO(java.util.List.of(new OrderDTO()), "token-2"));
+
+        // When & Then
+        mockMvc.perform(get("/orders/my-orders")
+                .param("pageToken", "token-1")
+                .param("size", "10000")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Next-Page-Token", "token-2"))
+                .andExpect(jsonPath("$.length()").value(1));
+    }
+
+    @Test
+    @WithMockUser(username = "client-1", roles = "CLIENT")
+    void getMyOrders_shouldTagPageWithCollectionETag() throws Exception {
+        // Given
+        when(orderService.getOrdersETagByUser("client-1")).thenReturn("\"2-7-3\"");
+        when(orderService.getOrdersPageByUser(eq("client-1"), isNull(), anyInt(), eq("\"2-7-3\"")))
+                .thenReturn(new OrderPageDTO(java.util.List.of(new OrderDTO()), null));
+
+        // When & Then
+        mockMvc.perform(get("/orders/my-orders")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"2-7-3\""));
+    }
+
+    @Test
+    @WithMockUser(username = "client-1", roles = "CLIENT")
+    void getMyOrders_shouldReturnNotModifiedWithoutLoadingOrders_whenETagMatches() throws Exception {
+        // Given
+        when(orderService.getOrdersETagByUser("client-1")).thenReturn("\"2-7-3\"");
+
+        // When & Then
+        mockMvc.perform(get("/orders/my-orders")
+                .header("If-None-Match", "\"2-7-3\"")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        verify(orderService, never()).getOrdersPageByUser(anyString(), any(), anyInt(), any());
+    }
+
+    @Test
+    @WithMockUser(username = "client-1", roles = "CLIENT")
+    void getOrderById_shouldReturnNotModified_whenVersionMatches() throws Exception {
+        // Given
+        OrderDTO order = new OrderDTO();
+        order.setId(1L);
+        order.setUserId("client-1");
+        order.setVersion(4L);
+        when(orderService.getOrderById(1L)).thenReturn(order);
+
+        // When & Then
+        mockMvc.perform(get("/orders/1")
+                .header("If-None-Match", "\"4\"")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
+
     @Test
     void getOrderById_shouldReturnOrder() throws Exception {
         mockMvc.perform(get("/orders/1")
@@ -64,7 +159,7 @@ class OrderControllerIntegrationTest {
     @WithMockUser(roles = "CLIENT")
     void createOrder_shouldCreateOrderSuccessfully() throws Exception {
         // Given
-        OrderRequestDTO.OrderItemRequestDTO itemRequest = new OrderRequestDTO.OrderItemRequestDTO();
+        OrderItemRequestDTO itemRequest = new OrderItemRequestDTO();
         itemRequest.setProductId(1L);
         itemRequest.setQuantity(2);
 
@@ -77,7 +172,7 @@ class OrderControllerIntegrationTest {
         mockProduct.setPrice(java.math.BigDecimal.valueOf(99.99));
 
         when(productServiceClient.getProductById(1L)).thenReturn(mockProduct);
-        when(productServiceClient.checkAndReserveStock(1L, 2)).thenReturn(true);
+        when(productServiceClient.checkAndReserveStock(eq(1L), eq(2), anyString())).thenReturn(true);
 
         // When & Then
         mockMvc.perform(post("/orders")
@@ -87,6 +182,83 @@ class OrderControllerIntegrationTest {
                 .andExpect(status().isCreated());
     }
 
+    @Test
+    @WithMockUser(roles = "CLIENT")
+    void createOrder_shouldAcceptOrderWithLocation_whenAsyncIntakeIsEnabled() throws Exception {
+        // Given
+        OrderRequestDTO orderRequest = new OrderRequestDTO(java.util.List.of(new OrderItemRequestDTO(1L, 2)));
+        OrderDTO pendingOrder = new OrderDTO();
+        pendingOrder.setId(42L);
+        pendingOrder.setStatus("PENDING");
+        when(orderIntakeQueue.isEnabled()).thenReturn(true);
+        when(orderService.submitOrder(any(OrderRequestDTO.class), anyString())).thenReturn(pendingOrder);
+
+        // When & Then
+        mockMvc.perform(post("/orders")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(orderRequest))
+                .with(csrf()))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", org.hamcrest.Matchers.endsWith("/orders/42")))
+                .andExpect(jsonPath("$.status").value("PENDING"));
+    }
+
+    @Test
+    @WithMockUser(username = "client-1", roles = "CLIENT")
+    void createOrder_shouldPlaceOrderThroughIdempotencyStore_whenKeyIsGiven() throws Exception {
+        // Given
+        OrderRequestDTO orderRequest = new OrderRequestDTO(java.util.List.of(new OrderItemRequestDTO(1L, 2)));
+        OrderDTO placedOrder = new OrderDTO();
+        placedOrder.setId(42L);
+        placedOrder.setStatus("CONFIRMED");
+        when(orderIdempotencyStore.placeOnce(eq("client-1"), eq("key-1"), any(OrderRequestDTO.class), any(), any()))
+                .thenReturn(placedOrder);
+
+        // When & Then
+        mockMvc.perform(post("/orders")
+                .contentType(MediaType.APPLICATION_JSON)
+                .header("Idempotency-Key", "key-1")
+                .content(objectMapper.writeValueAsString(orderRequest))
+                .with(csrf()))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.id").value(42));
+        verify(orderService, never()).createOrder(any(OrderRequestDTO.class), anyString());
+    }
+
+    @Test
+    @WithMockUser(username = "client-1", roles = "CLIENT")
+    void createOrder_shouldReturnUnprocessableEntity_whenKeyWasUsedForAnotherOrder() throws Exception {
+        // Given
+        OrderRequestDTO orderRequest = new OrderRequestDTO(java.util.List.of(new OrderItemRequestDTO(1L, 2)));
+        when(orderIdempotencyStore.placeOnce(eq("client-1"), eq("key-1"), any(OrderRequestDTO.class), any(), any()))
+                .thenThrow(new OrderIdempotencyStore.KeyReusedException("reused"));
+
+        // When & Then
+        mockMvc.perform(post("/orders")
+                .contentType(MediaType.APPLICATION_JSON)
+                .header("Idempotency-Key", "key-1")
+                .content(objectMapper.writeValueAsString(orderRequest))
+                .with(csrf()))
+                .andExpect(status().isUnprocessableEntity());
+    }
+
+    @Test
+    @WithMockUser(roles = "CLIENT")
+    void createOrder_shouldReturnTooManyRequests_whenIntakeQueueIsFull() throws Exception {
+        // Given
+        OrderRequestDTO orderRequest = new OrderRequestDTO(java.util.List.of(new OrderItemRequestDTO(1L, 2)));
+        when(orderIntakeQueue.isEnabled()).thenReturn(true);
+        when(orderService.submitOrder(any(OrderRequestDTO.class), anyString()))
+                .thenThrow(new OrderIntakeQueue.QueueFullException("full"));
+
+        // When & Then
+        mockMvc.perform(post("/orders")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(orderRequest))
+                .with(csrf()))
+                .andExpect(status().isTooManyRequests());
+    }
+
     @Test
     @WithMockUser(roles = "ADMIN")
     void updateOrderStatus_shouldUpdateStatus() throws Exception {
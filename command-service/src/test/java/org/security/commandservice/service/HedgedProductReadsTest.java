@@ -0,0 +1,116 @@
+package org.security.commandservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class HedgedProductReadsTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private HedgedProductReads productReads;
+
+    @AfterEach
+    void tearDown() {
+        if (productReads != null) {
+            productReads.shutdown();
+        }
+    }
+
+    @Test
+    void read_SlowFirstCall_ShouldBeAnsweredByTheHedge() throws Exception {
+        // Given: the first call hangs until released, the second answers at once
+        productReads = new HedgedProductReads(new RetryBudget(meterRegistry, 10, 20, 1), meterRegistry,
+                true, 0.95, 20, 3, 50, 1000);
+        CountDownLatch releaseSlowCall = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+
+        // When
+        String result = productReads.read("getProductById", () -> {
+            if (calls.incrementAndGet() == 1) {
+                await(releaseSlowCall);
+                return "slow";
+            }
+            return "hedge";
+        });
+        releaseSlowCall.countDown();
+
+        // Then
+        assertThat(result).isEqualTo("hedge");
+        assertThat(calls).hasValue(2);
+        assertThat(meterRegistry.counter("order.product.hedges").count()).isEqualTo(1);
+        assertThat(meterRegistry.counter("order.product.hedge.wins").count()).isEqualTo(1);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (meterRegistry.timer("order.product.hedge.latency.saved").count() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertThat(meterRegistry.timer("order.product.hedge.latency.saved").count()).isEqualTo(1);
+    }
+
+    @Test
+    void read_FailingCalls_ShouldOnlyBeRetriedWhileTheBudgetLasts() {
+        // Given: a budget holding a single token that is not refilled
+        productReads = new HedgedProductReads(new RetryBudget(meterRegistry, 0, 1, 0), meterRegistry,
+                false, 0.95, 20, 5, 1, 2);
+        AtomicInteger calls = new AtomicInteger();
+
+        // When & Then
+        assertThatThrownBy(() -> productReads.read("getProductsByIds", () -> {
+            calls.incrementAndGet();
+            throw new RuntimeException("product service unavailable");
+        })).hasMessage("product service unavailable");
+        assertThat(calls).hasValue(2);
+        assertThat(meterRegistry.counter("order.product.retry.budget.exhausted", "purpose", "retry").count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void read_RetryAttempts_ShouldNotEarnBudgetTokens() {
+        // Given: a full budget of one token, and every call would earn a whole token back
+        productReads = new HedgedProductReads(new RetryBudget(meterRegistry, 100, 1, 0), meterRegistry,
+                false, 0.95, 20, 5, 1, 2);
+        AtomicInteger calls = new AtomicInteger();
+
+        // When & Then: only the first attempt deposits, so the read stops after one retry
+        assertThatThrownBy(() -> productReads.read("getProductById", () -> {
+            calls.incrementAndGet();
+            throw new RuntimeException("product service unavailable");
+        })).hasMessage("product service unavailable");
+        assertThat(calls).hasValue(2);
+    }
+
+    @Test
+    void read_TransientFailure_ShouldBeRetriedWithBackoff() {
+        // Given
+        productReads = new HedgedProductReads(new RetryBudget(meterRegistry, 10, 20, 1), meterRegistry,
+                false, 0.95, 20, 3, 1, 2);
+        AtomicInteger calls = new AtomicInteger();
+
+        // When
+        String result = productReads.read("getProductById", () -> {
+            if (calls.incrementAndGet() < 3) {
+                throw new RuntimeException("connection reset");
+            }
+            return "product";
+        });
+
+        // Then
+        assertThat(result).isEqualTo("product");
+        assertThat(calls).hasValue(3);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package org.security.commandservice.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.security.commandservice.client.ProductServiceClient;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Exports 1M generated orders (one item each) while tracking peak heap. Meant to be run
+// under a small heap so that any per-row accumulation fails with an OutOfMemoryError:
+// mvn test -Dtest=OrderExportMemoryTest -Dbenchmark=true -DargLine=-Xmx256m
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+        // File-backed so that the database itself does not live in the small test heap
+        "spring.datasource.url=jdbc:h2:./target/h2/order-export-test",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.sql.init.mode=never",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "eureka.client.enabled=false"
+})
+class OrderExportMemoryTest {
+
+    private static final int ORDERS = 1_000_000;
+
+    @Autowired
+    private OrderExporter orderExporter;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockBean
+    private ProductServiceClient productServiceClient;
+
+    @Test
+    void export_shouldKeepHeapFlat_forOneMillionOrders() throws Exception {
+        // Given: generated in SQL so the test itself never holds the rows
+        jdbcTemplate.execute("INSERT INTO orders (id, order_date, status, total_amount, user_id, version) " +
+                "SELECT X, DATEADD('SECOND', X, TIMESTAMP '2024-01-01 00:00:00'), 'CONFIRMED', 10, " +
+                "CONCAT('user-', MOD(X, 1000)), 0 FROM SYSTEM_RANGE(1, " + ORDERS + ")");
+        jdbcTemplate.execute("INSERT INTO order_items (order_id, product_id, quantity, price, product_name, version) " +
+                "SELECT X, MOD(X, 50) + 1, 1, 10, CONCAT('Product ', MOD(X, 50) + 1), 0 FROM SYSTEM_RANGE(1, " + ORDERS + ")");
+        System.gc();
+        long heapBefore = usedHeap();
+        ManagementFactory.getMemoryPoolMXBeans().forEach(MemoryPoolMXBean::resetPeakUsage);
+        LineCountingOutputStream output = new LineCountingOutputStream();
+
+        // When
+        orderExporter.export(OrderExporter.Format.NDJSON, output);
+
+        // Then
+        long peakGrowth = peakHeap() - heapBefore;
+        System.out.printf("Exported %d orders, %d MB written, peak heap growth %d MB%n",
+                output.lines, output.bytes / (1024 * 1024), peakGrowth / (1024 * 1024));
+        assertThat(output.lines).isEqualTo(ORDERS);
+    }
+
+    private static long usedHeap() {
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static long peakHeap() {
+        return ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .mapToLong(pool -> pool.getPeakUsage().getUsed())
+                .sum();
+    }
+
+    private static class LineCountingOutputStream extends OutputStream {
+        private long lines;
+        private long bytes;
+
+        @Override
+        public void write(int b) {
+            bytes++;
+            if (b == '\n') {
+                lines++;
+            }
+        }
+
+        @Override
+        public void write(byte[] buffer, int offset, int length) {
+            bytes += length;
+            for (int i = offset; i < offset + length; i++) {
+                if (buffer[i] == '\n') {
+                    lines++;
+                }
+            }
+        }
+    }
+}
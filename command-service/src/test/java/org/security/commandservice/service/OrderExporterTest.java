@@ -0,0 +1,87 @@
+package org.security.commandservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.security.commandservice.dto.OrderExportRowDTO;
+import org.security.commandservice.model.Order;
+import org.security.commandservice.repository.OrderRepository;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class OrderExporterTest {
+
+    private static final LocalDateTime ORDER_DATE = LocalDateTime.of(2024, 5, 1, 10, 30);
+
+    @Mock
+    private OrderRepository orderRepository;
+
+    private OrderExporter orderExporter;
+
+    @BeforeEach
+    void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        orderExporter = new OrderExporter(orderRepository, objectMapper);
+    }
+
+    @Test
+    void export_shouldWriteOneJsonLinePerOrder_withItemsGrouped() throws Exception {
+        // Given
+        when(orderRepository.streamAllForExport()).thenReturn(Stream.of(
+                row(1L, 10L, 100L, "Keyboard"),
+                row(1L, 11L, 101L, "Mouse"),
+                row(2L, null, null, null)));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        // When
+        orderExporter.export(OrderExporter.Format.NDJSON, output);
+
+        // Then
+        String[] lines = output.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(lines).hasSize(2);
+        assertThat(lines[0]).startsWith("{\"id\":1,").contains("\"productName\":\"Keyboard\"", "\"productName\":\"Mouse\"");
+        assertThat(lines[1]).startsWith("{\"id\":2,").contains("\"orderItems\":[]");
+    }
+
+    @Test
+    void export_shouldWriteOneCsvLinePerItem_andQuoteSpecialCharacters() throws Exception {
+        // Given
+        when(orderRepository.streamAllForExport()).thenReturn(Stream.of(row(1L, 10L, 100L, "Cable, 2m \"braided\"")));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        // When
+        orderExporter.export(OrderExporter.Format.CSV, output);
+
+        // Then
+        assertThat(output.toString(StandardCharsets.UTF_8)).isEqualTo(
+                "order_id,order_date,status,total_amount,user_id,product_id,product_name,quantity,price\n" +
+                "1,2024-05-01T10:30,CONFIRMED,20,test-user,100,\"Cable, 2m \"\"braided\"\"\",2,10\n");
+    }
+
+    @Test
+    void parseFormat_shouldRejectUnknownFormat() {
+        assertThatThrownBy(() -> OrderExporter.parseFormat("xml"))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessage("Unsupported export format: xml");
+    }
+
+    private OrderExportRowDTO row(Long orderId, Long itemId, Long productId, String productName) {
+        return new OrderExportRowDTO(orderId, ORDER_DATE, Order.OrderStatus.CONFIRMED, BigDecimal.valueOf(20),
+                "test-user", 0L, itemId, productId, productName, itemId == null ? null : 2,
+                itemId == null ? null : BigDecimal.TEN);
+    }
+}
@@ -0,0 +1,129 @@
+package org.security.commandservice.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.security.commandservice.client.ProductServiceClient;
+import org.security.commandservice.dto.BatchReservationResultDTO;
+import org.security.commandservice.dto.OrderDTO;
+import org.security.commandservice.dto.OrderItemRequestDTO;
+import org.security.commandservice.dto.OrderPageDTO;
+import org.security.commandservice.dto.OrderRequestDTO;
+import org.security.commandservice.dto.OrderStatusTransitionDTO;
+import org.security.commandservice.dto.ProductResponseDTO;
+import org.security.commandservice.repository.OrderRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+        "spring.datasource.url=jdbc:h2:mem:order-history-cache-test;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.sql.init.mode=never",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "eureka.client.enabled=false",
+        "order.history-cache.orders-per-user=3"
+})
+class OrderHistoryCacheTest {
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @MockBean
+    private ProductServiceClient productServiceClient;
+
+    @BeforeEach
+    void setUp() {
+        orderRepository.deleteAll();
+        when(productServiceClient.getProductsByIds(anyList()))
+                .thenReturn(List.of(new ProductResponseDTO(1L, "Laptop", new BigDecimal("100.00"))));
+        when(productServiceClient.holdStock(any())).thenReturn(new BatchReservationResultDTO(true, List.of()));
+    }
+
+    @Test
+    void placedOrdersAndStatusChanges_shouldBeWrittenThroughToTheCachedFirstPage() {
+        // Given: a cached first page
+        OrderDTO first = placeOrder("user-1");
+        firstPage("user-1", 3);
+
+        // When
+        OrderDTO second = placeOrder("user-1");
+        orderService.updateOrderStatus(first.getId(), "SHIPPED");
+        double hitsBefore = lookups("hit");
+        OrderPageDTO page = firstPage("user-1", 3);
+
+        // Then: served from the cache, matching what the database holds
+        assertThat(lookups("hit")).isEqualTo(hitsBefore + 1);
+        assertThat(page.getOrders()).extracting(OrderDTO::getId).containsExactly(second.getId(), first.getId());
+        assertThat(page.getOrders()).extracting(OrderDTO::getStatus).containsExactly("PENDING", "SHIPPED");
+        assertThat(page.getOrders()).extracting(OrderDTO::getId, OrderDTO::getStatus, OrderDTO::getVersion)
+                .containsExactlyElementsOf(orderService.getOrdersPageByUser("user-1", null, 3).getOrders().stream()
+                        .map(order -> tuple(order.getId(), order.getStatus(), order.getVersion())).toList());
+    }
+
+    @Test
+    void firstPage_shouldKeepOnlyTheNewestOrdersAndContinueWhereTheDatabaseWould() {
+        // Given
+        for (int i = 0; i < 4; i++) {
+            placeOrder("user-1");
+        }
+        firstPage("user-1", 3);
+        placeOrder("user-1");
+
+        // When
+        OrderPageDTO cached = firstPage("user-1", 2);
+        OrderPageDTO uncached = orderService.getOrdersPageByUser("user-1", null, 2);
+
+        // Then
+        assertThat(cached.getOrders()).extracting(OrderDTO::getId)
+                .containsExactlyElementsOf(uncached.getOrders().stream().map(OrderDTO::getId).toList());
+        assertThat(cached.getNextPageToken()).isEqualTo(uncached.getNextPageToken());
+    }
+
+    @Test
+    void bulkStatusChange_shouldMakeTheCachedPageStaleSoItIsReloaded() {
+        // Given
+        OrderDTO order = placeOrder("user-1");
+        firstPage("user-1", 3);
+
+        // When
+        orderService.transitionOrderStatuses(List.of(
+                new OrderStatusTransitionDTO(order.getId(), order.getVersion(), "CONFIRMED")));
+        double staleBefore = lookups("stale");
+        OrderPageDTO page = firstPage("user-1", 3);
+
+        // Then
+        assertThat(lookups("stale")).isEqualTo(staleBefore + 1);
+        assertThat(page.getOrders()).extracting(OrderDTO::getStatus).containsExactly("CONFIRMED");
+    }
+
+    private OrderDTO placeOrder(String userId) {
+        return orderService.createOrder(new OrderRequestDTO(List.of(new OrderItemRequestDTO(1L, 1))), userId);
+    }
+
+    // As GET /orders/my-orders reads it
+    private OrderPageDTO firstPage(String userId, int pageSize) {
+        return orderService.getOrdersPageByUser(userId, null, pageSize, orderService.getOrdersETagByUser(userId));
+    }
+
+    private double lookups(String outcome) {
+        return meterRegistry.counter("order.history-cache.lookups", "outcome", outcome).count();
+    }
+}
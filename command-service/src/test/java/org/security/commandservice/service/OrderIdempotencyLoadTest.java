@@ -0,0 +1,131 @@
+package org.security.commandservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.security.commandservice.dto.OrderDTO;
+import org.security.commandservice.dto.OrderItemRequestDTO;
+import org.security.commandservice.dto.OrderRequestDTO;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// POST /orders load in which 30% of the requests are sent again with the same Idempotency-Key:
+// half of the retries while the first request is still running (a client timeout), half after
+// it has answered (a lost response). Every request places its order once, and every retry is
+// answered with the order of its first request. Placing an order is simulated with 5 ms of
+// latency, so the figures show the store's overhead rather than the database's.
+// Run with: mvn test -Dtest=OrderIdempotencyLoadTest -Dbenchmark=true
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class OrderIdempotencyLoadTest {
+
+    private static final int REQUESTS = 50_000;
+    private static final double RETRY_RATE = 0.3;
+    private static final int CLIENTS = 200;
+    private static final long PLACEMENT_MILLIS = 5;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final OrderIdempotencyStore store = new OrderIdempotencyStore(meterRegistry, 600_000, 1_000_000, 30_000);
+
+    private final AtomicLong orderIds = new AtomicLong();
+    private final Map<Long, OrderDTO> placedOrders = new ConcurrentHashMap<>();
+
+    @Test
+    void retriedRequests_ShouldNeverPlaceASecondOrder() throws Exception {
+        // Given
+        Random random = new Random(19);
+        boolean[] retried = new boolean[REQUESTS];
+        boolean[] retriedWhileRunning = new boolean[REQUESTS];
+        for (int i = 0; i < REQUESTS; i++) {
+            retried[i] = random.nextDouble() < RETRY_RATE;
+            retriedWhileRunning[i] = retried[i] && random.nextBoolean();
+        }
+        long[] latencyNanos = new long[REQUESTS];
+        Semaphore clients = new Semaphore(CLIENTS);
+
+        // When
+        long start = System.nanoTime();
+        List<Future<Boolean>> outcomes = new ArrayList<>(REQUESTS);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < REQUESTS; i++) {
+                int request = i;
+                clients.acquire();
+                outcomes.add(executor.submit(() -> {
+                    try {
+                        return send(request, retried[request], retriedWhileRunning[request], latencyNanos);
+                    } finally {
+                        clients.release();
+                    }
+                }));
+            }
+        }
+        double elapsedSeconds = (System.nanoTime() - start) / 1_000_000_000.0;
+
+        // Then
+        long retries = 0;
+        for (int i = 0; i < REQUESTS; i++) {
+            assertThat(outcomes.get(i).resultNow()).as("retry of request %d got its order", i).isTrue();
+            retries += retried[i] ? 1 : 0;
+        }
+        Arrays.sort(latencyNanos);
+        System.out.printf("%d requests, %d retried: %d orders placed, %d replays, %.0f requests/s, p50 %.1f ms, p99 %.1f ms%n",
+                REQUESTS, retries, placedOrders.size(),
+                (long) meterRegistry.counter("order.idempotency.replays").count(),
+                (REQUESTS + retries) / elapsedSeconds,
+                latencyNanos[REQUESTS / 2] / 1_000_000.0, latencyNanos[REQUESTS * 99 / 100] / 1_000_000.0);
+        assertThat(placedOrders).hasSize(REQUESTS);
+        assertThat(meterRegistry.counter("order.idempotency.replays").count()).isEqualTo(retries);
+    }
+
+    // Returns whether the retry, if any, was answered with the order of the first request
+    private boolean send(int request, boolean retried, boolean retriedWhileRunning, long[] latencyNanos)
+            throws Exception {
+        String key = "key-" + request;
+        OrderRequestDTO body = new OrderRequestDTO(List.of(new OrderItemRequestDTO((long) request % 100 + 1, 1)));
+        long start = System.nanoTime();
+        if (retriedWhileRunning) {
+            CompletableFuture<OrderDTO> first = new CompletableFuture<>();
+            Thread.ofVirtual().start(() -> first.complete(place(key, body)));
+            Thread.sleep(1);
+            OrderDTO retry = place(key, body);
+            OrderDTO original = first.get();
+            latencyNanos[request] = System.nanoTime() - start;
+            return retry.getId().equals(original.getId());
+        }
+        OrderDTO original = place(key, body);
+        latencyNanos[request] = System.nanoTime() - start;
+        return !retried || place(key, body).getId().equals(original.getId());
+    }
+
+    private OrderDTO place(String key, OrderRequestDTO body) {
+        return store.placeOnce("load-test-user", key, body, placeOrder(), placedOrders::get);
+    }
+
+    private Supplier<OrderDTO> placeOrder() {
+        return () -> {
+            try {
+                Thread.sleep(PLACEMENT_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            OrderDTO order = new OrderDTO();
+            order.setId(orderIds.incrementAndGet());
+            order.setStatus("CONFIRMED");
+            placedOrders.put(order.getId(), order);
+            return order;
+        };
+    }
+}
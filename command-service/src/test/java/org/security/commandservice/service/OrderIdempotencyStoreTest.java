@@ -0,0 +1,129 @@
+package org.security.commandservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.security.commandservice.dto.OrderDTO;
+import org.security.commandservice.dto.OrderItemRequestDTO;
+import org.security.commandservice.dto.OrderRequestDTO;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OrderIdempotencyStoreTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final OrderIdempotencyStore store = new OrderIdempotencyStore(meterRegistry, 600_000, 1_000, 5_000);
+    private final OrderRequestDTO request = new OrderRequestDTO(List.of(new OrderItemRequestDTO(1L, 2)));
+    private final AtomicInteger placements = new AtomicInteger();
+
+    @Test
+    void placeOnce_RepeatedKey_ShouldReturnFirstOrderWithoutPlacingAgain() {
+        // When
+        OrderDTO first = store.placeOnce("user-1", "key-1", request, placeOrder(42L), this::loadOrder);
+        OrderDTO replayed = store.placeOnce("user-1", "key-1", request, placeOrder(43L), this::loadOrder);
+
+        // Then
+        assertThat(first.getId()).isEqualTo(42L);
+        assertThat(replayed.getId()).isEqualTo(42L);
+        assertThat(replayed.getStatus()).isEqualTo("LOADED");
+        assertThat(placements).hasValue(1);
+        assertThat(meterRegistry.counter("order.idempotency.replays").count()).isEqualTo(1);
+    }
+
+    @Test
+    void placeOnce_SameKeyOfAnotherUser_ShouldPlaceSeparateOrder() {
+        // When
+        store.placeOnce("user-1", "key-1", request, placeOrder(42L), this::loadOrder);
+        OrderDTO other = store.placeOnce("user-2", "key-1", request, placeOrder(43L), this::loadOrder);
+
+        // Then
+        assertThat(other.getId()).isEqualTo(43L);
+        assertThat(placements).hasValue(2);
+    }
+
+    @Test
+    void placeOnce_KeyReusedForAnotherRequest_ShouldBeRejected() {
+        // Given
+        store.placeOnce("user-1", "key-1", request, placeOrder(42L), this::loadOrder);
+        OrderRequestDTO otherRequest = new OrderRequestDTO(List.of(new OrderItemRequestDTO(1L, 3)));
+
+        // When & Then
+        assertThatThrownBy(() -> store.placeOnce("user-1", "key-1", otherRequest, placeOrder(43L), this::loadOrder))
+                .isInstanceOf(OrderIdempotencyStore.KeyReusedException.class);
+        assertThat(placements).hasValue(1);
+    }
+
+    @Test
+    void placeOnce_FailedRequest_ShouldBeForgottenSoItCanBeRetried() {
+        // Given
+        Supplier<OrderDTO> failing = () -> {
+            throw new RuntimeException("Insufficient stock for product: Laptop");
+        };
+
+        // When
+        assertThatThrownBy(() -> store.placeOnce("user-1", "key-1", request, failing, this::loadOrder))
+                .hasMessageContaining("Insufficient stock");
+        OrderDTO retried = store.placeOnce("user-1", "key-1", request, placeOrder(42L), this::loadOrder);
+
+        // Then
+        assertThat(retried.getId()).isEqualTo(42L);
+        assertThat(placements).hasValue(1);
+    }
+
+    @Test
+    void placeOnce_RepeatWhileFirstRequestIsRunning_ShouldWaitForItsOrder() throws Exception {
+        // Given: the first request is still placing its order
+        CountDownLatch placing = new CountDownLatch(1);
+        CountDownLatch finishPlacing = new CountDownLatch(1);
+        Supplier<OrderDTO> slowPlacement = () -> {
+            placing.countDown();
+            await(finishPlacing);
+            return placeOrder(42L).get();
+        };
+        CompletableFuture<OrderDTO> first = CompletableFuture.supplyAsync(
+                () -> store.placeOnce("user-1", "key-1", request, slowPlacement, this::loadOrder));
+        assertThat(placing.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // When
+        CompletableFuture<OrderDTO> repeat = CompletableFuture.supplyAsync(
+                () -> store.placeOnce("user-1", "key-1", request, placeOrder(43L), this::loadOrder));
+        finishPlacing.countDown();
+
+        // Then
+        assertThat(first.get(5, TimeUnit.SECONDS).getId()).isEqualTo(42L);
+        assertThat(repeat.get(5, TimeUnit.SECONDS).getId()).isEqualTo(42L);
+        assertThat(placements).hasValue(1);
+    }
+
+    private Supplier<OrderDTO> placeOrder(Long id) {
+        return () -> {
+            placements.incrementAndGet();
+            OrderDTO order = new OrderDTO();
+            order.setId(id);
+            order.setStatus("CONFIRMED");
+            return order;
+        };
+    }
+
+    private OrderDTO loadOrder(Long id) {
+        OrderDTO order = new OrderDTO();
+        order.setId(id);
+        order.setStatus("LOADED");
+        return order;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package org.security.commandservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.security.commandservice.model.OrderOutbox;
+import org.security.commandservice.repository.OrderOutboxRepository;
+import org.springframework.data.domain.Pageable;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OrderIntakeQueueTest {
+
+    @Mock
+    private OrderOutboxRepository orderOutboxRepository;
+
+    private OrderIntakeQueue orderIntakeQueue;
+
+    @BeforeEach
+    void setUp() {
+        orderIntakeQueue = new OrderIntakeQueue(orderOutboxRepository, new SimpleMeterRegistry(), true, 1000, 60_000,
+                1000, 8000);
+    }
+
+    @Test
+    void requeue_shouldDelayTheNextAttemptExponentially() {
+        // Given: an entry that has already failed twice
+        OrderOutbox entry = new OrderOutbox(1L);
+        entry.setId(7L);
+        entry.setAttempts(2);
+
+        // When
+        LocalDateTime before = LocalDateTime.now();
+        orderIntakeQueue.requeue(entry);
+
+        // Then: due after 2 to 4 seconds (4 s with jitter down to half)
+        ArgumentCaptor<LocalDateTime> nextAttemptAt = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(orderOutboxRepository).requeue(eq(7L), nextAttemptAt.capture());
+        assertThat(nextAttemptAt.getValue()).isBetween(before.plusSeconds(2), LocalDateTime.now().plusSeconds(4));
+    }
+
+    @Test
+    void backoff_shouldBeCappedAtTheMaximum() {
+        for (int attempts = 0; attempts < 40; attempts++) {
+            assertThat(orderIntakeQueue.backoff(attempts)).isLessThanOrEqualTo(Duration.ofMillis(8000));
+        }
+        assertThat(orderIntakeQueue.backoff(30)).isGreaterThanOrEqualTo(Duration.ofMillis(4000));
+    }
+
+    @Test
+    void claimNext_shouldOnlyClaimEntriesThatAreDue() {
+        // Given
+        OrderOutbox due = new OrderOutbox(1L);
+        due.setId(3L);
+        when(orderOutboxRepository.findDue(any(LocalDateTime.class), any(Pageable.class))).thenReturn(List.of(due));
+        when(orderOutboxRepository.claim(eq(3L), any(LocalDateTime.class))).thenReturn(1);
+
+        // When
+        List<OrderOutbox> claimed = orderIntakeQueue.claimNext(4);
+
+        // Then
+        assertThat(claimed).containsExactly(due);
+        verify(orderOutboxRepository).findDue(any(LocalDateTime.class), eq(Pageable.ofSize(4)));
+    }
+}
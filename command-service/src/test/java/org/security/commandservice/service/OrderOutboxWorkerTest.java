@@ -0,0 +1,92 @@
+package org.security.commandservice.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.security.commandservice.model.OrderOutbox;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OrderOutboxWorkerTest {
+
+    private static final int WORKERS = 2;
+    private static final int MAX_ATTEMPTS = 3;
+
+    @Mock
+    private OrderService orderService;
+
+    @Mock
+    private OrderIntakeQueue orderIntakeQueue;
+
+    private OrderOutboxWorker worker;
+
+    @BeforeEach
+    void setUp() {
+        worker = new OrderOutboxWorker(orderService, orderIntakeQueue, WORKERS, MAX_ATTEMPTS);
+    }
+
+    @Test
+    void poll_shouldClaimNoMoreEntriesThanIdleWorkers() {
+        // Given
+        OrderOutbox entry = new OrderOutbox(1L);
+        when(orderIntakeQueue.claimNext(WORKERS)).thenReturn(List.of(entry));
+        when(orderService.processPendingOrder(entry, false)).thenReturn(true);
+
+        // When
+        worker.poll();
+
+        // Then
+        verify(orderIntakeQueue).requeueStale();
+        verify(orderService, timeout(5000)).processPendingOrder(entry, false);
+        verify(orderIntakeQueue, never()).requeue(any());
+        worker.shutdown();
+    }
+
+    @Test
+    void process_shouldRequeueEntry_whenOrderServiceAsksForRetry() {
+        // Given
+        OrderOutbox entry = new OrderOutbox(1L);
+        when(orderService.processPendingOrder(entry, false)).thenReturn(false);
+
+        // When
+        worker.process(entry);
+
+        // Then
+        verify(orderIntakeQueue).requeue(entry);
+    }
+
+    @Test
+    void process_shouldRequeueEntry_whenProcessingFails() {
+        // Given
+        OrderOutbox entry = new OrderOutbox(1L);
+        when(orderService.processPendingOrder(any(), anyBoolean())).thenThrow(new RuntimeException("Database unavailable"));
+
+        // When
+        worker.process(entry);
+
+        // Then
+        verify(orderIntakeQueue).requeue(entry);
+    }
+
+    @Test
+    void process_shouldFlagLastAttempt_whenMaxAttemptsIsReached() {
+        // Given
+        OrderOutbox entry = new OrderOutbox(1L);
+        entry.setAttempts(MAX_ATTEMPTS - 1);
+        when(orderService.processPendingOrder(entry, true)).thenReturn(true);
+
+        // When
+        worker.process(entry);
+
+        // Then
+        verify(orderService).processPendingOrder(entry, true);
+        verify(orderIntakeQueue, never()).requeue(any());
+    }
+}
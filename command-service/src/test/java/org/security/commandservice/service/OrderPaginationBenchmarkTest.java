@@ -0,0 +1,109 @@
+package org.security.commandservice.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.security.commandservice.client.ProductServiceClient;
+import org.security.commandservice.repository.OrderRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Deep-page latency of the keyset query for /orders/my-orders, with only the old
+// idx_orders_user_id index and with the composite (user_id, order_date DESC, id DESC) one.
+// Run with: mvn test -Dtest=OrderPaginationBenchmarkTest -Dbenchmark=true
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+        "spring.datasource.url=jdbc:h2:mem:order-pagination-benchmark;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.sql.init.mode=never",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "eureka.client.enabled=false"
+})
+class OrderPaginationBenchmarkTest {
+
+    private static final String HEAVY_USER = "heavy-user";
+    private static final int HEAVY_USER_ORDERS = 200_000;
+    private static final int OTHER_ORDERS = 50_000;
+    private static final int DEEP_PAGE_OFFSET = 190_000;
+    private static final int PAGE_SIZE = 50;
+    private static final int RUNS = 50;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @MockBean
+    private ProductServiceClient productServiceClient;
+
+    @Test
+    void deepPageLatency_withAndWithoutCompositeIndex() {
+        // Given
+        insertOrders(HEAVY_USER, HEAVY_USER_ORDERS);
+        insertOrders("other-user", OTHER_ORDERS);
+        jdbcTemplate.execute("CREATE INDEX idx_orders_user_id ON orders(user_id)");
+
+        Map<String, Object> cursor = jdbcTemplate.queryForMap(
+                "SELECT order_date, id FROM orders WHERE user_id = ? ORDER BY order_date DESC, id DESC " +
+                "OFFSET ? ROWS FETCH NEXT 1 ROWS ONLY", HEAVY_USER, DEEP_PAGE_OFFSET);
+        LocalDateTime orderDate = ((Timestamp) cursor.get("ORDER_DATE")).toLocalDateTime();
+        Long id = ((Number) cursor.get("ID")).longValue();
+        Supplier<List<Long>> deepPage = () -> orderRepository.findPageIdsByUserIdAfter(
+                HEAVY_USER, orderDate, id, PageRequest.ofSize(PAGE_SIZE + 1));
+        Supplier<List<Long>> offsetPage = () -> jdbcTemplate.queryForList(
+                "SELECT id FROM orders WHERE user_id = ? ORDER BY order_date DESC, id DESC " +
+                "OFFSET ? ROWS FETCH NEXT ? ROWS ONLY", Long.class, HEAVY_USER, DEEP_PAGE_OFFSET + 1, PAGE_SIZE + 1);
+
+        // When
+        double keysetWithoutIndex = averageMillis(deepPage);
+        double offsetWithoutIndex = averageMillis(offsetPage);
+        jdbcTemplate.execute("CREATE INDEX idx_orders_user_id_order_date_id ON orders(user_id, order_date DESC, id DESC)");
+        double keysetWithIndex = averageMillis(deepPage);
+        double offsetWithIndex = averageMillis(offsetPage);
+
+        // Then
+        System.out.printf("Deep page (offset %d, size %d) average over %d runs:%n", DEEP_PAGE_OFFSET, PAGE_SIZE, RUNS);
+        System.out.printf("  keyset, idx_orders_user_id only:  %.2f ms%n", keysetWithoutIndex);
+        System.out.printf("  keyset, composite index:          %.2f ms%n", keysetWithIndex);
+        System.out.printf("  OFFSET, idx_orders_user_id only:  %.2f ms%n", offsetWithoutIndex);
+        System.out.printf("  OFFSET, composite index:          %.2f ms%n", offsetWithIndex);
+        assertThat(deepPage.get()).isEqualTo(offsetPage.get());
+    }
+
+    private void insertOrders(String userId, int count) {
+        LocalDateTime start = LocalDateTime.now().minusYears(1);
+        List<Object[]> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            // Every tenth order shares its timestamp with the previous one to exercise the id tie-break
+            rows.add(new Object[]{Timestamp.valueOf(start.plusSeconds(i - i % 10 / 9)), userId});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO orders (order_date, status, total_amount, user_id, version) " +
+                "VALUES (?, 'CONFIRMED', 10, ?, 0)", rows);
+    }
+
+    private double averageMillis(Supplier<List<Long>> query) {
+        for (int i = 0; i < 5; i++) {
+            query.get();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < RUNS; i++) {
+            assertThat(query.get()).hasSize(PAGE_SIZE + 1);
+        }
+        return (System.nanoTime() - start) / 1_000_000.0 / RUNS;
+    }
+}
@@ -0,0 +1,81 @@
+package org.security.commandservice.service;
+
+import org.junit.jupiter.api.Test;
+import org.security.commandservice.client.ProductServiceClient;
+import org.security.commandservice.dto.BatchReservationResultDTO;
+import org.security.commandservice.dto.OrderDTO;
+import org.security.commandservice.dto.OrderItemRequestDTO;
+import org.security.commandservice.dto.OrderRequestDTO;
+import org.security.commandservice.dto.ProductResponseDTO;
+import org.security.commandservice.repository.OrderRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+        "spring.datasource.url=jdbc:h2:mem:order-pool-test;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.datasource.hikari.maximum-pool-size=2",
+        "spring.datasource.hikari.connection-timeout=1000",
+        "spring.sql.init.mode=never",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "eureka.client.enabled=false"
+})
+class OrderServiceConnectionPoolTest {
+
+    private static final int CONCURRENT_ORDERS = 50;
+    private static final long PRODUCT_SERVICE_DELAY_MS = 300;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @MockBean
+    private ProductServiceClient productServiceClient;
+
+    @Test
+    void createOrder_shouldNotHoldConnectionsWhileProductServiceIsSlow() throws Exception {
+        // Given: every remote call takes longer than the pool's connection timeout
+        when(productServiceClient.getProductsByIds(anyList())).thenAnswer(invocation -> {
+            Thread.sleep(PRODUCT_SERVICE_DELAY_MS);
+            return List.of(new ProductResponseDTO(1L, "Test Product", BigDecimal.valueOf(99.99)));
+        });
+        when(productServiceClient.holdStock(any())).thenAnswer(invocation -> {
+            Thread.sleep(PRODUCT_SERVICE_DELAY_MS);
+            return new BatchReservationResultDTO(true, List.of());
+        });
+        OrderRequestDTO orderRequest = new OrderRequestDTO(List.of(new OrderItemRequestDTO(1L, 1)));
+
+        // When
+        ExecutorService executor = Executors.newFixedThreadPool(CONCURRENT_ORDERS);
+        List<Future<OrderDTO>> results = new ArrayList<>();
+        for (int i = 0; i < CONCURRENT_ORDERS; i++) {
+            String userId = "pool-user-" + i;
+            results.add(executor.submit(() -> orderService.createOrder(orderRequest, userId)));
+        }
+
+        // Then: with 2 connections shared by 50 orders, holding one across the remote calls would time out
+        for (Future<OrderDTO> result : results) {
+            assertThat(result.get(30, TimeUnit.SECONDS).getId()).isNotNull();
+        }
+        executor.shutdown();
+        assertThat(orderRepository.count()).isEqualTo(CONCURRENT_ORDERS);
+    }
+}
@@ -0,0 +1,160 @@
+package org.security.commandservice.service;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.security.commandservice.client.ProductServiceClient;
+import org.security.commandservice.dto.OrderDTO;
+import org.security.commandservice.dto.OrderStatusTransitionDTO;
+import org.security.commandservice.dto.OrderStatusTransitionResultDTO;
+import org.security.commandservice.model.Order;
+import org.security.commandservice.model.OrderItem;
+import org.security.commandservice.repository.OrderRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+        "spring.datasource.url=jdbc:h2:mem:order-query-count-test;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.sql.init.mode=never",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "eureka.client.enabled=false"
+})
+class OrderServiceQueryCountTest {
+
+    private static final int ORDERS_PER_USER = 20;
+    private static final int ITEMS_PER_ORDER = 3;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @MockBean
+    private ProductServiceClient productServiceClient;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        orderRepository.deleteAll();
+        for (int i = 0; i < ORDERS_PER_USER; i++) {
+            orderRepository.save(order("listing-user", i));
+            orderRepository.save(order("other-user", i));
+        }
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void getOrdersPageByUser_shouldLoadPageIdsThenOrdersAndItemsInOneStatement() {
+        // When
+        List<OrderDTO> orders = orderService.getOrdersPageByUser("listing-user", null, ORDERS_PER_USER).getOrders();
+
+        // Then
+        assertThat(orders).hasSize(ORDERS_PER_USER);
+        assertThat(orders).allSatisfy(order -> assertThat(order.getOrderItems()).hasSize(ITEMS_PER_ORDER));
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    void getAllOrdersPage_shouldLoadPageIdsThenOrdersAndItemsInOneStatement() {
+        // When
+        List<OrderDTO> orders = orderService.getAllOrdersPage(null, 2 * ORDERS_PER_USER).getOrders();
+
+        // Then
+        assertThat(orders).hasSize(2 * ORDERS_PER_USER);
+        assertThat(orders).allSatisfy(order -> assertThat(order.getOrderItems()).hasSize(ITEMS_PER_ORDER));
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    void transitionOrderStatuses_shouldUpdateAllOrdersInOneStatement() {
+        // Given
+        List<OrderStatusTransitionDTO> transitions = orderRepository.findByUserId("listing-user").stream()
+                .map(order -> new OrderStatusTransitionDTO(order.getId(), order.getVersion(), "SHIPPED"))
+                .collect(Collectors.toList());
+        statistics.clear();
+
+        // When
+        List<OrderStatusTransitionResultDTO> results = orderService.transitionOrderStatuses(transitions);
+
+        // Then
+        assertThat(results).hasSize(ORDERS_PER_USER);
+        assertThat(results).allSatisfy(result -> {
+            assertThat(result.getOutcome()).isEqualTo(OrderStatusTransitionResultDTO.Outcome.UPDATED);
+            assertThat(result.getVersion()).isEqualTo(1L);
+        });
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(orderRepository.findByUserId("listing-user"))
+                .allSatisfy(order -> assertThat(order.getStatus()).isEqualTo(Order.OrderStatus.SHIPPED));
+    }
+
+    @Test
+    void transitionOrderStatuses_shouldReportWhyTransitionsDidNotApply() {
+        // Given
+        List<Order> orders = orderRepository.findByUserId("listing-user");
+        Long shipped = orders.get(0).getId();
+        Long staleVersion = orders.get(1).getId();
+        Long notAllowed = orders.get(2).getId();
+        List<OrderStatusTransitionDTO> transitions = List.of(
+                new OrderStatusTransitionDTO(shipped, 0L, "shipped"),
+                new OrderStatusTransitionDTO(staleVersion, 7L, "SHIPPED"),
+                new OrderStatusTransitionDTO(notAllowed, 0L, "DELIVERED"),
+                new OrderStatusTransitionDTO(-1L, 0L, "SHIPPED"),
+                new OrderStatusTransitionDTO(orders.get(3).getId(), 0L, "LOST"));
+
+        // When
+        List<OrderStatusTransitionResultDTO> results = orderService.transitionOrderStatuses(transitions);
+
+        // Then: outcomes in request order, with the current status and version of each order
+        assertThat(results).extracting(OrderStatusTransitionResultDTO::getOutcome).containsExactly(
+                OrderStatusTransitionResultDTO.Outcome.UPDATED,
+                OrderStatusTransitionResultDTO.Outcome.VERSION_CONFLICT,
+                OrderStatusTransitionResultDTO.Outcome.TRANSITION_NOT_ALLOWED,
+                OrderStatusTransitionResultDTO.Outcome.NOT_FOUND,
+                OrderStatusTransitionResultDTO.Outcome.INVALID_STATUS);
+        assertThat(results.get(1).getVersion()).isEqualTo(0L);
+        assertThat(results.get(2).getStatus()).isEqualTo("CONFIRMED");
+        assertThat(orderRepository.findById(notAllowed).orElseThrow().getStatus()).isEqualTo(Order.OrderStatus.CONFIRMED);
+    }
+
+    private Order order(String userId, int index) {
+        Order order = new Order();
+        order.setOrderDate(LocalDateTime.now().minusMinutes(index));
+        order.setStatus(Order.OrderStatus.CONFIRMED);
+        order.setTotalAmount(BigDecimal.valueOf(30));
+        order.setUserId(userId);
+
+        List<OrderItem> items = new ArrayList<>();
+        for (int i = 0; i < ITEMS_PER_ORDER; i++) {
+            OrderItem item = new OrderItem();
+            item.setOrder(order);
+            item.setProductId((long) i + 1);
+            item.setProductName("Product " + (i + 1));
+            item.setQuantity(1);
+            item.setPrice(BigDecimal.TEN);
+            items.add(item);
+        }
+        order.setOrderItems(items);
+        return order;
+    }
+}
@@ -7,25 +7,39 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.security.commandservice.client.ProductServiceClient;
+import org.security.commandservice.dto.BatchReservationResultDTO;
 import org.security.commandservice.dto.OrderDTO;
 import org.security.commandservice.dto.OrderItemDTO;
+import org.security.commandservice.dto.OrderItemRequestDTO;
+import org.security.commandservice.dto.OrderPageDTO;
 import org.security.commandservice.dto.OrderRequestDTO;
 import org.security.commandservice.dto.ProductResponseDTO;
+import org.security.commandservice.dto.StockHoldRequestDTO;
+import org.security.commandservice.dto.StockReservationDTO;
 import org.security.commandservice.model.Order;
 import org.security.commandservice.model.OrderItem;
+import org.security.commandservice.model.OrderOutbox;
 import org.security.commandservice.repository.OrderRepository;
 import org.security.commandservice.repository.OrderItemRepository;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
@@ -42,6 +56,27 @@ class OrderServiceTest {
     @Mock
     private ProductServiceClient productServiceClient;
 
+    @Mock
+    private HedgedProductReads productReads;
+
+    @Mock
+    private ProductFanOut productFanOut;
+
+    @Mock
+    private ProductReplica productReplica;
+
+    @Mock
+    private OrderIntakeQueue orderIntakeQueue;
+
+    @Mock
+    private ProductSalesRollup productSalesRollup;
+
+    @Mock
+    private OrderHistoryCache orderHistoryCache;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
     @InjectMocks
     private OrderService orderService;
 
@@ -51,6 +86,15 @@ class OrderServiceTest {
 
     @BeforeEach
     void setUp() {
+        lenient().when(productReads.read(anyString(), any()))
+            .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(1).get());
+        lenient().when(transactionTemplate.execute(any()))
+            .thenAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        lenient().doAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+
         testProduct = new ProductResponseDTO();
         testProduct.setId(1L);
         testProduct.setName("Test Product");
@@ -73,33 +117,48 @@ class OrderServiceTest {
     }
 
     @Test
-    void getAllOrders_shouldReturnAllOrders() {
-        // Given
-        when(orderRepository.findAll()).thenReturn(Arrays.asList(testOrder));
+    void getOrdersPageByUser_shouldReturnTokenForNextPage_whenMoreOrdersExist() {
+        // Given: one row more than the page size means there is a next page
+        when(orderRepository.findFirstPageIdsByUserId("test-user", PageRequest.ofSize(2))).thenReturn(List.of(1L, 2L));
+        when(orderRepository.findAllWithItemsByIdIn(List.of(1L))).thenReturn(List.of(testOrder));
 
         // When
-        List<OrderDTO> result = orderService.getAllOrders();
+        OrderPageDTO firstPage = orderService.getOrdersPageByUser("test-user", null, 1);
 
         // Then
-        assertThat(result).hasSize(1);
-        assertThat(result.get(0).getId()).isEqualTo(1L);
-        assertThat(result.get(0).getUserId()).isEqualTo("test-user");
-        verify(orderRepository).findAll();
+        assertThat(firstPage.getOrders()).extracting(OrderDTO::getId).containsExactly(1L);
+        assertThat(firstPage.getNextPageToken()).isNotNull();
+
+        // And: the token continues strictly after the last order of the page
+        when(orderRepository.findPageIdsByUserIdAfter("test-user", testOrder.getOrderDate(), 1L, PageRequest.ofSize(2)))
+            .thenReturn(List.of());
+        OrderPageDTO secondPage = orderService.getOrdersPageByUser("test-user", firstPage.getNextPageToken(), 1);
+        assertThat(secondPage.getOrders()).isEmpty();
+        assertThat(secondPage.getNextPageToken()).isNull();
     }
 
     @Test
-    void getOrdersByUser_shouldReturnUserOrders() {
+    void getAllOrdersPage_shouldKeepKeysetOrder_andOmitTokenOnLastPage() {
         // Given
-        when(orderRepository.findByUserIdOrderByOrderDateDesc("test-user"))
-            .thenReturn(Arrays.asList(testOrder));
+        Order olderOrder = new Order(2L, testOrder.getOrderDate().minusDays(1), Order.OrderStatus.CONFIRMED,
+            BigDecimal.TEN, "other-user", List.of(), 0L);
+        when(orderRepository.findFirstPageIds(PageRequest.ofSize(3))).thenReturn(List.of(1L, 2L));
+        when(orderRepository.findAllWithItemsByIdIn(List.of(1L, 2L))).thenReturn(List.of(olderOrder, testOrder));
 
         // When
-        List<OrderDTO> result = orderService.getOrdersByUser("test-user");
+        OrderPageDTO page = orderService.getAllOrdersPage(null, 2);
 
         // Then
-        assertThat(result).hasSize(1);
-        assertThat(result.get(0).getUserId()).isEqualTo("test-user");
-        verify(orderRepository).findByUserIdOrderByOrderDateDesc("test-user");
+        assertThat(page.getOrders()).extracting(OrderDTO::getId).containsExactly(1L, 2L);
+        assertThat(page.getNextPageToken()).isNull();
+    }
+
+    @Test
+    void getOrdersPageByUser_shouldThrowException_whenTokenIsInvalid() {
+        // When & Then
+        assertThatThrownBy(() -> orderService.getOrdersPageByUser("test-user", "not-a-token", 10))
+            .isInstanceOf(RuntimeException.class)
+            .hasMessage("Invalid page token: not-a-token");
     }
 
     @Test
@@ -130,15 +189,16 @@ class OrderServiceTest {
     @Test
     void createOrder_shouldCreateOrderSuccessfully() {
         // Given
-        OrderRequestDTO.OrderItemRequestDTO itemRequest = new OrderRequestDTO.OrderItemRequestDTO();
+        OrderItemRequestDTO itemRequest = new OrderItemRequestDTO();
         itemRequest.setProductId(1L);
         itemRequest.setQuantity(2);
 
         OrderRequestDTO orderRequest = new OrderRequestDTO();
         orderRequest.setItems(Arrays.asList(itemRequest));
 
-        when(productServiceClient.getProductById(1L)).thenReturn(testProduct);
-        when(productServiceClient.checkAndReserveStock(1L, 2)).thenReturn(true);
+        when(productServiceClient.getProductsByIds(List.of(1L))).thenReturn(List.of(testProduct));
+        when(productServiceClient.holdStock(any()))
+            .thenReturn(new BatchReservationResultDTO(true, List.of()));
         when(orderRepository.save(any(Order.class))).thenReturn(testOrder);
 
         // When
@@ -149,22 +209,74 @@ class OrderServiceTest {
         assertThat(result.getUserId()).isEqualTo("test-user");
         assertThat(result.getStatus()).isEqualTo("PENDING");
         assertThat(result.getTotalAmount()).isEqualTo(BigDecimal.valueOf(199.98));
-        verify(productServiceClient).getProductById(1L);
-        verify(productServiceClient).checkAndReserveStock(1L, 2);
+        verify(productServiceClient).getProductsByIds(List.of(1L));
+        verify(productServiceClient, never()).getProductById(anyLong());
+        verify(productServiceClient).holdStock(argThat(request -> request.getItems().equals(List.of(new StockReservationDTO(1L, 2)))));
+        verify(productServiceClient, never()).checkAndReserveStock(anyLong(), anyInt(), anyString());
         verify(orderRepository).save(any(Order.class));
+        verify(productServiceClient).confirmHolds(anyString());
+    }
+
+    @Test
+    void createOrder_shouldResolveAndHoldLargeCartInTwoRoundTripsBeforeConfirming() {
+        // Given
+        List<OrderItemRequestDTO> items = new ArrayList<>();
+        List<ProductResponseDTO> products = new ArrayList<>();
+        for (long productId = 1; productId <= 50; productId++) {
+            items.add(new OrderItemRequestDTO(productId, 1));
+            products.add(new ProductResponseDTO(productId, "Product " + productId, BigDecimal.TEN));
+        }
+        OrderRequestDTO orderRequest = new OrderRequestDTO(items);
+
+        when(productServiceClient.getProductsByIds(anyList())).thenReturn(products);
+        when(productServiceClient.holdStock(any()))
+            .thenReturn(new BatchReservationResultDTO(true, List.of()));
+        when(orderRepository.save(any(Order.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // When
+        OrderDTO result = orderService.createOrder(orderRequest, "test-user");
+
+        // Then
+        assertThat(result.getOrderItems()).hasSize(50);
+        assertThat(result.getTotalAmount()).isEqualByComparingTo(BigDecimal.valueOf(500));
+        verify(productServiceClient, times(1)).getProductsByIds(anyList());
+        verify(productServiceClient, times(1)).holdStock(any());
+        verify(productServiceClient, times(1)).confirmHolds(anyString());
+        verifyNoMoreInteractions(productServiceClient);
+    }
+
+    @Test
+    void createOrder_shouldTakePricesFromFreshReplica_andLookUpOnlyUnknownProducts() {
+        // Given
+        ProductResponseDTO unknownProduct = new ProductResponseDTO(2L, "New Product", BigDecimal.valueOf(5));
+        OrderRequestDTO orderRequest = new OrderRequestDTO(List.of(new OrderItemRequestDTO(1L, 2), new OrderItemRequestDTO(2L, 1)));
+        when(productReplica.findFresh(1L)).thenReturn(Optional.of(testProduct));
+        when(productReplica.findFresh(2L)).thenReturn(Optional.empty());
+        when(productServiceClient.getProductsByIds(List.of(2L))).thenReturn(List.of(unknownProduct));
+        when(productServiceClient.holdStock(any())).thenReturn(new BatchReservationResultDTO(true, List.of()));
+        when(orderRepository.save(any(Order.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // When
+        OrderDTO result = orderService.createOrder(orderRequest, "test-user");
+
+        // Then
+        assertThat(result.getOrderItems()).extracting(OrderItemDTO::getProductName)
+            .containsExactly("Test Product", "New Product");
+        verify(productServiceClient).getProductsByIds(List.of(2L));
+        verify(productServiceClient, never()).getProductById(anyLong());
     }
 
     @Test
     void createOrder_shouldThrowException_whenProductNotFound() {
         // Given
-        OrderRequestDTO.OrderItemRequestDTO itemRequest = new OrderRequestDTO.OrderItemRequestDTO();
+        OrderItemRequestDTO itemRequest = new OrderItemRequestDTO();
         itemRequest.setProductId(1L);
         itemRequest.setQuantity(1);
 
         OrderRequestDTO orderRequest = new OrderRequestDTO();
         orderRequest.setItems(Arrays.asList(itemRequest));
 
-        when(productServiceClient.getProductById(1L)).thenThrow(new RuntimeException("Service unavailable"));
+        when(productServiceClient.getProductsByIds(List.of(1L))).thenThrow(new RuntimeException("Service unavailable"));
 
         // When & Then
         assertThatThrownBy(() -> orderService.createOrder(orderRequest, "test-user"))
@@ -175,20 +287,184 @@ class OrderServiceTest {
     @Test
     void createOrder_shouldThrowException_whenInsufficientStock() {
         // Given
-        OrderRequestDTO.OrderItemRequestDTO itemRequest = new OrderRequestDTO.OrderItemRequestDTO();
+        OrderItemRequestDTO itemRequest = new OrderItemRequestDTO();
         itemRequest.setProductId(1L);
         itemRequest.setQuantity(2);
 
         OrderRequestDTO orderRequest = new OrderRequestDTO();
         orderRequest.setItems(Arrays.asList(itemRequest));
 
-        when(productServiceClient.getProductById(1L)).thenReturn(testProduct);
-        when(productServiceClient.checkAndReserveStock(1L, 2)).thenReturn(false);
+        when(productServiceClient.getProductsByIds(List.of(1L))).thenReturn(List.of(testProduct));
+        when(productServiceClient.holdStock(any()))
+            .thenReturn(new BatchReservationResultDTO(false, List.of(1L)));
 
         // When & Then
         assertThatThrownBy(() -> orderService.createOrder(orderRequest, "test-user"))
             .isInstanceOf(RuntimeException.class)
             .hasMessage("Insufficient stock for product: Test Product");
+        verify(productServiceClient).releaseHolds(anyString());
+    }
+
+    @Test
+    void createOrder_shouldReleaseHeldStock_whenPersistingFails() {
+        // Given
+        OrderItemRequestDTO itemRequest = new OrderItemRequestDTO(1L, 2);
+
+        OrderRequestDTO orderRequest = new OrderRequestDTO();
+        orderRequest.setItems(Arrays.asList(itemRequest));
+
+        when(productServiceClient.getProductsByIds(List.of(1L))).thenReturn(List.of(testProduct));
+        when(productServiceClient.holdStock(any()))
+            .thenReturn(new BatchReservationResultDTO(true, List.of()));
+        when(orderRepository.save(any(Order.class))).thenThrow(new RuntimeException("Database unavailable"));
+
+        // When & Then
+        assertThatThrownBy(() -> orderService.createOrder(orderRequest, "test-user"))
+            .isInstanceOf(RuntimeException.class)
+            .hasMessage("Database unavailable");
+        verify(productServiceClient).releaseHolds(anyString());
+        verify(productServiceClient, never()).confirmHolds(anyString());
+    }
+
+    @Test
+    void createOrder_shouldCancelOrderAndReleaseHolds_whenConfirmingFails() {
+        // Given
+        OrderRequestDTO orderRequest = new OrderRequestDTO(List.of(new OrderItemRequestDTO(1L, 2)));
+        when(productServiceClient.getProductsByIds(List.of(1L))).thenReturn(List.of(testProduct));
+        when(productServiceClient.holdStock(any())).thenReturn(new BatchReservationResultDTO(true, List.of()));
+        when(orderRepository.save(any(Order.class))).thenReturn(testOrder);
+        when(orderRepository.findById(1L)).thenReturn(Optional.of(testOrder));
+        doThrow(new RuntimeException("Holds expired")).when(productServiceClient).confirmHolds(anyString());
+
+        // When & Then
+        assertThatThrownBy(() -> orderService.createOrder(orderRequest, "test-user"))
+            .isInstanceOf(RuntimeException.class)
+            .hasMessage("Unable to confirm stock for order");
+        assertThat(testOrder.getStatus()).isEqualTo(Order.OrderStatus.CANCELLED);
+        verify(productServiceClient).releaseHolds(anyString());
+    }
+
+    @Test
+    void createOrder_shouldThrowException_whenReservationUnavailable() {
+        // Given
+        OrderItemRequestDTO itemRequest = new OrderItemRequestDTO(1L, 2);
+
+        OrderRequestDTO orderRequest = new OrderRequestDTO();
+        orderRequest.setItems(Arrays.asList(itemRequest));
+
+        when(productServiceClient.getProductsByIds(List.of(1L))).thenReturn(List.of(testProduct));
+        when(productServiceClient.holdStock(any())).thenThrow(new RuntimeException("Service unavailable"));
+
+        // When & Then
+        assertThatThrownBy(() -> orderService.createOrder(orderRequest, "test-user"))
+            .isInstanceOf(RuntimeException.class)
+            .hasMessage("Unable to reserve stock for order");
+        verify(orderRepository, never()).save(any(Order.class));
+        // The lost response may have hidden placed holds, so the reference is released anyway
+        verify(productServiceClient).releaseHolds(anyString());
+    }
+
+    @Test
+    void submitOrder_shouldPersistPendingOrderAndEnqueueIt_withoutReservingStock() {
+        // Given
+        OrderRequestDTO orderRequest = new OrderRequestDTO(List.of(new OrderItemRequestDTO(1L, 2)));
+        when(productServiceClient.getProductsByIds(List.of(1L))).thenReturn(List.of(testProduct));
+        when(orderRepository.save(any(Order.class))).thenReturn(testOrder);
+
+        // When
+        OrderDTO result = orderService.submitOrder(orderRequest, "test-user");
+
+        // Then
+        assertThat(result.getStatus()).isEqualTo("PENDING");
+        verify(orderIntakeQueue).enqueue(1L);
+        verify(productServiceClient, never()).holdStock(any());
+    }
+
+    @Test
+    void submitOrder_shouldThrowQueueFull_beforeCallingProductService() {
+        // Given
+        OrderRequestDTO orderRequest = new OrderRequestDTO(List.of(new OrderItemRequestDTO(1L, 2)));
+        doThrow(new OrderIntakeQueue.QueueFullException("full")).when(orderIntakeQueue).checkCapacity();
+
+        // When & Then
+        assertThatThrownBy(() -> orderService.submitOrder(orderRequest, "test-user"))
+            .isInstanceOf(OrderIntakeQueue.QueueFullException.class);
+        verifyNoInteractions(productServiceClient);
+        verify(orderRepository, never()).save(any(Order.class));
+    }
+
+    @Test
+    void processPendingOrder_shouldConfirmOrder_whenStockIsReserved() {
+        // Given
+        OrderOutbox entry = new OrderOutbox(1L);
+        when(orderRepository.findById(1L)).thenReturn(Optional.of(testOrder));
+        when(productServiceClient.holdStock(new StockHoldRequestDTO("order-1", List.of(new StockReservationDTO(1L, 2)))))
+            .thenReturn(new BatchReservationResultDTO(true, List.of()));
+
+        // When
+        boolean done = orderService.processPendingOrder(entry, false);
+
+        // Then
+        assertThat(done).isTrue();
+        assertThat(testOrder.getStatus()).isEqualTo(Order.OrderStatus.CONFIRMED);
+        verify(productServiceClient).confirmHolds("order-1");
+        verify(orderRepository).save(testOrder);
+        verify(orderIntakeQueue).complete(entry);
+    }
+
+    @Test
+    void processPendingOrder_shouldAskForRetry_whenConfirmingFails_andCancelOnLastAttempt() {
+        // Given
+        OrderOutbox entry = new OrderOutbox(1L);
+        when(orderRepository.findById(1L)).thenReturn(Optional.of(testOrder));
+        when(productServiceClient.holdStock(any())).thenReturn(new BatchReservationResultDTO(true, List.of()));
+        doThrow(new RuntimeException("Service unavailable")).when(productServiceClient).confirmHolds("order-1");
+
+        // When
+        boolean doneBeforeLastAttempt = orderService.processPendingOrder(entry, false);
+        boolean doneOnLastAttempt = orderService.processPendingOrder(entry, true);
+
+        // Then
+        assertThat(doneBeforeLastAttempt).isFalse();
+        assertThat(doneOnLastAttempt).isTrue();
+        assertThat(testOrder.getStatus()).isEqualTo(Order.OrderStatus.CANCELLED);
+        verify(productServiceClient, times(1)).releaseHolds("order-1");
+        verify(orderIntakeQueue, times(1)).complete(entry);
+    }
+
+    @Test
+    void processPendingOrder_shouldCancelOrder_whenStockIsInsufficient() {
+        // Given
+        OrderOutbox entry = new OrderOutbox(1L);
+        when(orderRepository.findById(1L)).thenReturn(Optional.of(testOrder));
+        when(productServiceClient.holdStock(any()))
+            .thenReturn(new BatchReservationResultDTO(false, List.of(1L)));
+
+        // When
+        boolean done = orderService.processPendingOrder(entry, false);
+
+        // Then
+        assertThat(done).isTrue();
+        assertThat(testOrder.getStatus()).isEqualTo(Order.OrderStatus.CANCELLED);
+        verify(productServiceClient).releaseHolds("order-1");
+        verify(orderIntakeQueue).complete(entry);
+    }
+
+    @Test
+    void processPendingOrder_shouldAskForRetry_whenProductServiceIsUnavailable() {
+        // Given
+        OrderOutbox entry = new OrderOutbox(1L);
+        when(orderRepository.findById(1L)).thenReturn(Optional.of(testOrder));
+        when(productServiceClient.holdStock(any())).thenThrow(new RuntimeException("Service unavailable"));
+
+        // When
+        boolean done = orderService.processPendingOrder(entry, false);
+
+        // Then
+        assertThat(done).isFalse();
+        assertThat(testOrder.getStatus()).isEqualTo(Order.OrderStatus.PENDING);
+        verify(orderIntakeQueue, never()).complete(any());
+        verify(productServiceClient, never()).releaseHolds(anyString());
     }
 
     @Test
@@ -0,0 +1,97 @@
+package org.security.commandservice.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.security.commandservice.client.ProductServiceClient;
+import org.security.commandservice.dto.OrderStatusTransitionDTO;
+import org.security.commandservice.dto.OrderStatusTransitionResultDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// 10k CONFIRMED -> SHIPPED transitions, once through PUT /orders/{id}/status's service call per
+// order (findById, save, convertToDTO loading the items) and once as one bulk compare-and-set.
+// Run with: mvn test -Dtest=OrderStatusTransitionBenchmarkTest -Dbenchmark=true
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+        "spring.datasource.url=jdbc:h2:mem:order-status-transition-benchmark;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.sql.init.mode=never",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "eureka.client.enabled=false"
+})
+class OrderStatusTransitionBenchmarkTest {
+
+    private static final int ORDERS = 10_000;
+    private static final int ITEMS_PER_ORDER = 3;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private OrderService orderService;
+
+    @MockBean
+    private ProductServiceClient productServiceClient;
+
+    @Test
+    void tenThousandTransitions_loopVersusBulkCompareAndSet() {
+        // Given
+        insertOrders();
+        List<Long> ids = jdbcTemplate.queryForList("SELECT id FROM orders ORDER BY id", Long.class);
+
+        // When
+        long loopStart = System.nanoTime();
+        for (Long id : ids) {
+            orderService.updateOrderStatus(id, "SHIPPED");
+        }
+        double loopMillis = (System.nanoTime() - loopStart) / 1_000_000.0;
+
+        jdbcTemplate.update("UPDATE orders SET status = 'CONFIRMED'");
+        List<OrderStatusTransitionDTO> transitions = jdbcTemplate.query("SELECT id, version FROM orders ORDER BY id",
+                (row, rowNum) -> new OrderStatusTransitionDTO(row.getLong("id"), row.getLong("version"), "SHIPPED"));
+        long bulkStart = System.nanoTime();
+        List<OrderStatusTransitionResultDTO> results = orderService.transitionOrderStatuses(transitions);
+        double bulkMillis = (System.nanoTime() - bulkStart) / 1_000_000.0;
+
+        // Then
+        System.out.printf("%d status transitions:%n", ORDERS);
+        System.out.printf("  PUT /orders/{id}/status loop:  %8.1f ms%n", loopMillis);
+        System.out.printf("  PUT /orders/status bulk CAS:   %8.1f ms%n", bulkMillis);
+        assertThat(results).extracting(OrderStatusTransitionResultDTO::getOutcome)
+                .containsOnly(OrderStatusTransitionResultDTO.Outcome.UPDATED);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM orders WHERE status = 'SHIPPED'", Long.class))
+                .isEqualTo(ORDERS);
+        assertThat(bulkMillis).isLessThan(loopMillis);
+    }
+
+    private void insertOrders() {
+        LocalDateTime start = LocalDateTime.now().minusDays(1);
+        List<Object[]> orders = new ArrayList<>(ORDERS);
+        for (int i = 0; i < ORDERS; i++) {
+            orders.add(new Object[]{Timestamp.valueOf(start.plusSeconds(i)), "user-" + i % 100});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO orders (order_date, status, total_amount, user_id, version) " +
+                "VALUES (?, 'CONFIRMED', 30, ?, 0)", orders);
+
+        List<Object[]> items = jdbcTemplate.queryForList("SELECT id FROM orders", Long.class).stream()
+                .flatMap(orderId -> IntStream.rangeClosed(1, ITEMS_PER_ORDER)
+                        .mapToObj(productId -> new Object[]{orderId, (long) productId, "Product " + productId}))
+                .collect(Collectors.toList());
+        jdbcTemplate.batchUpdate("INSERT INTO order_items (order_id, product_id, quantity, price, product_name, version) " +
+                "VALUES (?, ?, 1, 10, ?, 0)", items);
+    }
+}
@@ -0,0 +1,148 @@
+package org.security.commandservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.security.commandservice.client.ProductServiceClient;
+import org.security.commandservice.dto.BatchReservationResultDTO;
+import org.security.commandservice.dto.OrderItemRequestDTO;
+import org.security.commandservice.dto.ProductResponseDTO;
+import org.security.commandservice.dto.StockHoldRequestDTO;
+import org.security.commandservice.dto.StockReservationDTO;
+import org.security.commandservice.model.OrderItem;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProductFanOutTest {
+
+    @Mock
+    private ProductServiceClient productServiceClient;
+
+    @Mock
+    private ProductReplica productReplica;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private ProductFanOut productFanOut;
+
+    @BeforeEach
+    void setUp() {
+        productFanOut = new ProductFanOut(productServiceClient,
+                new ProductLookupCoalescer(productServiceClient, directReads(), meterRegistry, true, 0),
+                productReplica, meterRegistry, true, 4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void resolveAndHold_shouldKeepCartOrderAndBoundConcurrency() {
+        // Given
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        when(productServiceClient.getProductById(anyLong())).thenAnswer(invocation -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            Thread.sleep(20);
+            inFlight.decrementAndGet();
+            Long productId = invocation.getArgument(0);
+            return new ProductResponseDTO(productId, "Product " + productId, BigDecimal.TEN);
+        });
+        when(productServiceClient.holdStock(any())).thenReturn(new BatchReservationResultDTO(true, List.of()));
+        List<OrderItemRequestDTO> items = List.of(
+                new OrderItemRequestDTO(3L, 1), new OrderItemRequestDTO(1L, 2), new OrderItemRequestDTO(2L, 1),
+                new OrderItemRequestDTO(5L, 1), new OrderItemRequestDTO(4L, 1), new OrderItemRequestDTO(6L, 1));
+
+        // When
+        List<OrderItem> result = productFanOut.resolveAndHold(items, "hold-1");
+
+        // Then
+        assertThat(result).extracting(OrderItem::getProductId).containsExactly(3L, 1L, 2L, 5L, 4L, 6L);
+        assertThat(maxInFlight.get()).isLessThanOrEqualTo(4);
+        assertThat(meterRegistry.timer("order.product.fanout", "outcome", "success").count()).isEqualTo(1);
+        verify(productServiceClient, times(6)).holdStock(argThat(request -> request.getHoldReference().equals("hold-1")));
+        verify(productServiceClient, never()).releaseHolds(anyString());
+    }
+
+    @Test
+    void resolveAndHold_shouldPropagateCallerSecurityContext() {
+        // Given
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("test-user", null));
+        Set<String> seenUsers = ConcurrentHashMap.newKeySet();
+        when(productServiceClient.getProductById(anyLong())).thenAnswer(invocation -> {
+            seenUsers.add(SecurityContextHolder.getContext().getAuthentication().getName());
+            return new ProductResponseDTO(invocation.getArgument(0), "Test Product", BigDecimal.TEN);
+        });
+        when(productServiceClient.holdStock(any())).thenReturn(new BatchReservationResultDTO(true, List.of()));
+
+        // When
+        productFanOut.resolveAndHold(List.of(new OrderItemRequestDTO(1L, 1), new OrderItemRequestDTO(2L, 1)), "hold-1");
+
+        // Then
+        assertThat(seenUsers).containsExactly("test-user");
+    }
+
+    @Test
+    void resolveAndHold_shouldHoldRepeatedProductOnceWithItsTotalQuantity() {
+        // Given
+        when(productServiceClient.getProductById(1L)).thenReturn(new ProductResponseDTO(1L, "Test Product", BigDecimal.TEN));
+        when(productServiceClient.holdStock(any())).thenReturn(new BatchReservationResultDTO(true, List.of()));
+
+        // When
+        List<OrderItem> result = productFanOut.resolveAndHold(
+                List.of(new OrderItemRequestDTO(1L, 2), new OrderItemRequestDTO(1L, 3)), "hold-1");
+
+        // Then
+        assertThat(result).extracting(OrderItem::getQuantity).containsExactly(2, 3);
+        verify(productServiceClient).holdStock(new StockHoldRequestDTO("hold-1", List.of(new StockReservationDTO(1L, 5))));
+    }
+
+    @Test
+    void resolveAndHold_shouldReleaseHeldLines_whenOneLineFails() {
+        // Given
+        when(productServiceClient.getProductById(anyLong())).thenAnswer(invocation ->
+                new ProductResponseDTO(invocation.getArgument(0), "Product " + invocation.getArgument(0), BigDecimal.TEN));
+        CountDownLatch firstLineHeld = new CountDownLatch(1);
+        when(productServiceClient.holdStock(any())).thenAnswer(invocation -> {
+            StockHoldRequestDTO request = invocation.getArgument(0);
+            if (request.getItems().get(0).getProductId() == 1L) {
+                firstLineHeld.countDown();
+                return new BatchReservationResultDTO(true, List.of());
+            }
+            firstLineHeld.await();
+            return new BatchReservationResultDTO(false, List.of(2L));
+        });
+
+        // When & Then
+        assertThatThrownBy(() -> productFanOut.resolveAndHold(
+                List.of(new OrderItemRequestDTO(1L, 1), new OrderItemRequestDTO(2L, 1)), "hold-1"))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessage("Insufficient stock for product: Product 2");
+        verify(productServiceClient).releaseHolds("hold-1");
+        assertThat(meterRegistry.timer("order.product.fanout", "outcome", "failure").count()).isEqualTo(1);
+    }
+
+    // Single attempt without hedging, so the client mock sees exactly the calls under test
+    private HedgedProductReads directReads() {
+        return new HedgedProductReads(new RetryBudget(meterRegistry, 10, 20, 1), meterRegistry,
+                false, 0.95, 20, 1, 50, 1000);
+    }
+}
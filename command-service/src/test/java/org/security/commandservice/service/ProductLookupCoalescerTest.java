@@ -0,0 +1,117 @@
+package org.security.commandservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.security.commandservice.client.ProductServiceClient;
+import org.security.commandservice.dto.ProductResponseDTO;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProductLookupCoalescerTest {
+
+    private static final int CALLERS = 1_000;
+    private static final int PRODUCTS = 5;
+
+    @Mock
+    private ProductServiceClient productServiceClient;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void getProductById_ConcurrentCallersOnFewIds_ShouldMakeOneCallPerIdInFlight() throws Exception {
+        // Given: product service answers only once every caller has asked
+        CountDownLatch allAsked = new CountDownLatch(1);
+        when(productServiceClient.getProductById(anyLong())).thenAnswer(invocation -> {
+            allAsked.await(10, TimeUnit.SECONDS);
+            return product(invocation.getArgument(0));
+        });
+        ProductLookupCoalescer coalescer = new ProductLookupCoalescer(productServiceClient, directReads(), meterRegistry, true, 0);
+
+        // When
+        List<Future<ProductResponseDTO>> results = new ArrayList<>(CALLERS);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < CALLERS; i++) {
+                long productId = i % PRODUCTS + 1;
+                results.add(executor.submit(() -> coalescer.getProductById(productId)));
+            }
+            while (lookups("upstream") + lookups("coalesced") < CALLERS) {
+                Thread.sleep(1);
+            }
+            allAsked.countDown();
+        }
+
+        // Then
+        for (int i = 0; i < CALLERS; i++) {
+            assertThat(results.get(i).resultNow().getId()).isEqualTo(i % PRODUCTS + 1);
+        }
+        assertThat(lookups("upstream")).isEqualTo(PRODUCTS);
+        assertThat(lookups("coalesced")).isEqualTo(CALLERS - PRODUCTS);
+        for (long productId = 1; productId <= PRODUCTS; productId++) {
+            verify(productServiceClient, times(1)).getProductById(productId);
+        }
+    }
+
+    @Test
+    void getProductById_FailedCall_ShouldFailItsWaitersAndNotBeRemembered() throws Exception {
+        // Given
+        CountDownLatch calling = new CountDownLatch(1);
+        CountDownLatch fail = new CountDownLatch(1);
+        when(productServiceClient.getProductById(1L))
+                .thenAnswer(invocation -> {
+                    calling.countDown();
+                    fail.await(5, TimeUnit.SECONDS);
+                    throw new RuntimeException("product service unavailable");
+                })
+                .thenReturn(product(1L));
+        ProductLookupCoalescer coalescer = new ProductLookupCoalescer(productServiceClient, directReads(), meterRegistry, true, 60_000_000);
+
+        // When
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<ProductResponseDTO> first = executor.submit(() -> coalescer.getProductById(1L));
+            assertThat(calling.await(5, TimeUnit.SECONDS)).isTrue();
+            Future<ProductResponseDTO> waiter = executor.submit(() -> coalescer.getProductById(1L));
+            while (lookups("coalesced") < 1) {
+                Thread.sleep(1);
+            }
+            fail.countDown();
+
+            // Then
+            assertThatThrownBy(first::get).hasRootCauseMessage("product service unavailable");
+            assertThatThrownBy(waiter::get).hasRootCauseMessage("product service unavailable");
+        }
+        assertThat(coalescer.getProductById(1L).getId()).isEqualTo(1L);
+        assertThat(coalescer.getProductById(1L).getId()).isEqualTo(1L);
+        assertThat(lookups("upstream")).isEqualTo(2);
+        assertThat(lookups("cached")).isEqualTo(1);
+    }
+
+    private double lookups(String source) {
+        return meterRegistry.counter("order.product.lookups", "source", source).count();
+    }
+
+    private static ProductResponseDTO product(Long id) {
+        return new ProductResponseDTO(id, "Product " + id, BigDecimal.TEN);
+    }
+
+    // Single attempt without hedging, so the client mock sees exactly the calls under test
+    private HedgedProductReads directReads() {
+        return new HedgedProductReads(new RetryBudget(meterRegistry, 10, 20, 1), meterRegistry,
+                false, 0.95, 20, 1, 50, 1000);
+    }
+}
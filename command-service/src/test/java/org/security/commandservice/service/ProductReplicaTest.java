@@ -0,0 +1,84 @@
+package org.security.commandservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.security.commandservice.client.ProductServiceClient;
+import org.security.commandservice.dto.ProductChangeDTO;
+import org.security.commandservice.dto.ProductChangesDTO;
+import org.security.commandservice.dto.ProductResponseDTO;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProductReplicaTest {
+
+    private static final long WAIT_MS = 20_000;
+
+    @Mock
+    private ProductServiceClient productServiceClient;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private ProductReplica productReplica;
+
+    @BeforeEach
+    void setUp() {
+        productReplica = new ProductReplica(productServiceClient, meterRegistry, true, WAIT_MS, 30_000, 10);
+    }
+
+    @Test
+    void findFresh_shouldBeEmpty_beforeFirstSync() {
+        assertThat(productReplica.isFresh()).isFalse();
+        assertThat(productReplica.findFresh(1L)).isEmpty();
+    }
+
+    @Test
+    void syncOnce_shouldApplySnapshotThenLongPollForDeltas() {
+        // Given
+        when(productServiceClient.getProductChanges(-1, 0)).thenReturn(new ProductChangesDTO(List.of(
+                change(5L, 1L, "Keyboard", "49.99", false),
+                change(5L, 2L, "Mouse", "19.99", false)), 5L, true));
+        when(productServiceClient.getProductChanges(5L, WAIT_MS)).thenReturn(new ProductChangesDTO(List.of(
+                change(6L, 1L, "Keyboard", "39.99", false),
+                change(7L, 2L, null, null, true)), 7L, false));
+
+        // When
+        productReplica.syncOnce();
+        productReplica.syncOnce();
+
+        // Then
+        assertThat(productReplica.isFresh()).isTrue();
+        assertThat(productReplica.findFresh(1L)).get()
+                .extracting(ProductResponseDTO::getPrice).isEqualTo(new BigDecimal("39.99"));
+        assertThat(productReplica.findFresh(2L)).isEmpty();
+        assertThat(meterRegistry.get("order.product.replica.sequence").gauge().value()).isEqualTo(7.0);
+    }
+
+    @Test
+    void findFresh_shouldBeEmpty_onceReplicaIsStale() throws Exception {
+        // Given
+        productReplica = new ProductReplica(productServiceClient, new SimpleMeterRegistry(), true, WAIT_MS, 1, 10);
+        when(productServiceClient.getProductChanges(-1, 0)).thenReturn(new ProductChangesDTO(List.of(
+                change(1L, 1L, "Keyboard", "49.99", false)), 1L, true));
+        productReplica.syncOnce();
+
+        // When
+        Thread.sleep(20);
+
+        // Then
+        assertThat(productReplica.isFresh()).isFalse();
+        assertThat(productReplica.findFresh(1L)).isEmpty();
+    }
+
+    private ProductChangeDTO change(Long seq, Long productId, String name, String price, boolean deleted) {
+        return new ProductChangeDTO(seq, productId, name, price == null ? null : new BigDecimal(price), deleted);
+    }
+}
@@ -0,0 +1,121 @@
+package org.security.commandservice.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.security.commandservice.client.ProductServiceClient;
+import org.security.commandservice.dto.BatchReservationResultDTO;
+import org.security.commandservice.dto.OrderDTO;
+import org.security.commandservice.dto.OrderItemRequestDTO;
+import org.security.commandservice.dto.OrderRequestDTO;
+import org.security.commandservice.dto.OrderStatusTransitionDTO;
+import org.security.commandservice.dto.ProductDailySalesDTO;
+import org.security.commandservice.dto.ProductResponseDTO;
+import org.security.commandservice.dto.ProductSalesDTO;
+import org.security.commandservice.repository.OrderRepository;
+import org.security.commandservice.repository.ProductSalesDailyRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+        "spring.datasource.url=jdbc:h2:mem:product-sales-rollup-test;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.sql.init.mode=never",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "eureka.client.enabled=false"
+})
+class ProductSalesRollupTest {
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ProductSalesRollup productSalesRollup;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ProductSalesDailyRepository productSalesDailyRepository;
+
+    @MockBean
+    private ProductServiceClient productServiceClient;
+
+    private final LocalDate today = LocalDate.now();
+
+    @BeforeEach
+    void setUp() {
+        orderRepository.deleteAll();
+        productSalesDailyRepository.deleteAll();
+        when(productServiceClient.getProductsByIds(anyList())).thenReturn(List.of(
+                new ProductResponseDTO(1L, "Laptop", new BigDecimal("100.00")),
+                new ProductResponseDTO(2L, "Mouse", new BigDecimal("10.00"))));
+        when(productServiceClient.holdStock(any())).thenReturn(new BatchReservationResultDTO(true, List.of()));
+    }
+
+    @Test
+    void createOrder_shouldAddItsLinesToTheDailyRollup() {
+        // When
+        orderService.createOrder(order(new OrderItemRequestDTO(1L, 2), new OrderItemRequestDTO(2L, 5)), "user-1");
+        orderService.createOrder(order(new OrderItemRequestDTO(1L, 1), new OrderItemRequestDTO(1L, 1)), "user-2");
+
+        // Then
+        assertThat(productSalesRollup.getTopProducts(today, today, 10)).containsExactly(
+                new ProductSalesDTO(2L, 5L, new BigDecimal("50.00")),
+                new ProductSalesDTO(1L, 4L, new BigDecimal("400.00")));
+        assertThat(productSalesRollup.getDailySales(1L, today.minusDays(7), today)).containsExactly(
+                new ProductDailySalesDTO(1L, today, 4L, new BigDecimal("400.00")));
+    }
+
+    @Test
+    void cancellation_shouldBeSubtractedAndReinstatementAddedBack() {
+        // Given
+        OrderDTO kept = orderService.createOrder(order(new OrderItemRequestDTO(1L, 2)), "user-1");
+        OrderDTO cancelled = orderService.createOrder(order(new OrderItemRequestDTO(1L, 3)), "user-2");
+
+        // When: cancelled through the bulk endpoint
+        orderService.transitionOrderStatuses(List.of(
+                new OrderStatusTransitionDTO(cancelled.getId(), cancelled.getVersion(), "CANCELLED")));
+
+        // Then
+        assertThat(productSalesRollup.getTopProducts(today, today, 10))
+                .containsExactly(new ProductSalesDTO(1L, 2L, new BigDecimal("200.00")));
+
+        // When: reinstated by an admin, then the other order cancelled one at a time
+        orderService.updateOrderStatus(cancelled.getId(), "CONFIRMED");
+        orderService.updateOrderStatus(kept.getId(), "CANCELLED");
+
+        // Then
+        assertThat(productSalesRollup.getTopProducts(today, today, 10))
+                .containsExactly(new ProductSalesDTO(1L, 3L, new BigDecimal("300.00")));
+    }
+
+    @Test
+    void getTopProducts_shouldOnlyCountTheRequestedDaysAndRejectInvalidRanges() {
+        // Given
+        orderService.createOrder(order(new OrderItemRequestDTO(1L, 2)), "user-1");
+
+        // Then
+        assertThat(productSalesRollup.getTopProducts(today.minusDays(7), today.minusDays(1), 10)).isEmpty();
+        assertThatThrownBy(() -> productSalesRollup.getTopProducts(today, today.minusDays(1), 10))
+                .isInstanceOf(RuntimeException.class);
+        assertThatThrownBy(() -> productSalesRollup.getTopProducts(today, today, 0))
+                .isInstanceOf(RuntimeException.class);
+    }
+
+    private static OrderRequestDTO order(OrderItemRequestDTO... items) {
+        return new OrderRequestDTO(List.of(items));
+    }
+}
@@ -62,5 +62,18 @@ apiOrder.interceptors.response.use(
   }
 );
 
+// Order listings are paginated: follow X-Next-Page-Token until the last page and return
+// every order. Axios exposes response header names in lower case.
+const getAllOrderPages = async (url) => {
+  const orders = [];
+  let pageToken = null;
+  do {
+    const response = await apiOrder.get(url, { params: pageToken ? { pageToken } : {} });
+    orders.push(...response.data);
+    pageToken = response.headers['x-next-page-token'] || null;
+  } while (pageToken);
+  return orders;
+};
+
 export default api;
-export { apiOrder };
+export { apiOrder, getAllOrderPages };
@@ -1,6 +1,6 @@
 import React, { useState, useEffect } from 'react';
 import api from '../api';
-import { apiOrder } from '../api';
+import { apiOrder, getAllOrderPages } from '../api';
 import { Container, Button, Table, Badge, Alert, Spinner, Modal, Form, Row, Col, Card } from 'react-bootstrap';
 
 function AdminPanel() {
@@ -45,8 +45,7 @@ function AdminPanel() {
   const fetchOrders = async () => {
     try {
       setLoading(true);
-      const response = await apiOrder.get('/orders');
-      setOrders(response.data);
+      setOrders(await getAllOrderPages('/orders'));
       setError(null);
     } catch (err) {
       console.error('Error fetching orders:', err);
@@ -1,5 +1,5 @@
 import React, { useState, useEffect } from 'react';
-import { apiOrder } from '../api';
+import { getAllOrderPages } from '../api';
 import { Container, Table, Badge, Button, Alert, Spinner, Modal, Row, Col, Card } from 'react-bootstrap';
 
 function OrderList() {
@@ -16,8 +16,7 @@ function OrderList() {
   const fetchOrders = async () => {
     try {
       setLoading(true);
-      const response = await apiOrder.get('/orders/my-orders');
-      setOrders(response.data);
+      setOrders(await getAllOrderPages('/orders/my-orders'));
       setError(null);
     } catch (err) {
       console.error('Error fetching orders:', err);
@@ -1,7 +1,23 @@
 package org.security.productservice.controller;
 
+import org.security.productservice.dto.BatchReservationResultDTO;
+import org.security.productservice.dto.BulkImportResultDTO;
+import org.security.productservice.dto.ProductAvailabilityDTO;
+import org.security.productservice.dto.ProductChangesDTO;
 import org.security.productservice.dto.ProductDTO;
+import org.security.productservice.dto.ProductSearchResultDTO;
+import org.security.productservice.dto.ProductSummaryDTO;
+import org.security.productservice.dto.StockHoldRequestDTO;
+import org.security.productservice.dto.StockReservationDTO;
+import org.security.productservice.service.ProductBulkImporter;
+import org.security.productservice.service.ProductChangeFeed;
+import org.security.productservice.service.ProductLookupBatcher;
+import org.security.productservice.service.ProductSearchIndex;
 import org.security.productservice.service.ProductService;
+import org.security.productservice.service.ReservationIdempotencyStore;
+import org.security.productservice.service.StockAvailabilityIndex;
+import org.security.productservice.service.StockHoldService;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -9,6 +25,7 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.context.request.WebRequest;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -20,34 +37,125 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/products")
-@CrossOrigin(origins = {"http://localhost:3000", "http://localhost:3001", "http://localhost:3002"}, allowCredentials = "true")
+@CrossOrigin(origins = {"http://localhost:3000", "http://localhost:3001", "http://localhost:3002"}, allowCredentials = "true",
+        exposedHeaders = HttpHeaders.ETAG)
 @Tag(name = "Product Service", description = "API for managing products")
 public class ProductController {
 
+    // Carries the caller's request id on stock reservations, so a retried call is not applied twice
+    static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
     private final ProductService productService;
+    private final ReservationIdempotencyStore reservationIdempotencyStore;
+    private final ProductChangeFeed productChangeFeed;
+    private final ProductSearchIndex productSearchIndex;
+    private final ProductBulkImporter productBulkImporter;
+    private final StockAvailabilityIndex stockAvailabilityIndex;
+    private final StockHoldService stockHoldService;
+    private final ProductLookupBatcher productLookupBatcher;
 
-    public ProductController(ProductService productService) {
+    public ProductController(ProductService productService, ReservationIdempotencyStore reservationIdempotencyStore,
+                             ProductChangeFeed productChangeFeed, ProductSearchIndex productSearchIndex,
+                             ProductBulkImporter productBulkImporter, StockAvailabilityIndex stockAvailabilityIndex,
+                             StockHoldService stockHoldService, ProductLookupBatcher productLookupBatcher) {
         this.productService = productService;
+        this.reservationIdempotencyStore = reservationIdempotencyStore;
+        this.productChangeFeed = productChangeFeed;
+        this.productSearchIndex = productSearchIndex;
+        this.productBulkImporter = productBulkImporter;
+        this.stockAvailabilityIndex = stockAvailabilityIndex;
+        this.stockHoldService = stockHoldService;
+        this.productLookupBatcher = productLookupBatcher;
     }
 
     @GetMapping
     // @PreAuthorize("hasRole('ADMIN') or hasRole('CLIENT')") // Temporarily disabled for testing
-    public ResponseEntity<List<ProductDTO>> getAllProducts() {
+    public ResponseEntity<List<ProductDTO>> getAllProducts(WebRequest webRequest) {
         logUserAccess("GET /products");
+        // A matching If-None-Match is answered with 304 before the catalog is loaded
+        if (webRequest.checkNotModified(productService.getCatalogETag())) {
+            return null;
+        }
         List<ProductDTO> products = productService.getAllProducts();
-        return ResponseEntity.ok(products);
+        // Tag the body actually sent, which may come from a cache that lags the database
+        return ResponseEntity.ok().eTag(ProductService.catalogETag(products)).body(products);
+    }
+
+    @GetMapping(params = "ids")
+    // @PreAuthorize("hasRole('ADMIN') or hasRole('CLIENT')") // Temporarily disabled for testing
+    public ResponseEntity<List<ProductSummaryDTO>> getProductsByIds(@RequestParam List<Long> ids) {
+        logUserAccess("GET /api/products?ids=" + ids);
+        return ResponseEntity.ok(productService.getProductSummariesByIds(ids));
+    }
+
+    // POST variant of the multi-id lookup for carts too large for a query string
+    @PostMapping("/lookup")
+    // @PreAuthorize("hasRole('ADMIN') or hasRole('CLIENT')") // Temporarily disabled for testing
+    public ResponseEntity<List<ProductSummaryDTO>> lookupProducts(@RequestBody List<Long> ids) {
+        logUserAccess("POST /api/products/lookup (" + ids.size() + " ids)");
+        return ResponseEntity.ok(productService.getProductSummariesByIds(ids));
+    }
+
+    // Current stock for up to 10000 products from memory, without a database query; unknown ids
+    // are left out. The figures can briefly lag a reservation, which stays the authoritative check.
+    @PostMapping("/availability")
+    // @PreAuthorize("hasRole('ADMIN') or hasRole('CLIENT')") // Temporarily disabled for testing
+    public ResponseEntity<List<ProductAvailabilityDTO>> getAvailability(@RequestBody List<Long> ids) {
+        logUserAccess("POST /api/products/availability (" + ids.size() + " ids)");
+        if (!stockAvailabilityIndex.isReady()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        try {
+            return ResponseEntity.ok(stockAvailabilityIndex.getAvailability(ids));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // Ranked search over names and descriptions: every word of q must match a whole word or
+    // the start of one. page * size is limited to the first 1000 hits.
+    @GetMapping("/search")
+    // @PreAuthorize("hasRole('ADMIN') or hasRole('CLIENT')") // Temporarily disabled for testing
+    public ResponseEntity<ProductSearchResultDTO> searchProducts(@RequestParam String q,
+                                                                 @RequestParam(defaultValue = "0") int page,
+                                                                 @RequestParam(defaultValue = "20") int size) {
+        logUserAccess("GET /api/products/search?q=" + q);
+        if (!productSearchIndex.isReady()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        try {
+            return ResponseEntity.ok(productSearchIndex.search(q, page, size));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // Change feed for replicas of the catalog: without since it returns a full snapshot, and
+    // waitMs > 0 holds the request open until the next change (long-poll)
+    @GetMapping("/changes")
+    // @PreAuthorize("hasRole('ADMIN') or hasRole('CLIENT')") // Temporarily disabled for testing
+    public CompletableFuture<ResponseEntity<ProductChangesDTO>> getProductChanges(
+            @RequestParam(defaultValue = "-1") long since,
+            @RequestParam(defaultValue = "0") long waitMs) {
+        logUserAccess("GET /api/products/changes?since=" + since);
+        return productChangeFeed.awaitChanges(since, waitMs).thenApply(ResponseEntity::ok);
     }
 
     @GetMapping("/{id}")
     // @PreAuthorize("hasRole('ADMIN') or hasRole('CLIENT')") // Temporarily disabled for testing
-    public ResponseEntity<ProductDTO> getProductById(@PathVariable Long id) {
+    public CompletableFuture<ResponseEntity<ProductDTO>> getProductById(@PathVariable Long id) {
         logUserAccess("GET /api/products/" + id);
-        ProductDTO product = productService.getProductById(id);
-        return ResponseEntity.ok(product);
+        // Spring answers a matching If-None-Match with 304 and skips writing the body
+        return productLookupBatcher.getProductById(id).thenApply(product -> product == null
+                ? ResponseEntity.notFound().build()
+                : ResponseEntity.ok().eTag(ProductService.productETag(product)).body(product));
     }
 
     @PostMapping
@@ -62,6 +170,21 @@ public class ProductController {
         }
     }
 
+    // Creates or updates products by name from an NDJSON or CSV (with a header line) upload,
+    // read as a stream; rows that fail are listed in the response and the others are applied
+    @PostMapping(value = "/bulk", consumes = {"application/x-ndjson", "text/csv"})
+    // @PreAuthorize("hasRole('ADMIN')") // Temporarily disabled for testing
+    public ResponseEntity<BulkImportResultDTO> bulkUpsertProducts(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+                                                                  InputStream body) {
+        logUserAccess("POST /api/products/bulk (" + contentType + ")");
+        try {
+            ProductBulkImporter.Format format = ProductBulkImporter.parseFormat(contentType);
+            return ResponseEntity.ok(productBulkImporter.importProducts(format, body));
+        } catch (IOException | RuntimeException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @PutMapping("/{id}")
     // @PreAuthorize("hasRole('ADMIN')") // Temporarily disabled for testing
     public ResponseEntity<ProductDTO> updateProduct(@PathVariable Long id, @RequestBody ProductDTO productDTO) {
@@ -88,10 +211,103 @@ public class ProductController {
 
     @PostMapping("/{id}/reserve")
     // @PreAuthorize("hasRole('ADMIN')") // Temporarily disabled for testing
-    public ResponseEntity<Boolean> checkAndReserveStock(@PathVariable Long id, @RequestParam Integer quantity) {
+    public CompletableFuture<ResponseEntity<Boolean>> checkAndReserveStock(@PathVariable Long id, @RequestParam Integer quantity,
+                                                                           @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String requestId) {
         logUserAccess("POST /api/products/" + id + "/reserve?quantity=" + quantity);
-        boolean success = productService.checkAndReserveStock(id, quantity);
-        return ResponseEntity.ok(success);
+        try {
+            // A repeated request id gets the first call's answer without reserving again
+            return reservationIdempotencyStore.reserve(requestId, id, quantity).thenApply(ResponseEntity::ok);
+        } catch (ReservationIdempotencyStore.RequestIdReusedException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).build());
+        } catch (RuntimeException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().build());
+        }
+    }
+
+    @PostMapping("/reserve-batch")
+    // @PreAuthorize("hasRole('ADMIN')") // Temporarily disabled for testing
+    public ResponseEntity<BatchReservationResultDTO> checkAndReserveStockBatch(@RequestBody List<StockReservationDTO> reservations) {
+        logUserAccess("POST /api/products/reserve-batch (" + reservations.size() + " lines)");
+        try {
+            BatchReservationResultDTO result = productService.checkAndReserveStockBatch(reservations);
+            return ResponseEntity.ok(result);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @PostMapping("/release-batch")
+    // @PreAuthorize("hasRole('ADMIN')") // Temporarily disabled for testing
+    public ResponseEntity<Void> releaseStockBatch(@RequestBody List<StockReservationDTO> releases) {
+        logUserAccess("POST /api/products/release-batch (" + releases.size() + " lines)");
+        try {
+            productService.releaseStockBatch(releases);
+            return ResponseEntity.noContent().build();
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // Holds stock for an order that is about to be persisted; the caller confirms or releases
+    // the holds by reference afterwards, otherwise they expire and the stock comes back. The
+    // hold reference doubles as the idempotency key: a retried hold skips the products the
+    // reference already holds.
+    @PostMapping("/holds")
+    // @PreAuthorize("hasRole('ADMIN')") // Temporarily disabled for testing
+    public ResponseEntity<BatchReservationResultDTO> holdStock(@RequestBody StockHoldRequestDTO request) {
+        logUserAccess("POST /api/products/holds (" + request.getHoldReference() + ")");
+        try {
+            return ResponseEntity.ok(stockHoldService.hold(request.getHoldReference(), request.getItems()));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @PostMapping("/holds/{holdReference}/confirm")
+    // @PreAuthorize("hasRole('ADMIN')") // Temporarily disabled for testing
+    public ResponseEntity<Void> confirmHolds(@PathVariable String holdReference) {
+        logUserAccess("POST /api/products/holds/" + holdReference + "/confirm");
+        try {
+            stockHoldService.confirm(holdReference);
+            return ResponseEntity.noContent().build();
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
+
+    @PostMapping("/holds/{holdReference}/release")
+    // @PreAuthorize("hasRole('ADMIN')") // Temporarily disabled for testing
+    public ResponseEntity<Void> releaseHolds(@PathVariable String holdReference) {
+        logUserAccess("POST /api/products/holds/" + holdReference + "/release");
+        try {
+            stockHoldService.release(holdReference);
+            return ResponseEntity.noContent().build();
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // Splits the product's stock across `count` bucket rows, or merges it back when count is 0
+    @PutMapping("/{id}/buckets")
+    // @PreAuthorize("hasRole('ADMIN')") // Temporarily disabled for testing
+    public ResponseEntity<ProductDTO> configureStockBuckets(@PathVariable Long id, @RequestParam Integer count) {
+        logUserAccess("PUT /api/products/" + id + "/buckets?count=" + count);
+        try {
+            return ResponseEntity.ok(productService.configureStockBuckets(id, count));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @PostMapping("/{id}/buckets/rebalance")
+    // @PreAuthorize("hasRole('ADMIN')") // Temporarily disabled for testing
+    public ResponseEntity<ProductDTO> rebalanceStockBuckets(@PathVariable Long id) {
+        logUserAccess("POST /api/products/" + id + "/buckets/rebalance");
+        try {
+            return ResponseEntity.ok(productService.rebalanceStockBuckets(id));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
 
     private void logUserAccess(String endpoint) {
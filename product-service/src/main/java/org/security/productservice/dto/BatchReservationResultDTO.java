@@ -0,0 +1,16 @@
+package org.security.productservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchReservationResultDTO {
+
+    private boolean reserved;
+    private List<Long> insufficientProductIds;
+}
@@ -0,0 +1,15 @@
+package org.security.productservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkImportErrorDTO {
+
+    // 1-based line of the upload; the CSV header is line 1
+    private long line;
+    private String message;
+}
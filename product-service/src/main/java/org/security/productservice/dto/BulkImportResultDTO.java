@@ -0,0 +1,21 @@
+package org.security.productservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkImportResultDTO {
+
+    private int created;
+    private int updated;
+    private int failed;
+    // The first failed rows only; failed counts all of them
+    private List<BulkImportErrorDTO> errors = new ArrayList<>();
+    private boolean errorsTruncated;
+}
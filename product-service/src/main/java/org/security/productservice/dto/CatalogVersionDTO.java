@@ -0,0 +1,18 @@
+package org.security.productservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Aggregates that change whenever any product in the catalog does, read in place of the
+// catalog itself to answer conditional GETs
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CatalogVersionDTO {
+
+    private Long productCount;
+    private Long maxId;
+    private Long versionSum;
+    private Long stockSum;
+}
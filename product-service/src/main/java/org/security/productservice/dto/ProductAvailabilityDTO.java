@@ -0,0 +1,15 @@
+package org.security.productservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductAvailabilityDTO {
+
+    private Long productId;
+    private Integer availableStock;
+    private boolean inStock;
+}
@@ -1,5 +1,6 @@
 package org.security.productservice.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -16,4 +17,8 @@ public class ProductDTO {
     private String description;
     private BigDecimal price;
     private Integer stockQuantity;
+
+    // Sent as the ETag header rather than in the body
+    @JsonIgnore
+    private Long version;
 }
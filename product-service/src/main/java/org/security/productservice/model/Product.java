@@ -14,8 +14,11 @@ import java.math.BigDecimal;
 @AllArgsConstructor
 public class Product {
 
+    // Sequence rather than IDENTITY so Hibernate can batch inserts; allocationSize must match
+    // the sequence's INCREMENT BY
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "product_id_seq")
+    @SequenceGenerator(name = "product_id_seq", sequenceName = "product_id_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false, length = 100)
@@ -30,6 +33,10 @@ public class Product {
     @Column(name = "stock_quantity", nullable = false)
     private Integer stockQuantity;
 
+    // Number of stock_buckets rows holding this product's stock, 0 when stock lives in stock_quantity
+    @Column(name = "stock_bucket_count", nullable = false)
+    private Integer stockBucketCount = 0;
+
     @Version
     private Long version;
 }
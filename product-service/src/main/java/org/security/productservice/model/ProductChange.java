@@ -0,0 +1,49 @@
+package org.security.productservice.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Persistable;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Append-only log of catalog changes (name and price, or deletion) served by GET /products/changes
+@Entity
+@Table(name = "product_changes")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductChange implements Persistable<Long> {
+
+    // Assigned from ProductChangeSequence, so it follows commit order
+    @Id
+    private Long seq;
+
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    @Column(length = 100)
+    private String name;
+
+    @Column(precision = 10, scale = 2)
+    private BigDecimal price;
+
+    @Column(nullable = false)
+    private Boolean deleted;
+
+    @Column(name = "changed_at", nullable = false)
+    private LocalDateTime changedAt;
+
+    @Override
+    public Long getId() {
+        return seq;
+    }
+
+    // Rows are only ever appended, so save() can persist without first selecting the assigned id
+    @Override
+    public boolean isNew() {
+        return true;
+    }
+}
@@ -0,0 +1,24 @@
+package org.security.productservice.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Single-row counter for ProductChange.seq. Writers lock the row until they commit, so a
+// reader that has seen seq N can never later see a smaller seq appear.
+@Entity
+@Table(name = "product_change_sequence")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductChangeSequence {
+
+    public static final Integer ID = 1;
+
+    @Id
+    private Integer id;
+
+    @Column(name = "last_seq", nullable = false)
+    private Long lastSeq;
+}
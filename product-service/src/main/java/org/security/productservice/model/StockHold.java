@@ -0,0 +1,46 @@
+package org.security.productservice.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Stock taken out of a product on behalf of an order that is not persisted yet. The stock
+// is decremented when the hold is placed; confirming keeps it that way, while releasing or
+// expiring the hold gives it back. One row per (hold reference, product).
+@Entity
+@Table(name = "stock_holds",
+        uniqueConstraints = @UniqueConstraint(name = "stock_holds_reference_product_unique",
+                columnNames = {"hold_reference", "product_id"}),
+        indexes = @Index(name = "idx_stock_holds_status_expires_at", columnList = "status, expires_at"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockHold {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "hold_reference", nullable = false, length = 64)
+    private String holdReference;
+
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    @Column(nullable = false)
+    private Integer quantity;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private HoldStatus status;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    public enum HoldStatus {
+        HELD, CONFIRMED, RELEASED, EXPIRED
+    }
+}
@@ -0,0 +1,17 @@
+package org.security.productservice.repository;
+
+import org.security.productservice.model.ProductChange;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ProductChangeRepository extends JpaRepository<ProductChange, Long> {
+
+    @Query("SELECT c FROM ProductChange c WHERE c.seq > :since ORDER BY c.seq")
+    List<ProductChange> findAfter(@Param("since") Long since, Pageable pageable);
+}
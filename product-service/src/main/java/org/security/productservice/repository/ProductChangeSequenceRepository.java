@@ -0,0 +1,19 @@
+package org.security.productservice.repository;
+
+import org.security.productservice.model.ProductChangeSequence;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import jakarta.persistence.LockModeType;
+import java.util.Optional;
+
+@Repository
+public interface ProductChangeSequenceRepository extends JpaRepository<ProductChangeSequence, Integer> {
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM ProductChangeSequence s WHERE s.id = :id")
+    Optional<ProductChangeSequence> findByIdWithLock(@Param("id") Integer id);
+}
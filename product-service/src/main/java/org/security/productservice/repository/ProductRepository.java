@@ -1,14 +1,23 @@
 package org.security.productservice.repository;
 
+import org.security.productservice.dto.CatalogVersionDTO;
+import org.security.productservice.dto.ProductDTO;
+import org.security.productservice.dto.StockLevelDTO;
 import org.security.productservice.model.Product;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Long> {
@@ -17,5 +26,39 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     @Query("SELECT p FROM Product p WHERE p.id = :id")
     Optional<Product> findByIdWithLock(@Param("id") Long id);
 
+    // Returns the number of rows updated: 1 when the stock was reserved, 0 otherwise
+    @Modifying
+    @Query("UPDATE Product p SET p.stockQuantity = p.stockQuantity - :quantity, p.version = COALESCE(p.version, 0) + 1 " +
+           "WHERE p.id = :id AND p.stockQuantity >= :quantity")
+    int decrementStockIfAvailable(@Param("id") Long id, @Param("quantity") Integer quantity);
+
+    @Modifying
+    @Query("UPDATE Product p SET p.stockQuantity = p.stockQuantity + :quantity, p.version = COALESCE(p.version, 0) + 1 " +
+           "WHERE p.id = :id")
+    int incrementStock(@Param("id") Long id, @Param("quantity") Integer quantity);
+
+    @Query("SELECT p.stockBucketCount FROM Product p WHERE p.id = :id")
+    Optional<Integer> findStockBucketCountById(@Param("id") Long id);
+
     boolean existsByName(String name);
+
+    List<Product> findByNameIn(Collection<String> names);
+
+    // Source for building the search index: unmanaged DTOs in id order, fetched in chunks
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "1000"))
+    @Query("SELECT new org.security.productservice.dto.ProductDTO(p.id, p.name, p.description, p.price, " +
+           "p.stockQuantity, p.version) FROM Product p ORDER BY p.id")
+    Stream<ProductDTO> streamAllForSearchIndex();
+
+    // Source for building the availability index; a bucketed product's column is 0 and its
+    // bucket totals come from StockBucketRepository.sumQuantitiesByProduct
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "1000"))
+    @Query("SELECT new org.security.productservice.dto.StockLevelDTO(p.id, CAST(p.stockQuantity AS Long)) FROM Product p")
+    Stream<StockLevelDTO> streamStockLevels();
+
+    // Summing versions rather than taking their maximum also catches an update to a row that
+    // is not the newest; the maximum id catches a delete followed by an insert
+    @Query("SELECT new org.security.productservice.dto.CatalogVersionDTO(COUNT(p), COALESCE(MAX(p.id), 0L), " +
+           "COALESCE(SUM(p.version), 0L), COALESCE(SUM(p.stockQuantity), 0L)) FROM Product p")
+    CatalogVersionDTO findCatalogVersion();
 }
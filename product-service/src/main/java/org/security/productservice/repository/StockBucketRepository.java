@@ -0,0 +1,50 @@
+package org.security.productservice.repository;
+
+import org.security.productservice.dto.StockLevelDTO;
+import org.security.productservice.model.StockBucket;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import jakarta.persistence.LockModeType;
+import java.util.List;
+
+@Repository
+public interface StockBucketRepository extends JpaRepository<StockBucket, Long> {
+
+    // Buckets are always locked in bucket_index order so concurrent drains cannot deadlock
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM StockBucket b WHERE b.productId = :productId ORDER BY b.bucketIndex")
+    List<StockBucket> findByProductIdWithLock(@Param("productId") Long productId);
+
+    @Modifying
+    @Query("UPDATE StockBucket b SET b.quantity = b.quantity - :quantity " +
+           "WHERE b.productId = :productId AND b.bucketIndex = :bucketIndex AND b.quantity >= :quantity")
+    int decrementIfAvailable(@Param("productId") Long productId,
+                             @Param("bucketIndex") Integer bucketIndex,
+                             @Param("quantity") Integer quantity);
+
+    @Modifying
+    @Query("UPDATE StockBucket b SET b.quantity = b.quantity + :quantity " +
+           "WHERE b.productId = :productId AND b.bucketIndex = :bucketIndex")
+    int incrementQuantity(@Param("productId") Long productId,
+                          @Param("bucketIndex") Integer bucketIndex,
+                          @Param("quantity") Integer quantity);
+
+    @Query("SELECT COALESCE(SUM(b.quantity), 0) FROM StockBucket b WHERE b.productId = :productId")
+    long sumQuantityByProductId(@Param("productId") Long productId);
+
+    @Query("SELECT COALESCE(SUM(b.quantity), 0) FROM StockBucket b")
+    long sumAllQuantities();
+
+    @Query("SELECT new org.security.productservice.dto.StockLevelDTO(b.productId, SUM(b.quantity)) " +
+           "FROM StockBucket b GROUP BY b.productId")
+    List<StockLevelDTO> sumQuantitiesByProduct();
+
+    @Modifying
+    @Query("DELETE FROM StockBucket b WHERE b.productId = :productId")
+    void deleteByProductId(@Param("productId") Long productId);
+}
@@ -0,0 +1,39 @@
+package org.security.productservice.repository;
+
+import org.security.productservice.model.StockHold;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface StockHoldRepository extends JpaRepository<StockHold, Long> {
+
+    // Holds are always locked in product id order, the same order stock rows are locked in
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT h FROM StockHold h WHERE h.holdReference = :holdReference ORDER BY h.productId")
+    List<StockHold> findByHoldReferenceWithLock(@Param("holdReference") String holdReference);
+
+    // Oldest expired holds first, read through the (status, expires_at) index. Rows locked by
+    // another sweeper or by a confirm in progress are skipped (SKIP LOCKED where supported).
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT h FROM StockHold h WHERE h.status = org.security.productservice.model.StockHold.HoldStatus.HELD " +
+           "AND h.expiresAt < :now ORDER BY h.expiresAt")
+    List<StockHold> findExpiredWithLock(@Param("now") LocalDateTime now, Pageable pageable);
+
+    // Finished holds are only kept long enough to answer retries of the calls that created them
+    @Modifying
+    @Query("DELETE FROM StockHold h WHERE h.status <> org.security.productservice.model.StockHold.HoldStatus.HELD " +
+           "AND h.expiresAt < :before")
+    int deleteFinishedBefore(@Param("before") LocalDateTime before);
+}
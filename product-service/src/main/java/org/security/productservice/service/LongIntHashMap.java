@@ -0,0 +1,130 @@
+package org.security.productservice.service;
+
+// Open-addressing hash map from long to int with linear probing over two primitive arrays.
+// An entry costs 12 bytes per slot, about 16 bytes at the load factor, where a
+// HashMap<Long, Integer> entry with its boxed key and value takes around 70. Not thread-safe;
+// key 0 marks an empty slot and cannot be stored (product ids start at 1).
+final class LongIntHashMap {
+
+    private static final long EMPTY = 0L;
+    private static final double LOAD_FACTOR = 0.75;
+
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+    private int resizeAt;
+
+    LongIntHashMap(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    int size() {
+        return size;
+    }
+
+    int get(long key, int missingValue) {
+        int slot = find(key);
+        return slot >= 0 ? values[slot] : missingValue;
+    }
+
+    boolean containsKey(long key) {
+        return find(key) >= 0;
+    }
+
+    void put(long key, int value) {
+        if (key == EMPTY) {
+            throw new IllegalArgumentException("Key 0 is reserved");
+        }
+        int slot = slotOf(key);
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > resizeAt) {
+            rehash(keys.length * 2);
+        }
+    }
+
+    // Adds delta to an existing entry; returns false, changing nothing, when the key is absent
+    boolean addTo(long key, int delta) {
+        int slot = find(key);
+        if (slot < 0) {
+            return false;
+        }
+        values[slot] += delta;
+        return true;
+    }
+
+    // Backward-shift deletion: later entries of the probe run move up, so no tombstones are needed
+    boolean remove(long key) {
+        int gap = find(key);
+        if (gap < 0) {
+            return false;
+        }
+        int slot = (gap + 1) & mask;
+        while (keys[slot] != EMPTY) {
+            int home = slotOf(keys[slot]);
+            // Move the entry into the gap unless its home lies cyclically between the gap and itself
+            if (((slot - home) & mask) >= ((slot - gap) & mask)) {
+                keys[gap] = keys[slot];
+                values[gap] = values[slot];
+                gap = slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[gap] = EMPTY;
+        values[gap] = 0;
+        size--;
+        return true;
+    }
+
+    private int find(long key) {
+        if (key == EMPTY) {
+            return -1;
+        }
+        int slot = slotOf(key);
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    // Fibonacci hashing spreads sequential ids, which would otherwise fill one dense run
+    private int slotOf(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private void rehash(int newCapacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(newCapacity);
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private static int capacityFor(int expectedSize) {
+        int needed = (int) Math.ceil(Math.max(expectedSize, 4) / LOAD_FACTOR) + 1;
+        return Integer.highestOneBit(needed - 1) << 1;
+    }
+}
@@ -0,0 +1,242 @@
+package org.security.productservice.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.security.productservice.dto.BulkImportErrorDTO;
+import org.security.productservice.dto.BulkImportResultDTO;
+import org.security.productservice.dto.ProductDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Reads a bulk product upload line by line and upserts it chunk by chunk through
+// ProductService.upsertChunk, so heap use depends on the chunk size and not on the upload.
+@Component
+public class ProductBulkImporter {
+
+    private static final int MAX_NAME_LENGTH = 100;
+    private static final int MAX_DESCRIPTION_LENGTH = 500;
+    private static final BigDecimal MAX_PRICE = new BigDecimal("99999999.99");
+
+    private final ProductService productService;
+    private final ObjectMapper objectMapper;
+    private final int chunkSize;
+    private final int maxReportedErrors;
+
+    public ProductBulkImporter(ProductService productService,
+                               ObjectMapper objectMapper,
+                               @Value("${product.bulk.chunk-size:1000}") int chunkSize,
+                               @Value("${product.bulk.max-reported-errors:1000}") int maxReportedErrors) {
+        this.productService = productService;
+        this.objectMapper = objectMapper;
+        this.chunkSize = chunkSize;
+        this.maxReportedErrors = maxReportedErrors;
+    }
+
+    public static Format parseFormat(String contentType) {
+        MediaType mediaType = MediaType.parseMediaType(contentType);
+        for (Format format : Format.values()) {
+            if (mediaType.isCompatibleWith(MediaType.parseMediaType(format.getContentType()))) {
+                return format;
+            }
+        }
+        throw new RuntimeException("Unsupported import format: " + contentType);
+    }
+
+    // Rows that fail to parse or validate are reported and skipped; a chunk the database
+    // rejects is rolled back and all of its rows are reported. A name repeated within a
+    // chunk keeps its last row, the same outcome as when the repeats land in different chunks.
+    public BulkImportResultDTO importProducts(Format format, InputStream inputStream) throws IOException {
+        BulkImportResultDTO result = new BulkImportResultDTO();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+        long lineNumber = 0;
+        Map<String, Integer> csvColumns = null;
+        if (format == Format.CSV) {
+            String header = reader.readLine();
+            lineNumber++;
+            if (header == null) {
+                return result;
+            }
+            csvColumns = csvColumns(header);
+        }
+
+        Map<String, Row> chunk = new LinkedHashMap<>();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            try {
+                ProductDTO product = format == Format.CSV ? parseCsv(line, csvColumns) : parseJson(line);
+                validate(product);
+                chunk.put(product.getName(), new Row(lineNumber, product));
+            } catch (RuntimeException e) {
+                addError(result, lineNumber, e.getMessage());
+                continue;
+            }
+            if (chunk.size() >= chunkSize) {
+                upsert(chunk, result);
+            }
+        }
+        upsert(chunk, result);
+        return result;
+    }
+
+    private void upsert(Map<String, Row> chunk, BulkImportResultDTO result) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        try {
+            ProductService.BulkUpsertCounts counts = productService.upsertChunk(
+                    chunk.values().stream().map(Row::product).toList());
+            result.setCreated(result.getCreated() + counts.created());
+            result.setUpdated(result.getUpdated() + counts.updated());
+        } catch (RuntimeException e) {
+            for (Row row : chunk.values()) {
+                addError(result, row.lineNumber(), "Chunk rolled back: " + e.getMessage());
+            }
+        }
+        chunk.clear();
+    }
+
+    private void addError(BulkImportResultDTO result, long lineNumber, String message) {
+        result.setFailed(result.getFailed() + 1);
+        if (result.getErrors().size() < maxReportedErrors) {
+            result.getErrors().add(new BulkImportErrorDTO(lineNumber, message));
+        } else {
+            result.setErrorsTruncated(true);
+        }
+    }
+
+    private ProductDTO parseJson(String line) {
+        try {
+            return objectMapper.readValue(line, ProductDTO.class);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Malformed JSON: " + e.getOriginalMessage());
+        }
+    }
+
+    private static Map<String, Integer> csvColumns(String header) {
+        Map<String, Integer> columns = new HashMap<>();
+        List<String> names = splitCsvLine(header);
+        for (int i = 0; i < names.size(); i++) {
+            columns.put(names.get(i).trim().replace("_", "").toLowerCase(Locale.ROOT), i);
+        }
+        for (String required : List.of("name", "description", "price", "stockquantity")) {
+            if (!columns.containsKey(required)) {
+                throw new RuntimeException("CSV header is missing column: " + required);
+            }
+        }
+        return columns;
+    }
+
+    private static ProductDTO parseCsv(String line, Map<String, Integer> columns) {
+        List<String> fields = splitCsvLine(line);
+        ProductDTO product = new ProductDTO();
+        product.setName(field(fields, columns.get("name")));
+        product.setDescription(field(fields, columns.get("description")));
+        try {
+            String price = field(fields, columns.get("price"));
+            String stockQuantity = field(fields, columns.get("stockquantity"));
+            product.setPrice(price != null ? new BigDecimal(price.trim()) : null);
+            product.setStockQuantity(stockQuantity != null ? Integer.valueOf(stockQuantity.trim()) : null);
+        } catch (NumberFormatException e) {
+            throw new RuntimeException("Invalid number in price or stockQuantity");
+        }
+        return product;
+    }
+
+    private static String field(List<String> fields, int index) {
+        if (index >= fields.size() || fields.get(index).isEmpty()) {
+            return null;
+        }
+        return fields.get(index);
+    }
+
+    // RFC 4180 fields on a single line: quoted fields may contain commas and doubled quotes,
+    // but not line breaks
+    static List<String> splitCsvLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new RuntimeException("Unterminated quoted field");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    // Mirrors the products table constraints so that one bad row cannot roll back its chunk
+    private static void validate(ProductDTO product) {
+        if (product.getName() == null || product.getName().isBlank()) {
+            throw new RuntimeException("Name is required");
+        }
+        if (product.getName().length() > MAX_NAME_LENGTH) {
+            throw new RuntimeException("Name is longer than " + MAX_NAME_LENGTH + " characters");
+        }
+        if (product.getDescription() == null) {
+            throw new RuntimeException("Description is required");
+        }
+        if (product.getDescription().length() > MAX_DESCRIPTION_LENGTH) {
+            throw new RuntimeException("Description is longer than " + MAX_DESCRIPTION_LENGTH + " characters");
+        }
+        if (product.getPrice() == null || product.getPrice().signum() < 0
+                || product.getPrice().scale() > 2 || product.getPrice().compareTo(MAX_PRICE) > 0) {
+            throw new RuntimeException("Price must be between 0 and " + MAX_PRICE + " with at most 2 decimals");
+        }
+        if (product.getStockQuantity() == null || product.getStockQuantity() < 0) {
+            throw new RuntimeException("Stock quantity must be zero or more");
+        }
+    }
+
+    private record Row(long lineNumber, ProductDTO product) {
+    }
+
+    public enum Format {
+        NDJSON("application/x-ndjson"), CSV("text/csv");
+
+        private final String contentType;
+
+        Format(String contentType) {
+            this.contentType = contentType;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+    }
+}
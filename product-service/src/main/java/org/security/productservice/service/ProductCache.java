@@ -0,0 +1,93 @@
+package org.security.productservice.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.security.productservice.dto.ProductDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// Bounded in-process cache of product DTOs by id plus a snapshot of the full catalog.
+// ProductService evicts the affected entries whenever a product or its stock changes.
+@Component
+public class ProductCache {
+
+    private static final String CATALOG_KEY = "all";
+
+    private final Cache<Long, ProductDTO> products;
+    private final Cache<String, List<ProductDTO>> catalog;
+
+    public ProductCache(MeterRegistry meterRegistry,
+                        @Value("${product.cache.maximum-size:10000}") long maximumSize,
+                        @Value("${product.cache.expire-after-write-ms:300000}") long expireAfterWriteMillis,
+                        @Value("${product.cache.catalog-expire-after-write-ms:30000}") long catalogExpireAfterWriteMillis) {
+        this.products = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofMillis(expireAfterWriteMillis))
+                .recordStats()
+                .build();
+        this.catalog = Caffeine.newBuilder()
+                .maximumSize(1)
+                .expireAfterWrite(Duration.ofMillis(catalogExpireAfterWriteMillis))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, products, "products");
+        CaffeineCacheMetrics.monitor(meterRegistry, catalog, "product-catalog");
+    }
+
+    public ProductDTO getProduct(Long id, Function<Long, ProductDTO> loader) {
+        return products.get(id, loader);
+    }
+
+    public ProductDTO getCachedProduct(Long id) {
+        return products.getIfPresent(id);
+    }
+
+    // The products not cached yet are loaded by one loader call and cached; ids the loader does
+    // not return are absent from the result
+    public Map<Long, ProductDTO> getProducts(Collection<Long> ids,
+                                             Function<Set<? extends Long>, Map<Long, ProductDTO>> loader) {
+        return products.getAll(ids, loader);
+    }
+
+    public List<ProductDTO> getCatalog(Supplier<List<ProductDTO>> loader) {
+        return catalog.get(CATALOG_KEY, key -> List.copyOf(loader.get()));
+    }
+
+    // Drops the product and the catalog snapshot now and again once the surrounding transaction
+    // has finished: a reader that reloads the entry before the commit would cache the old row.
+    public void evictProduct(Long id) {
+        evictNowAndAfterCompletion(() -> {
+            products.invalidate(id);
+            catalog.invalidateAll();
+        });
+    }
+
+    // For a new product only the catalog snapshot is affected
+    public void evictCatalog() {
+        evictNowAndAfterCompletion(catalog::invalidateAll);
+    }
+
+    private static void evictNowAndAfterCompletion(Runnable eviction) {
+        eviction.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    eviction.run();
+                }
+            });
+        }
+    }
+}
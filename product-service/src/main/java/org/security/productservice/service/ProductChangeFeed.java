@@ -0,0 +1,155 @@
+package org.security.productservice.service;
+
+import jakarta.annotation.PreDestroy;
+import org.security.productservice.dto.ProductChangeDTO;
+import org.security.productservice.dto.ProductChangesDTO;
+import org.security.productservice.model.Product;
+import org.security.productservice.model.ProductChange;
+import org.security.productservice.model.ProductChangeSequence;
+import org.security.productservice.repository.ProductChangeRepository;
+import org.security.productservice.repository.ProductChangeSequenceRepository;
+import org.security.productservice.repository.ProductRepository;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+// Feed of catalog changes (name, price, deletion) for replicas in other services. Stock is
+// deliberately not part of it: it changes on every reservation and replicas do not need it.
+@Service
+public class ProductChangeFeed {
+
+    static final int MAX_CHANGES_PER_CALL = 1000;
+    static final long MAX_WAIT_MILLIS = 20_000;
+
+    private final ProductChangeRepository productChangeRepository;
+    private final ProductChangeSequenceRepository productChangeSequenceRepository;
+    private final ProductRepository productRepository;
+
+    // Completed (and replaced) after every committed change; long-polls wait on it
+    private final AtomicReference<CompletableFuture<Void>> nextChange = new AtomicReference<>(new CompletableFuture<>());
+    private final ExecutorService pollExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public ProductChangeFeed(ProductChangeRepository productChangeRepository,
+                             ProductChangeSequenceRepository productChangeSequenceRepository,
+                             ProductRepository productRepository) {
+        this.productChangeRepository = productChangeRepository;
+        this.productChangeSequenceRepository = productChangeSequenceRepository;
+        this.productRepository = productRepository;
+    }
+
+    // Joins the transaction that changes the product. The sequence row stays locked until that
+    // transaction commits, which serialises catalog writes but keeps seq in commit order.
+    @Transactional
+    public void recordChange(Long productId, String name, BigDecimal price, boolean deleted) {
+        ProductChangeSequence sequence = productChangeSequenceRepository.findByIdWithLock(ProductChangeSequence.ID)
+                .orElseGet(() -> new ProductChangeSequence(ProductChangeSequence.ID, 0L));
+        long seq = sequence.getLastSeq() + 1;
+        sequence.setLastSeq(seq);
+        productChangeSequenceRepository.save(sequence);
+        productChangeRepository.save(new ProductChange(seq, productId, name, price, deleted, LocalDateTime.now()));
+        signalAfterCommit();
+    }
+
+    // recordChange for a chunk of created or updated products, taking the sequence row once
+    @Transactional
+    public void recordChanges(List<Product> products) {
+        if (products.isEmpty()) {
+            return;
+        }
+        ProductChangeSequence sequence = productChangeSequenceRepository.findByIdWithLock(ProductChangeSequence.ID)
+                .orElseGet(() -> new ProductChangeSequence(ProductChangeSequence.ID, 0L));
+        long seq = sequence.getLastSeq();
+        LocalDateTime changedAt = LocalDateTime.now();
+        List<ProductChange> changes = new ArrayList<>(products.size());
+        for (Product product : products) {
+            changes.add(new ProductChange(++seq, product.getId(), product.getName(), product.getPrice(), false, changedAt));
+        }
+        sequence.setLastSeq(seq);
+        productChangeSequenceRepository.save(sequence);
+        productChangeRepository.saveAll(changes);
+        signalAfterCommit();
+    }
+
+    private void signalAfterCommit() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    signalChange();
+                }
+            });
+        } else {
+            signalChange();
+        }
+    }
+
+    // A negative since returns a snapshot of the whole catalog, otherwise the changes after since
+    @Transactional(readOnly = true)
+    public ProductChangesDTO getChanges(long since) {
+        if (since < 0) {
+            return snapshot();
+        }
+        List<ProductChange> changes = productChangeRepository.findAfter(since, PageRequest.ofSize(MAX_CHANGES_PER_CALL));
+        long latestSeq = changes.isEmpty() ? since : changes.get(changes.size() - 1).getSeq();
+        return new ProductChangesDTO(changes.stream().map(this::convertToDTO).collect(Collectors.toList()), latestSeq, false);
+    }
+
+    // Long-poll: completes as soon as a change after since is committed on this instance, or
+    // with whatever the database holds once waitMillis has passed (changes made on another
+    // product-service instance are therefore seen after at most waitMillis)
+    public CompletableFuture<ProductChangesDTO> awaitChanges(long since, long waitMillis) {
+        // Taken before querying, so a change committed in between still wakes this poll
+        CompletableFuture<Void> signal = nextChange.get();
+        ProductChangesDTO changes = getChanges(since);
+        if (!changes.getChanges().isEmpty() || waitMillis <= 0) {
+            return CompletableFuture.completedFuture(changes);
+        }
+        return signal.copy()
+                .completeOnTimeout(null, Math.min(waitMillis, MAX_WAIT_MILLIS), TimeUnit.MILLISECONDS)
+                .thenApplyAsync(ignored -> getChanges(since), pollExecutor);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pollExecutor.shutdown();
+    }
+
+    private void signalChange() {
+        nextChange.getAndSet(new CompletableFuture<>()).complete(null);
+    }
+
+    // The counter is read first: every change up to it has committed, so the products read
+    // afterwards reflect at least that point and replaying later changes is harmless
+    private ProductChangesDTO snapshot() {
+        long latestSeq = productChangeSequenceRepository.findById(ProductChangeSequence.ID)
+                .map(ProductChangeSequence::getLastSeq)
+                .orElse(0L);
+        List<ProductChangeDTO> products = productRepository.findAll().stream()
+                .map(product -> new ProductChangeDTO(latestSeq, product.getId(), product.getName(), product.getPrice(), false))
+                .collect(Collectors.toList());
+        return new ProductChangesDTO(products, latestSeq, true);
+    }
+
+    private ProductChangeDTO convertToDTO(ProductChange change) {
+        return new ProductChangeDTO(
+                change.getSeq(),
+                change.getProductId(),
+                change.getName(),
+                change.getPrice(),
+                change.getDeleted()
+        );
+    }
+}
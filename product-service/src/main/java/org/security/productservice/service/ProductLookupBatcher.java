@@ -0,0 +1,148 @@
+package org.security.productservice.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.security.productservice.dto.ProductDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Collects concurrent GET /products/{id} lookups that miss the product cache over a short window
+// and resolves all of them with one findAllById, so callers that ask for products one id at a
+// time still cost one query per window. Each lookup completes with its own product, or with
+// null when its id does not exist.
+@Component
+public class ProductLookupBatcher {
+
+    private final ProductService productService;
+    private final ProductCache productCache;
+    private final boolean enabled;
+    private final long windowMillis;
+    private final int maxBatchSize;
+
+    private final DistributionSummary batchSize;
+    private final Timer queueWait;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private PendingBatch pendingBatch;
+    private final ScheduledExecutorService scheduler =
+            Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("product-lookup-batcher").daemon().factory());
+    private final ExecutorService flushExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public ProductLookupBatcher(ProductService productService,
+                                ProductCache productCache,
+                                MeterRegistry meterRegistry,
+                                @Value("${product.lookup.batching.enabled:false}") boolean enabled,
+                                @Value("${product.lookup.batching.window-ms:2}") long windowMillis,
+                                @Value("${product.lookup.batching.max-batch-size:100}") int maxBatchSize) {
+        this.productService = productService;
+        this.productCache = productCache;
+        this.enabled = enabled;
+        this.windowMillis = windowMillis;
+        this.maxBatchSize = maxBatchSize;
+        this.batchSize = DistributionSummary.builder("product.lookup.batcher.batch.size")
+                .description("Number of product lookups resolved per batched query")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.queueWait = Timer.builder("product.lookup.batcher.queue.wait")
+                .description("Time a product lookup waits for its batch to be queried")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    public CompletableFuture<ProductDTO> getProductById(Long id) {
+        if (!enabled) {
+            return CompletableFuture.completedFuture(productService.getProductsByIds(List.of(id)).get(id));
+        }
+        // Cached products are answered at once rather than after the window
+        ProductDTO cached = productCache.getCachedProduct(id);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        PendingLookup lookup = new PendingLookup(id, System.nanoTime(), new CompletableFuture<>());
+        PendingBatch fullBatch = null;
+        lock.lock();
+        try {
+            if (pendingBatch == null) {
+                pendingBatch = new PendingBatch();
+                scheduleFlush(pendingBatch);
+            }
+            pendingBatch.lookups.add(lookup);
+            if (pendingBatch.lookups.size() >= maxBatchSize) {
+                fullBatch = pendingBatch;
+                pendingBatch = null;
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (fullBatch != null) {
+            PendingBatch batch = fullBatch;
+            flushExecutor.execute(() -> flush(batch));
+        }
+        return lookup.result;
+    }
+
+    private void scheduleFlush(PendingBatch batch) {
+        scheduler.schedule(() -> {
+            // A batch that already hit the size cap has been taken and flushed
+            if (take(batch)) {
+                flushExecutor.execute(() -> flush(batch));
+            }
+        }, windowMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private boolean take(PendingBatch batch) {
+        lock.lock();
+        try {
+            if (pendingBatch != batch) {
+                return false;
+            }
+            pendingBatch = null;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void flush(PendingBatch batch) {
+        List<PendingLookup> lookups = batch.lookups;
+        long flushStart = System.nanoTime();
+        for (PendingLookup lookup : lookups) {
+            queueWait.record(flushStart - lookup.enqueuedAt, TimeUnit.NANOSECONDS);
+        }
+        batchSize.record(lookups.size());
+
+        try {
+            Map<Long, ProductDTO> products = productService.getProductsByIds(
+                    lookups.stream().map(PendingLookup::id).distinct().toList());
+            lookups.forEach(lookup -> lookup.result.complete(products.get(lookup.id)));
+        } catch (RuntimeException e) {
+            lookups.forEach(lookup -> lookup.result.completeExceptionally(e));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdown();
+        flushExecutor.shutdown();
+    }
+
+    private record PendingLookup(Long id, long enqueuedAt, CompletableFuture<ProductDTO> result) {
+    }
+
+    private static class PendingBatch {
+        private final List<PendingLookup> lookups = new ArrayList<>();
+    }
+}
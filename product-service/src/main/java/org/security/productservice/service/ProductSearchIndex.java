@@ -0,0 +1,402 @@
+package org.security.productservice.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.security.productservice.dto.ProductDTO;
+import org.security.productservice.dto.ProductSearchResultDTO;
+import org.security.productservice.dto.ProductSummaryDTO;
+import org.security.productservice.repository.ProductRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+// In-memory inverted index over product names and descriptions behind GET /products/search.
+// It is built from the database once the application is ready and then kept current by
+// ProductService after every committed create, update and delete.
+//
+// Terms live in a sorted map so a prefix is a range scan. Each term's postings are sorted
+// product id arrays that are replaced, never modified, so searches run without locks.
+@Component
+public class ProductSearchIndex {
+
+    static final int MAX_RESULT_WINDOW = 1000;
+    // A short prefix can match thousands of terms; only the first ones (alphabetically) are used
+    static final int MAX_PREFIX_TERMS = 64;
+    private static final int MAX_QUERY_TOKENS = 8;
+
+    private static final byte REMOVED = 0;
+    private static final byte NAME = 1;
+    private static final byte DESCRIPTION = 2;
+    private static final int NAME_WEIGHT = 3;
+    private static final int DESCRIPTION_WEIGHT = 1;
+    private static final int EXACT_MATCH_BOOST = 2;
+
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+    // Ascending from the worst hit: lower score first, then higher product id
+    private static final Comparator<Hit> HIT_ORDER = Comparator.comparingInt(Hit::score)
+            .thenComparing(Hit::productId, Comparator.reverseOrder());
+
+    private final ProductRepository productRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final Timer searchLatency;
+
+    private final Object writeLock = new Object();
+    private volatile ConcurrentSkipListMap<String, Postings> terms = new ConcurrentSkipListMap<>();
+    private volatile ConcurrentHashMap<Long, IndexedProduct> products = new ConcurrentHashMap<>();
+    private volatile boolean ready;
+
+    public ProductSearchIndex(ProductRepository productRepository,
+                              PlatformTransactionManager transactionManager,
+                              MeterRegistry meterRegistry) {
+        this.productRepository = productRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.searchLatency = Timer.builder("product.search.latency")
+                .description("Time to evaluate and rank one search query against the in-memory index")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        Gauge.builder("product.search.index.size", this, index -> index.products.size())
+                .description("Number of products in the search index")
+                .register(meterRegistry);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        readOnlyTransaction.executeWithoutResult(status -> {
+            try (Stream<ProductDTO> rows = productRepository.streamAllForSearchIndex()) {
+                rebuild(rows);
+            }
+        });
+    }
+
+    // Bulk build from products in ascending id order, so postings are appended already sorted.
+    // Holding the write lock makes changes committed meanwhile wait and re-apply on top.
+    void rebuild(Stream<ProductDTO> productsById) {
+        synchronized (writeLock) {
+            Map<String, PostingsBuilder> builders = new HashMap<>();
+            ConcurrentHashMap<Long, IndexedProduct> rebuiltProducts = new ConcurrentHashMap<>();
+            productsById.forEach(product -> {
+                Map<String, Byte> fieldsByTerm = fieldsByTerm(product);
+                String[] productTerms = new String[fieldsByTerm.size()];
+                int i = 0;
+                for (Map.Entry<String, Byte> entry : fieldsByTerm.entrySet()) {
+                    PostingsBuilder builder = builders.computeIfAbsent(entry.getKey(), PostingsBuilder::new);
+                    builder.add(product.getId(), entry.getValue());
+                    productTerms[i++] = builder.term;
+                }
+                rebuiltProducts.put(product.getId(), new IndexedProduct(toSummary(product), productTerms));
+            });
+
+            ConcurrentSkipListMap<String, Postings> rebuiltTerms = new ConcurrentSkipListMap<>();
+            builders.forEach((term, builder) -> rebuiltTerms.put(term, builder.build()));
+            terms = rebuiltTerms;
+            products = rebuiltProducts;
+            ready = true;
+        }
+    }
+
+    // Changes apply once the surrounding transaction commits, so a rolled back write never shows up
+    public void index(ProductDTO product) {
+        index(List.of(product));
+    }
+
+    // For a chunk of distinct products, e.g. from a bulk import: each affected term's postings
+    // are copied once for the whole chunk instead of once per product
+    public void index(List<ProductDTO> changedProducts) {
+        afterCommit(() -> apply(changedProducts, List.of()));
+    }
+
+    public void remove(Long productId) {
+        afterCommit(() -> apply(List.of(), List.of(productId)));
+    }
+
+    private void apply(List<ProductDTO> upserts, List<Long> removals) {
+        synchronized (writeLock) {
+            Map<String, TreeMap<Long, Byte>> changesByTerm = new HashMap<>();
+            for (Long productId : removals) {
+                removeTerms(productId, changesByTerm);
+            }
+            List<Map<String, Byte>> upsertTerms = new ArrayList<>(upserts.size());
+            for (ProductDTO product : upserts) {
+                removeTerms(product.getId(), changesByTerm);
+                Map<String, Byte> fieldsByTerm = fieldsByTerm(product);
+                fieldsByTerm.forEach((term, fields) ->
+                        changesByTerm.computeIfAbsent(term, t -> new TreeMap<>()).put(product.getId(), fields));
+                upsertTerms.add(fieldsByTerm);
+            }
+            changesByTerm.forEach((term, changes) ->
+                    terms.compute(term, (t, postings) -> Postings.merge(postings, changes)));
+
+            removals.forEach(products::remove);
+            for (int i = 0; i < upserts.size(); i++) {
+                ProductDTO product = upserts.get(i);
+                // Share the map's key instances instead of holding a second copy per product
+                String[] productTerms = upsertTerms.get(i).keySet().stream()
+                        .map(terms::ceilingKey)
+                        .toArray(String[]::new);
+                products.put(product.getId(), new IndexedProduct(toSummary(product), productTerms));
+            }
+        }
+    }
+
+    // Every word of the query must match a word of the name or description, either whole or
+    // as a prefix. Name matches outrank description matches and whole words outrank prefixes.
+    public ProductSearchResultDTO search(String query, int page, int size) {
+        if (page < 0 || size < 1) {
+            throw new RuntimeException("Invalid page: page=" + page + ", size=" + size);
+        }
+        if ((long) (page + 1) * size > MAX_RESULT_WINDOW) {
+            throw new RuntimeException("Search results are limited to the first " + MAX_RESULT_WINDOW + " hits");
+        }
+        return searchLatency.record(() -> rank(query, page, size));
+    }
+
+    private ProductSearchResultDTO rank(String query, int page, int size) {
+        List<List<TermMatch>> matchesByToken = new ArrayList<>();
+        for (String token : tokenize(query).stream().limit(MAX_QUERY_TOKENS).toList()) {
+            List<TermMatch> matches = matchesFor(token);
+            if (matches.isEmpty()) {
+                return new ProductSearchResultDTO(List.of(), 0);
+            }
+            matchesByToken.add(matches);
+        }
+        if (matchesByToken.isEmpty()) {
+            return new ProductSearchResultDTO(List.of(), 0);
+        }
+
+        // Candidates come from the token with the fewest postings; the others are probed by binary search
+        List<TermMatch> driver = matchesByToken.stream()
+                .min(Comparator.comparingLong(ProductSearchIndex::postingsCount))
+                .orElseThrow();
+        int window = (page + 1) * size;
+        PriorityQueue<Hit> top = new PriorityQueue<>(window, HIT_ORDER);
+        int totalHits = 0;
+        for (int m = 0; m < driver.size(); m++) {
+            long[] productIds = driver.get(m).postings().productIds();
+            for (long productId : productIds) {
+                if (containedInEarlier(driver, m, productId)) {
+                    continue;
+                }
+                int score = score(matchesByToken, productId);
+                if (score == 0) {
+                    continue;
+                }
+                totalHits++;
+                if (top.size() < window) {
+                    top.add(new Hit(productId, score));
+                } else if (HIT_ORDER.compare(new Hit(productId, score), top.peek()) > 0) {
+                    top.poll();
+                    top.add(new Hit(productId, score));
+                }
+            }
+        }
+
+        List<Hit> ranked = new ArrayList<>(top);
+        ranked.sort(HIT_ORDER.reversed());
+        List<ProductSummaryDTO> results = new ArrayList<>(size);
+        for (int i = page * size; i < ranked.size(); i++) {
+            IndexedProduct product = products.get(ranked.get(i).productId());
+            if (product != null) {
+                results.add(product.summary());
+            }
+        }
+        return new ProductSearchResultDTO(results, totalHits);
+    }
+
+    private List<TermMatch> matchesFor(String token) {
+        List<TermMatch> matches = new ArrayList<>();
+        Postings exact = terms.get(token);
+        if (exact != null) {
+            matches.add(new TermMatch(exact, true));
+        }
+        for (Postings postings : terms.subMap(token, false, token + Character.MAX_VALUE, false).values()) {
+            if (matches.size() >= MAX_PREFIX_TERMS) {
+                break;
+            }
+            matches.add(new TermMatch(postings, false));
+        }
+        return matches;
+    }
+
+    // Sum over query tokens of each token's best match, or 0 when some token does not match
+    private static int score(List<List<TermMatch>> matchesByToken, long productId) {
+        int score = 0;
+        for (List<TermMatch> matches : matchesByToken) {
+            int best = 0;
+            for (TermMatch match : matches) {
+                int i = Arrays.binarySearch(match.postings().productIds(), productId);
+                if (i >= 0) {
+                    best = Math.max(best, fieldWeight(match.postings().fields()[i]) * (match.exact() ? EXACT_MATCH_BOOST : 1));
+                }
+            }
+            if (best == 0) {
+                return 0;
+            }
+            score += best;
+        }
+        return score;
+    }
+
+    // A product matching several expansions of the driving token is counted once
+    private static boolean containedInEarlier(List<TermMatch> matches, int index, long productId) {
+        for (int m = 0; m < index; m++) {
+            if (Arrays.binarySearch(matches.get(m).postings().productIds(), productId) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long postingsCount(List<TermMatch> matches) {
+        return matches.stream().mapToLong(match -> match.postings().productIds().length).sum();
+    }
+
+    private static int fieldWeight(byte fields) {
+        return ((fields & NAME) != 0 ? NAME_WEIGHT : 0) + ((fields & DESCRIPTION) != 0 ? DESCRIPTION_WEIGHT : 0);
+    }
+
+    private void removeTerms(Long productId, Map<String, TreeMap<Long, Byte>> changesByTerm) {
+        IndexedProduct existing = products.get(productId);
+        if (existing == null) {
+            return;
+        }
+        for (String term : existing.terms()) {
+            changesByTerm.computeIfAbsent(term, t -> new TreeMap<>()).put(productId, REMOVED);
+        }
+    }
+
+    private static Map<String, Byte> fieldsByTerm(ProductDTO product) {
+        Map<String, Byte> fieldsByTerm = new HashMap<>();
+        for (String term : tokenize(product.getName())) {
+            fieldsByTerm.merge(term, NAME, (a, b) -> (byte) (a | b));
+        }
+        for (String term : tokenize(product.getDescription())) {
+            fieldsByTerm.merge(term, DESCRIPTION, (a, b) -> (byte) (a | b));
+        }
+        return fieldsByTerm;
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null) {
+            return List.of();
+        }
+        Set<String> tokens = new LinkedHashSet<>();
+        for (String token : NON_WORD.split(text.toLowerCase(Locale.ROOT))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return List.copyOf(tokens);
+    }
+
+    private static ProductSummaryDTO toSummary(ProductDTO product) {
+        return new ProductSummaryDTO(product.getId(), product.getName(), product.getPrice());
+    }
+
+    private static void afterCommit(Runnable change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    change.run();
+                }
+            });
+        } else {
+            change.run();
+        }
+    }
+
+    private record Hit(long productId, int score) {
+    }
+
+    private record TermMatch(Postings postings, boolean exact) {
+    }
+
+    private record IndexedProduct(ProductSummaryDTO summary, String[] terms) {
+    }
+
+    // Product ids in ascending order, each with the fields (NAME, DESCRIPTION) containing the term
+    private record Postings(long[] productIds, byte[] fields) {
+
+        // One pass over both sorted sequences; a change of REMOVED drops the product. Returns
+        // null when no product is left, which drops the term from the map.
+        static Postings merge(Postings postings, NavigableMap<Long, Byte> changes) {
+            long[] ids = postings != null ? postings.productIds : new long[0];
+            byte[] idFields = postings != null ? postings.fields : new byte[0];
+            long[] mergedIds = new long[ids.length + changes.size()];
+            byte[] mergedFields = new byte[mergedIds.length];
+            int size = 0;
+            int i = 0;
+            Iterator<Map.Entry<Long, Byte>> pending = changes.entrySet().iterator();
+            Map.Entry<Long, Byte> change = pending.hasNext() ? pending.next() : null;
+            while (i < ids.length || change != null) {
+                if (change == null || (i < ids.length && ids[i] < change.getKey())) {
+                    mergedIds[size] = ids[i];
+                    mergedFields[size++] = idFields[i++];
+                    continue;
+                }
+                if (i < ids.length && ids[i] == change.getKey()) {
+                    i++;
+                }
+                if (change.getValue() != REMOVED) {
+                    mergedIds[size] = change.getKey();
+                    mergedFields[size++] = change.getValue();
+                }
+                change = pending.hasNext() ? pending.next() : null;
+            }
+            return size == 0 ? null : new Postings(Arrays.copyOf(mergedIds, size), Arrays.copyOf(mergedFields, size));
+        }
+    }
+
+    private static class PostingsBuilder {
+        private final String term;
+        private long[] productIds = new long[4];
+        private byte[] fields = new byte[4];
+        private int size;
+
+        PostingsBuilder(String term) {
+            this.term = term;
+        }
+
+        void add(long productId, byte productFields) {
+            if (size == productIds.length) {
+                productIds = Arrays.copyOf(productIds, size * 2);
+                fields = Arrays.copyOf(fields, size * 2);
+            }
+            productIds[size] = productId;
+            fields[size] = productFields;
+            size++;
+        }
+
+        Postings build() {
+            return new Postings(Arrays.copyOf(productIds, size), Arrays.copyOf(fields, size));
+        }
+    }
+}
@@ -1,12 +1,23 @@
 package org.security.productservice.service;
 
+import org.security.productservice.dto.BatchReservationResultDTO;
+import org.security.productservice.dto.CatalogVersionDTO;
 import org.security.productservice.dto.ProductDTO;
+import org.security.productservice.dto.ProductSummaryDTO;
+import org.security.productservice.dto.StockReservationDTO;
 import org.security.productservice.model.Product;
 import org.security.productservice.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -14,21 +25,90 @@ import java.util.stream.Collectors;
 public class ProductService {
 
     private final ProductRepository productRepository;
+    private final StockBucketService stockBucketService;
+    private final ProductCache productCache;
+    private final ProductChangeFeed productChangeFeed;
+    private final ProductSearchIndex productSearchIndex;
+    private final StockAvailabilityIndex stockAvailabilityIndex;
+    private final ReservationStrategy reservationStrategy;
 
-    public ProductService(ProductRepository productRepository) {
+    public ProductService(ProductRepository productRepository,
+                          StockBucketService stockBucketService,
+                          ProductCache productCache,
+                          ProductChangeFeed productChangeFeed,
+                          ProductSearchIndex productSearchIndex,
+                          StockAvailabilityIndex stockAvailabilityIndex,
+                          @Value("${product.stock.reservation-strategy:CONDITIONAL_UPDATE}") ReservationStrategy reservationStrategy) {
         this.productRepository = productRepository;
+        this.stockBucketService = stockBucketService;
+        this.productCache = productCache;
+        this.productChangeFeed = productChangeFeed;
+        this.productSearchIndex = productSearchIndex;
+        this.stockAvailabilityIndex = stockAvailabilityIndex;
+        this.reservationStrategy = reservationStrategy;
     }
 
     public List<ProductDTO> getAllProducts() {
-        return productRepository.findAll().stream()
+        return productCache.getCatalog(() -> productRepository.findAll().stream()
                 .map(this::convertToDTO)
-                .collect(Collectors.toList());
+                .collect(Collectors.toList()));
     }
 
     public ProductDTO getProductById(Long id) {
-        Product product = productRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Product not found with id: " + id));
-        return convertToDTO(product);
+        return productCache.getProduct(id, productId -> {
+            Product product = productRepository.findById(productId)
+                    .orElseThrow(() -> new RuntimeException("Product not found with id: " + productId));
+            return convertToDTO(product);
+        });
+    }
+
+    // Products by id through the product cache, the uncached ones read with one findAllById;
+    // unknown ids are absent from the result
+    @Transactional(readOnly = true)
+    public Map<Long, ProductDTO> getProductsByIds(Collection<Long> ids) {
+        return productCache.getProducts(ids, missingIds -> productRepository.findAllById(new ArrayList<Long>(missingIds))
+                .stream()
+                .map(this::convertToDTO)
+                .collect(Collectors.toMap(ProductDTO::getId, Function.identity())));
+    }
+
+    // Computed from aggregates without loading the catalog; equals catalogETag(getAllProducts())
+    // while the cached catalog is current. Bucketed stock is added on top because bucket
+    // reservations do not bump the product version.
+    @Transactional(readOnly = true)
+    public String getCatalogETag() {
+        CatalogVersionDTO catalogVersion = productRepository.findCatalogVersion();
+        long stockSum = catalogVersion.getStockSum() + stockBucketService.getTotalStockOfAllProducts();
+        return catalogETag(catalogVersion.getProductCount(), catalogVersion.getMaxId(),
+                catalogVersion.getVersionSum(), stockSum);
+    }
+
+    public static String catalogETag(List<ProductDTO> products) {
+        long maxId = 0;
+        long versionSum = 0;
+        long stockSum = 0;
+        for (ProductDTO product : products) {
+            maxId = Math.max(maxId, product.getId());
+            versionSum += product.getVersion() != null ? product.getVersion() : 0;
+            stockSum += product.getStockQuantity() != null ? product.getStockQuantity() : 0;
+        }
+        return catalogETag(products.size(), maxId, versionSum, stockSum);
+    }
+
+    // The stock is part of the tag since bucket reservations leave the version unchanged
+    public static String productETag(ProductDTO product) {
+        return "\"" + product.getVersion() + "-" + product.getStockQuantity() + "\"";
+    }
+
+    private static String catalogETag(long productCount, long maxId, long versionSum, long stockSum) {
+        return "\"" + productCount + "-" + maxId + "-" + versionSum + "-" + stockSum + "\"";
+    }
+
+    // Resolves a whole cart in one query; unknown ids are simply absent from the result
+    public List<ProductSummaryDTO> getProductSummariesByIds(Collection<Long> ids) {
+        return productRepository.findAllById(ids).stream()
+                .map(this::convertToSummaryDTO)
+                .collect(Collectors.toList());
     }
 
     @Transactional
@@ -39,7 +119,12 @@ public class ProductService {
 
         Product product = convertToEntity(productDTO);
         Product savedProduct = productRepository.save(product);
-        return convertToDTO(savedProduct);
+        productCache.evictCatalog();
+        productChangeFeed.recordChange(savedProduct.getId(), savedProduct.getName(), savedProduct.getPrice(), false);
+        ProductDTO createdProduct = convertToDTO(savedProduct);
+        productSearchIndex.index(createdProduct);
+        stockAvailabilityIndex.update(createdProduct);
+        return createdProduct;
     }
 
     @Transactional
@@ -52,14 +137,31 @@ public class ProductService {
             productRepository.existsByName(productDTO.getName())) {
             throw new RuntimeException("Product with name '" + productDTO.getName() + "' already exists");
         }
+        boolean catalogChanged = !existingProduct.getName().equals(productDTO.getName())
+                || !Objects.equals(existingProduct.getPrice(), productDTO.getPrice());
+        boolean searchableChanged = catalogChanged
+                || !Objects.equals(existingProduct.getDescription(), productDTO.getDescription());
 
         existingProduct.setName(productDTO.getName());
         existingProduct.setDescription(productDTO.getDescription());
         existingProduct.setPrice(productDTO.getPrice());
-        existingProduct.setStockQuantity(productDTO.getStockQuantity());
+        if (StockBucketService.isBucketed(existingProduct)) {
+            stockBucketService.setTotalStock(id, productDTO.getStockQuantity());
+        } else {
+            existingProduct.setStockQuantity(productDTO.getStockQuantity());
+        }
 
         Product updatedProduct = productRepository.save(existingProduct);
-        return convertToDTO(updatedProduct);
+        productCache.evictProduct(id);
+        if (catalogChanged) {
+            productChangeFeed.recordChange(id, updatedProduct.getName(), updatedProduct.getPrice(), false);
+        }
+        ProductDTO result = convertToDTO(updatedProduct);
+        if (searchableChanged) {
+            productSearchIndex.index(result);
+        }
+        stockAvailabilityIndex.update(result);
+        return result;
     }
 
     @Transactional
@@ -68,14 +170,86 @@ public class ProductService {
             throw new RuntimeException("Product not found with id: " + id);
         }
         productRepository.deleteById(id);
+        productCache.evictProduct(id);
+        productChangeFeed.recordChange(id, null, null, true);
+        productSearchIndex.remove(id);
+        stockAvailabilityIndex.remove(id);
+    }
+
+    // Upserts one chunk of a bulk import by name in one transaction: the chunk's existing rows
+    // are read with one query, and Hibernate sends the inserts and updates in JDBC batches
+    // (possible because product ids come from a pooled sequence). Names must be distinct.
+    @Transactional
+    public BulkUpsertCounts upsertChunk(List<ProductDTO> productDTOs) {
+        List<String> names = productDTOs.stream().map(ProductDTO::getName).collect(Collectors.toList());
+        Map<String, Product> existingByName = productRepository.findByNameIn(names).stream()
+                .collect(Collectors.toMap(Product::getName, Function.identity()));
+
+        List<Product> products = new ArrayList<>(productDTOs.size());
+        List<Product> catalogChanges = new ArrayList<>();
+        int created = 0;
+        for (ProductDTO productDTO : productDTOs) {
+            Product product = existingByName.get(productDTO.getName());
+            if (product == null) {
+                product = convertToEntity(productDTO);
+                catalogChanges.add(product);
+                created++;
+            } else {
+                if (!Objects.equals(product.getPrice(), productDTO.getPrice())) {
+                    catalogChanges.add(product);
+                }
+                product.setDescription(productDTO.getDescription());
+                product.setPrice(productDTO.getPrice());
+                if (StockBucketService.isBucketed(product)) {
+                    stockBucketService.setTotalStock(product.getId(), productDTO.getStockQuantity());
+                } else {
+                    product.setStockQuantity(productDTO.getStockQuantity());
+                }
+            }
+            products.add(product);
+        }
+
+        productRepository.saveAll(products);
+        productChangeFeed.recordChanges(catalogChanges);
+        List<ProductDTO> upserted = products.stream().map(this::convertToDTO).collect(Collectors.toList());
+        productSearchIndex.index(upserted);
+        stockAvailabilityIndex.update(upserted);
+        for (Product product : products) {
+            productCache.evictProduct(product.getId());
+        }
+        return new BulkUpsertCounts(created, products.size() - created);
     }
 
     // Method for command service to check and reserve stock
     @Transactional
     public boolean checkAndReserveStock(Long productId, Integer quantity) {
+        boolean reserved = reservationStrategy == ReservationStrategy.PESSIMISTIC_LOCK
+                ? checkAndReserveStockWithLock(productId, quantity)
+                : checkAndReserveStockConditionally(productId, quantity);
+        if (reserved) {
+            productCache.evictProduct(productId);
+            stockAvailabilityIndex.adjust(productId, -quantity);
+        }
+        return reserved;
+    }
+
+    private boolean checkAndReserveStockConditionally(Long productId, Integer quantity) {
+        // The affected row count decides success, no row lock is held across a read-modify-write
+        if (productRepository.decrementStockIfAvailable(productId, quantity) == 1) {
+            return true;
+        }
+        int bucketCount = productRepository.findStockBucketCountById(productId)
+                .orElseThrow(() -> new RuntimeException("Product not found with id: " + productId));
+        return bucketCount > 0 && stockBucketService.reserve(productId, bucketCount, quantity);
+    }
+
+    private boolean checkAndReserveStockWithLock(Long productId, Integer quantity) {
         Product product = productRepository.findByIdWithLock(productId)
                 .orElseThrow(() -> new RuntimeException("Product not found with id: " + productId));
 
+        if (StockBucketService.isBucketed(product)) {
+            return stockBucketService.reserve(productId, product.getStockBucketCount(), quantity);
+        }
         if (product.getStockQuantity() < quantity) {
             return false;
         }
@@ -85,13 +259,148 @@ public class ProductService {
         return true;
     }
 
+    // Applies the reservations ReservationCombiner collected for one product with a single
+    // UPDATE, accepting them in arrival order while stock lasts. The row stays locked from the
+    // read to the UPDATE, so the accepted total is always available; an UPDATE that matches no
+    // row means the stock changed under the lock, and the batch fails instead of over-promising.
+    @Transactional
+    public List<Boolean> checkAndReserveStockInArrivalOrder(Long productId, List<Integer> quantities) {
+        Product product = productRepository.findByIdWithLock(productId)
+                .orElseThrow(() -> new RuntimeException("Product not found with id: " + productId));
+        productCache.evictProduct(productId);
+
+        List<Boolean> results = new ArrayList<>(quantities.size());
+        int reservedTotal = 0;
+        if (StockBucketService.isBucketed(product)) {
+            for (Integer quantity : quantities) {
+                boolean accepted = stockBucketService.reserve(productId, product.getStockBucketCount(), quantity);
+                if (accepted) {
+                    reservedTotal += quantity;
+                }
+                results.add(accepted);
+            }
+        } else {
+            int remaining = product.getStockQuantity();
+            for (Integer quantity : quantities) {
+                boolean accepted = quantity <= remaining;
+                if (accepted) {
+                    remaining -= quantity;
+                    reservedTotal += quantity;
+                }
+                results.add(accepted);
+            }
+            if (reservedTotal > 0 && productRepository.decrementStockIfAvailable(productId, reservedTotal) != 1) {
+                throw new RuntimeException("Stock of locked product " + productId + " changed before reserving " + reservedTotal);
+            }
+        }
+        if (reservedTotal > 0) {
+            stockAvailabilityIndex.adjust(productId, -reservedTotal);
+        }
+        return results;
+    }
+
+    // Method for command service to reserve a whole cart at once. Rows are locked in
+    // ascending product id order so concurrent carts cannot deadlock, and nothing is
+    // decremented unless every line can be served.
+    @Transactional
+    public BatchReservationResultDTO checkAndReserveStockBatch(List<StockReservationDTO> reservations) {
+        Map<Long, Integer> quantitiesByProduct = mergeReservations(reservations);
+
+        List<Product> lockedProducts = new ArrayList<>();
+        List<Long> insufficientProductIds = new ArrayList<>();
+        for (Map.Entry<Long, Integer> entry : quantitiesByProduct.entrySet()) {
+            Product product = productRepository.findByIdWithLock(entry.getKey())
+                    .orElseThrow(() -> new RuntimeException("Product not found with id: " + entry.getKey()));
+            if (availableStock(product) < entry.getValue()) {
+                insufficientProductIds.add(product.getId());
+            }
+            lockedProducts.add(product);
+        }
+
+        if (!insufficientProductIds.isEmpty()) {
+            return new BatchReservationResultDTO(false, insufficientProductIds);
+        }
+
+        for (Product product : lockedProducts) {
+            Integer quantity = quantitiesByProduct.get(product.getId());
+            if (!StockBucketService.isBucketed(product)) {
+                product.setStockQuantity(product.getStockQuantity() - quantity);
+            } else if (!stockBucketService.reserveAcrossBuckets(product.getId(), quantity)) {
+                // Single-bucket reservations do not lock the products row; roll the whole cart back
+                throw new RuntimeException("Stock changed concurrently for product: " + product.getId());
+            }
+            productCache.evictProduct(product.getId());
+            stockAvailabilityIndex.adjust(product.getId(), -quantity);
+        }
+        productRepository.saveAll(lockedProducts);
+        return new BatchReservationResultDTO(true, List.of());
+    }
+
+    // Compensation for checkAndReserveStockBatch when the caller could not complete its order
+    @Transactional
+    public void releaseStockBatch(List<StockReservationDTO> releases) {
+        for (Map.Entry<Long, Integer> entry : mergeReservations(releases).entrySet()) {
+            Long productId = entry.getKey();
+            int bucketCount = productRepository.findStockBucketCountById(productId)
+                    .orElseThrow(() -> new RuntimeException("Product not found with id: " + productId));
+            if (bucketCount > 0) {
+                stockBucketService.release(productId, bucketCount, entry.getValue());
+            } else {
+                productRepository.incrementStock(productId, entry.getValue());
+            }
+            productCache.evictProduct(productId);
+            stockAvailabilityIndex.adjust(productId, entry.getValue());
+        }
+    }
+
+    // Sums duplicate lines per product; the TreeMap gives the ascending lock order
+    private Map<Long, Integer> mergeReservations(List<StockReservationDTO> reservations) {
+        Map<Long, Integer> quantitiesByProduct = new TreeMap<>();
+        for (StockReservationDTO reservation : reservations) {
+            if (reservation.getProductId() == null || reservation.getQuantity() == null || reservation.getQuantity() <= 0) {
+                throw new RuntimeException("Invalid reservation line: " + reservation);
+            }
+            quantitiesByProduct.merge(reservation.getProductId(), reservation.getQuantity(), Integer::sum);
+        }
+        return quantitiesByProduct;
+    }
+
+    @Transactional
+    public ProductDTO configureStockBuckets(Long id, Integer bucketCount) {
+        stockBucketService.configureBuckets(id, bucketCount);
+        return getProductById(id);
+    }
+
+    @Transactional
+    public ProductDTO rebalanceStockBuckets(Long id) {
+        stockBucketService.rebalance(id);
+        return getProductById(id);
+    }
+
+    // A bucketed product's stock is the sum of its buckets, its stock_quantity column stays at 0
+    private int availableStock(Product product) {
+        if (StockBucketService.isBucketed(product)) {
+            return stockBucketService.getTotalStock(product.getId());
+        }
+        return product.getStockQuantity();
+    }
+
     private ProductDTO convertToDTO(Product product) {
         return new ProductDTO(
                 product.getId(),
                 product.getName(),
                 product.getDescription(),
                 product.getPrice(),
-                product.getStockQuantity()
+                availableStock(product),
+                product.getVersion()
+        );
+    }
+
+    private ProductSummaryDTO convertToSummaryDTO(Product product) {
+        return new ProductSummaryDTO(
+                product.getId(),
+                product.getName(),
+                product.getPrice()
         );
     }
 
@@ -103,4 +412,11 @@ public class ProductService {
         product.setStockQuantity(productDTO.getStockQuantity());
         return product;
     }
+
+    public record BulkUpsertCounts(int created, int updated) {
+    }
+
+    public enum ReservationStrategy {
+        CONDITIONAL_UPDATE, PESSIMISTIC_LOCK
+    }
 }
@@ -0,0 +1,126 @@
+package org.security.productservice.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Collects concurrent reservations for the same product over a short window and applies
+// them in one transaction, so hundreds of callers cost one row lock instead of hundreds.
+@Component
+public class ReservationCombiner {
+
+    private final ProductService productService;
+    private final boolean enabled;
+    private final long windowMillis;
+    private final int maxBatchSize;
+
+    private final DistributionSummary batchSize;
+    private final Timer queueWait;
+
+    private final ConcurrentHashMap<Long, PendingBatch> pendingBatches = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler =
+            Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("reservation-combiner").daemon().factory());
+    private final ExecutorService flushExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public ReservationCombiner(ProductService productService,
+                               MeterRegistry meterRegistry,
+                               @Value("${product.stock.combining.enabled:false}") boolean enabled,
+                               @Value("${product.stock.combining.window-ms:5}") long windowMillis,
+                               @Value("${product.stock.combining.max-batch-size:64}") int maxBatchSize) {
+        this.productService = productService;
+        this.enabled = enabled;
+        this.windowMillis = windowMillis;
+        this.maxBatchSize = maxBatchSize;
+        this.batchSize = DistributionSummary.builder("product.reservation.combiner.batch.size")
+                .description("Number of reservations applied per combined transaction")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.queueWait = Timer.builder("product.reservation.combiner.queue.wait")
+                .description("Time a reservation waits in the combining queue before its batch is applied")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    public CompletableFuture<Boolean> reserve(Long productId, Integer quantity) {
+        if (!enabled) {
+            return CompletableFuture.completedFuture(productService.checkAndReserveStock(productId, quantity));
+        }
+
+        PendingReservation reservation = new PendingReservation(quantity, System.nanoTime(), new CompletableFuture<>());
+        PendingBatch[] fullBatch = new PendingBatch[1];
+        pendingBatches.compute(productId, (id, batch) -> {
+            if (batch == null) {
+                batch = new PendingBatch(id);
+                scheduleFlush(batch);
+            }
+            batch.reservations.add(reservation);
+            if (batch.reservations.size() >= maxBatchSize) {
+                fullBatch[0] = batch;
+                return null;
+            }
+            return batch;
+        });
+        if (fullBatch[0] != null) {
+            flushExecutor.execute(() -> flush(fullBatch[0]));
+        }
+        return reservation.result;
+    }
+
+    private void scheduleFlush(PendingBatch batch) {
+        scheduler.schedule(() -> {
+            // A batch that already hit the size cap has been removed and flushed
+            if (pendingBatches.remove(batch.productId, batch)) {
+                flushExecutor.execute(() -> flush(batch));
+            }
+        }, windowMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void flush(PendingBatch batch) {
+        List<PendingReservation> reservations = batch.reservations;
+        long flushStart = System.nanoTime();
+        for (PendingReservation reservation : reservations) {
+            queueWait.record(flushStart - reservation.enqueuedAt, TimeUnit.NANOSECONDS);
+        }
+        batchSize.record(reservations.size());
+
+        try {
+            List<Integer> quantities = reservations.stream().map(PendingReservation::quantity).toList();
+            List<Boolean> results = productService.checkAndReserveStockInArrivalOrder(batch.productId, quantities);
+            for (int i = 0; i < reservations.size(); i++) {
+                reservations.get(i).result.complete(results.get(i));
+            }
+        } catch (RuntimeException e) {
+            reservations.forEach(reservation -> reservation.result.completeExceptionally(e));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdown();
+        flushExecutor.shutdown();
+    }
+
+    private record PendingReservation(Integer quantity, long enqueuedAt, CompletableFuture<Boolean> result) {
+    }
+
+    private static class PendingBatch {
+        private final Long productId;
+        private final List<PendingReservation> reservations = new ArrayList<>();
+
+        PendingBatch(Long productId) {
+            this.productId = productId;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package org.security.productservice.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+// Remembers the outcome of POST /products/{id}/reserve by the caller's request id for ttl-ms,
+// so a retry of a call whose response was lost gets the first answer instead of reserving
+// the stock a second time. A retry that arrives while the first call is still running
+// shares its result. Failed calls are forgotten, so they can be retried.
+@Component
+public class ReservationIdempotencyStore {
+
+    private static final int MAX_REQUEST_ID_LENGTH = 64;
+
+    private final ReservationCombiner reservationCombiner;
+    private final Cache<String, Reservation> reservations;
+    private final Counter replays;
+
+    public ReservationIdempotencyStore(ReservationCombiner reservationCombiner,
+                                       MeterRegistry meterRegistry,
+                                       @Value("${product.stock.idempotency.ttl-ms:600000}") long ttlMillis,
+                                       @Value("${product.stock.idempotency.maximum-size:100000}") long maximumSize) {
+        this.reservationCombiner = reservationCombiner;
+        this.reservations = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofMillis(ttlMillis))
+                .build();
+        this.replays = Counter.builder("product.reservation.idempotency.replays")
+                .description("Reservations answered from a previous call with the same request id")
+                .register(meterRegistry);
+        Gauge.builder("product.reservation.idempotency.size", reservations, Cache::estimatedSize)
+                .description("Request ids currently remembered for reservation replays")
+                .register(meterRegistry);
+    }
+
+    // Without a request id the reservation is simply applied
+    public CompletableFuture<Boolean> reserve(String requestId, Long productId, Integer quantity) {
+        if (requestId == null) {
+            return reservationCombiner.reserve(productId, quantity);
+        }
+        if (requestId.isBlank() || requestId.length() > MAX_REQUEST_ID_LENGTH) {
+            throw new RuntimeException("Request id must be 1 to " + MAX_REQUEST_ID_LENGTH + " characters");
+        }
+
+        Reservation reservation = new Reservation(productId, quantity, new CompletableFuture<>());
+        Reservation existing = reservations.asMap().putIfAbsent(requestId, reservation);
+        if (existing != null) {
+            if (!existing.productId().equals(productId) || !existing.quantity().equals(quantity)) {
+                throw new RequestIdReusedException("Request id " + requestId + " was already used for another reservation");
+            }
+            replays.increment();
+            return existing.result();
+        }
+
+        CompletableFuture<Boolean> result;
+        try {
+            result = reservationCombiner.reserve(productId, quantity);
+        } catch (RuntimeException e) {
+            result = CompletableFuture.failedFuture(e);
+        }
+        result.whenComplete((reserved, failure) -> {
+            if (failure != null) {
+                reservations.asMap().remove(requestId, reservation);
+                reservation.result().completeExceptionally(failure);
+            } else {
+                reservation.result().complete(reserved);
+            }
+        });
+        return reservation.result();
+    }
+
+    // The request is kept to reject a reused id; the outcome is a single Boolean
+    private record Reservation(Long productId, Integer quantity, CompletableFuture<Boolean> result) {
+    }
+
+    public static class RequestIdReusedException extends RuntimeException {
+        public RequestIdReusedException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package org.security.productservice.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.security.productservice.dto.ProductAvailabilityDTO;
+import org.security.productservice.dto.ProductDTO;
+import org.security.productservice.dto.StockLevelDTO;
+import org.security.productservice.repository.ProductRepository;
+import org.security.productservice.repository.StockBucketRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+// Current stock of every product in a primitive long -> int map, behind POST /products/availability.
+// It is built from the database once the application is ready and then adjusted by ProductService
+// after every committed stock change. Changes to one product that commit at nearly the same
+// time may be applied out of order, so the index is a fast hint: a periodic resync from the
+// database corrects any drift, and reserving stock remains the authoritative check.
+@Component
+public class StockAvailabilityIndex {
+
+    static final int MAX_IDS_PER_REQUEST = 10_000;
+    private static final int MISSING = -1;
+
+    private final ProductRepository productRepository;
+    private final StockBucketRepository stockBucketRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final long resyncIntervalMillis;
+
+    // Lookups of a whole request share one read lock; each committed change takes the write lock briefly
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private LongIntHashMap stockByProduct = new LongIntHashMap(0);
+    private volatile boolean ready;
+
+    private final ScheduledExecutorService scheduler =
+            Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("stock-availability-resync").daemon().factory());
+
+    public StockAvailabilityIndex(ProductRepository productRepository,
+                                  StockBucketRepository stockBucketRepository,
+                                  PlatformTransactionManager transactionManager,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${product.availability.resync-interval-ms:60000}") long resyncIntervalMillis) {
+        this.productRepository = productRepository;
+        this.stockBucketRepository = stockBucketRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.resyncIntervalMillis = resyncIntervalMillis;
+        Gauge.builder("product.availability.index.size", this, StockAvailabilityIndex::size)
+                .description("Number of products in the stock availability index")
+                .register(meterRegistry);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        rebuild();
+        if (resyncIntervalMillis > 0) {
+            scheduler.scheduleWithFixedDelay(this::resync, resyncIntervalMillis, resyncIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // An exception would cancel the schedule; a failed resync keeps the current map until the next one
+    private void resync() {
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            System.err.println("Stock availability resync failed: " + e.getMessage());
+        }
+    }
+
+    public void rebuild() {
+        readOnlyTransaction.executeWithoutResult(status -> {
+            List<StockLevelDTO> bucketTotals = stockBucketRepository.sumQuantitiesByProduct();
+            try (Stream<StockLevelDTO> productStock = productRepository.streamStockLevels()) {
+                rebuild(productStock, bucketTotals);
+            }
+        });
+    }
+
+    // The new map is filled without holding the lock and swapped in at the end
+    void rebuild(Stream<StockLevelDTO> productStock, List<StockLevelDTO> bucketTotals) {
+        LongIntHashMap rebuilt = new LongIntHashMap(size());
+        productStock.forEach(level -> rebuilt.put(level.getProductId(), toInt(level.getQuantity())));
+        for (StockLevelDTO bucketTotal : bucketTotals) {
+            rebuilt.addTo(bucketTotal.getProductId(), toInt(bucketTotal.getQuantity()));
+        }
+
+        lock.writeLock().lock();
+        try {
+            stockByProduct = rebuilt;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        ready = true;
+    }
+
+    // Unknown ids are left out of the result
+    public List<ProductAvailabilityDTO> getAvailability(Collection<Long> productIds) {
+        if (productIds.size() > MAX_IDS_PER_REQUEST) {
+            throw new RuntimeException("At most " + MAX_IDS_PER_REQUEST + " product ids per request");
+        }
+        List<ProductAvailabilityDTO> availability = new ArrayList<>(productIds.size());
+        lock.readLock().lock();
+        try {
+            for (Long productId : productIds) {
+                int stock = productId != null ? stockByProduct.get(productId, MISSING) : MISSING;
+                if (stock != MISSING) {
+                    availability.add(new ProductAvailabilityDTO(productId, stock, stock > 0));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return availability;
+    }
+
+    // Changes apply once the surrounding transaction commits, so a rolled back change never shows up
+    public void update(ProductDTO product) {
+        update(List.of(product));
+    }
+
+    // Sets the absolute stock of products just created or updated
+    public void update(List<ProductDTO> products) {
+        afterCommit(() -> write(map -> {
+            for (ProductDTO product : products) {
+                map.put(product.getId(), product.getStockQuantity());
+            }
+        }));
+    }
+
+    // Applies a reservation (negative delta) or a release; a product not yet indexed is left
+    // for the next resync since its base stock is unknown here
+    public void adjust(Long productId, int delta) {
+        afterCommit(() -> write(map -> map.addTo(productId, delta)));
+    }
+
+    public void remove(Long productId) {
+        afterCommit(() -> write(map -> map.remove(productId)));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdown();
+    }
+
+    private int size() {
+        lock.readLock().lock();
+        try {
+            return stockByProduct.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void write(Consumer<LongIntHashMap> change) {
+        lock.writeLock().lock();
+        try {
+            change.accept(stockByProduct);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static int toInt(Long quantity) {
+        return quantity != null ? Math.toIntExact(quantity) : 0;
+    }
+
+    private static void afterCommit(Runnable change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    change.run();
+                }
+            });
+        } else {
+            change.run();
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package org.security.productservice.service;
+
+import org.security.productservice.model.Product;
+import org.security.productservice.model.StockBucket;
+import org.security.productservice.repository.ProductRepository;
+import org.security.productservice.repository.StockBucketRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Splits the stock of hot products across several stock_buckets rows ("escrow") so that
+// concurrent reservations update different rows instead of queueing on the products row.
+@Service
+@Transactional
+public class StockBucketService {
+
+    static final int MAX_BUCKETS = 64;
+
+    private final StockBucketRepository stockBucketRepository;
+    private final ProductRepository productRepository;
+
+    public StockBucketService(StockBucketRepository stockBucketRepository, ProductRepository productRepository) {
+        this.stockBucketRepository = stockBucketRepository;
+        this.productRepository = productRepository;
+    }
+
+    public static boolean isBucketed(Product product) {
+        return product.getStockBucketCount() != null && product.getStockBucketCount() > 0;
+    }
+
+    // Tries the bucket picked for the calling thread first, then its siblings, and only
+    // locks every bucket when no single one can serve the whole quantity
+    public boolean reserve(Long productId, int bucketCount, Integer quantity) {
+        int start = bucketForCurrentThread(bucketCount);
+        for (int i = 0; i < bucketCount; i++) {
+            int bucketIndex = (start + i) % bucketCount;
+            if (stockBucketRepository.decrementIfAvailable(productId, bucketIndex, quantity) == 1) {
+                return true;
+            }
+        }
+        return reserveAcrossBuckets(productId, quantity);
+    }
+
+    // Returned stock goes back to the calling thread's bucket; rebalance evens it out later
+    public void release(Long productId, int bucketCount, Integer quantity) {
+        stockBucketRepository.incrementQuantity(productId, bucketForCurrentThread(bucketCount), quantity);
+    }
+
+    public boolean reserveAcrossBuckets(Long productId, Integer quantity) {
+        List<StockBucket> buckets = stockBucketRepository.findByProductIdWithLock(productId);
+        int total = buckets.stream().mapToInt(StockBucket::getQuantity).sum();
+        if (total < quantity) {
+            return false;
+        }
+
+        int remaining = quantity;
+        for (StockBucket bucket : buckets) {
+            int taken = Math.min(bucket.getQuantity(), remaining);
+            bucket.setQuantity(bucket.getQuantity() - taken);
+            remaining -= taken;
+            if (remaining == 0) {
+                break;
+            }
+        }
+        stockBucketRepository.saveAll(buckets);
+        return true;
+    }
+
+    public int getTotalStock(Long productId) {
+        return (int) stockBucketRepository.sumQuantityByProductId(productId);
+    }
+
+    public long getTotalStockOfAllProducts() {
+        return stockBucketRepository.sumAllQuantities();
+    }
+
+    // Moves the product's stock into bucketCount buckets, or back into the products row when bucketCount is 0
+    public void configureBuckets(Long productId, int bucketCount) {
+        if (bucketCount < 0 || bucketCount > MAX_BUCKETS) {
+            throw new RuntimeException("Bucket count must be between 0 and " + MAX_BUCKETS);
+        }
+        Product product = productRepository.findByIdWithLock(productId)
+                .orElseThrow(() -> new RuntimeException("Product not found with id: " + productId));
+
+        int total = isBucketed(product) ? lockedTotal(productId) : product.getStockQuantity();
+        stockBucketRepository.deleteByProductId(productId);
+        if (bucketCount == 0) {
+            product.setStockQuantity(total);
+        } else {
+            product.setStockQuantity(0);
+            stockBucketRepository.saveAll(split(productId, total, bucketCount));
+        }
+        product.setStockBucketCount(bucketCount);
+        productRepository.save(product);
+    }
+
+    // Evens out buckets that reservations have drained unevenly
+    public void rebalance(Long productId) {
+        Product product = productRepository.findByIdWithLock(productId)
+                .orElseThrow(() -> new RuntimeException("Product not found with id: " + productId));
+        if (!isBucketed(product)) {
+            throw new RuntimeException("Stock buckets are not enabled for product: " + productId);
+        }
+        setTotalStock(productId, lockedTotal(productId));
+    }
+
+    // Overwrites the product's total stock, spreading it evenly over its existing buckets
+    public void setTotalStock(Long productId, int total) {
+        List<StockBucket> buckets = stockBucketRepository.findByProductIdWithLock(productId);
+        int bucketCount = buckets.size();
+        for (int i = 0; i < bucketCount; i++) {
+            buckets.get(i).setQuantity(share(total, bucketCount, i));
+        }
+        stockBucketRepository.saveAll(buckets);
+    }
+
+    private static int bucketForCurrentThread(int bucketCount) {
+        return Math.floorMod(Long.hashCode(Thread.currentThread().threadId() * 0x9E3779B97F4A7C15L), bucketCount);
+    }
+
+    private int lockedTotal(Long productId) {
+        return stockBucketRepository.findByProductIdWithLock(productId).stream()
+                .mapToInt(StockBucket::getQuantity)
+                .sum();
+    }
+
+    private List<StockBucket> split(Long productId, int total, int bucketCount) {
+        List<StockBucket> buckets = new ArrayList<>(bucketCount);
+        for (int i = 0; i < bucketCount; i++) {
+            buckets.add(new StockBucket(null, productId, i, share(total, bucketCount, i)));
+        }
+        return buckets;
+    }
+
+    // The remainder of an uneven split goes to the lowest bucket indexes
+    private static int share(int total, int bucketCount, int bucketIndex) {
+        return total / bucketCount + (bucketIndex < total % bucketCount ? 1 : 0);
+    }
+}
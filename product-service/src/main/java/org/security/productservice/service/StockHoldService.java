@@ -0,0 +1,153 @@
+package org.security.productservice.service;
+
+import org.security.productservice.dto.BatchReservationResultDTO;
+import org.security.productservice.dto.StockReservationDTO;
+import org.security.productservice.model.StockHold;
+import org.security.productservice.repository.StockHoldRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Two-phase stock reservation for orders: hold the stock, then confirm the holds once the
+// order is persisted, or release them if it is not. Holds that are neither confirmed nor
+// released within the TTL are expired by StockHoldSweeper and their stock is returned.
+// Every call is idempotent per (hold reference, product), so callers can retry freely.
+@Service
+@Transactional
+public class StockHoldService {
+
+    private static final int MAX_REFERENCE_LENGTH = 64;
+
+    private final StockHoldRepository stockHoldRepository;
+    private final ProductService productService;
+    private final Duration ttl;
+
+    public StockHoldService(StockHoldRepository stockHoldRepository,
+                            ProductService productService,
+                            @Value("${product.stock.hold.ttl-ms:600000}") long ttlMillis) {
+        this.stockHoldRepository = stockHoldRepository;
+        this.productService = productService;
+        this.ttl = Duration.ofMillis(ttlMillis);
+    }
+
+    // All or nothing, like checkAndReserveStockBatch. Products this reference already holds
+    // (or has confirmed) are skipped; an expired hold is placed again. The existing holds are
+    // locked so that a concurrent release or retry of the same reference waits for this one;
+    // two first-time holds racing on the same product are stopped by the unique constraint.
+    public BatchReservationResultDTO hold(String holdReference, List<StockReservationDTO> items) {
+        validateReference(holdReference);
+        Map<Long, StockHold> existingByProduct = stockHoldRepository.findByHoldReferenceWithLock(holdReference).stream()
+                .collect(Collectors.toMap(StockHold::getProductId, Function.identity()));
+
+        List<StockReservationDTO> toReserve = new ArrayList<>();
+        for (Map.Entry<Long, Integer> line : mergeLines(items).entrySet()) {
+            StockHold existing = existingByProduct.get(line.getKey());
+            if (existing == null || existing.getStatus() == StockHold.HoldStatus.EXPIRED) {
+                toReserve.add(new StockReservationDTO(line.getKey(), line.getValue()));
+            } else if (existing.getStatus() == StockHold.HoldStatus.RELEASED) {
+                throw new RuntimeException("Stock holds for reference " + holdReference + " have been released");
+            }
+        }
+        if (toReserve.isEmpty()) {
+            return new BatchReservationResultDTO(true, List.of());
+        }
+
+        BatchReservationResultDTO result = productService.checkAndReserveStockBatch(toReserve);
+        if (!result.isReserved()) {
+            return result;
+        }
+        LocalDateTime expiresAt = LocalDateTime.now().plus(ttl);
+        List<StockHold> holds = new ArrayList<>(toReserve.size());
+        for (StockReservationDTO line : toReserve) {
+            StockHold hold = existingByProduct.getOrDefault(line.getProductId(), new StockHold());
+            hold.setHoldReference(holdReference);
+            hold.setProductId(line.getProductId());
+            hold.setQuantity(line.getQuantity());
+            hold.setStatus(StockHold.HoldStatus.HELD);
+            hold.setExpiresAt(expiresAt);
+            holds.add(hold);
+        }
+        stockHoldRepository.saveAll(holds);
+        return result;
+    }
+
+    // Makes the decrement permanent. Fails when any hold of the reference has already expired
+    // or been released, since its stock may have been sold again.
+    public void confirm(String holdReference) {
+        List<StockHold> holds = stockHoldRepository.findByHoldReferenceWithLock(holdReference);
+        if (holds.isEmpty()) {
+            throw new RuntimeException("No stock holds found for reference: " + holdReference);
+        }
+        for (StockHold hold : holds) {
+            if (hold.getStatus() == StockHold.HoldStatus.EXPIRED || hold.getStatus() == StockHold.HoldStatus.RELEASED) {
+                throw new RuntimeException("Stock holds for reference " + holdReference + " have already "
+                        + (hold.getStatus() == StockHold.HoldStatus.EXPIRED ? "expired" : "been released"));
+            }
+            hold.setStatus(StockHold.HoldStatus.CONFIRMED);
+        }
+        stockHoldRepository.saveAll(holds);
+    }
+
+    // Gives back the stock of held and confirmed holds alike, the latter as compensation for
+    // an order that could not be completed after all. Unknown references are a no-op.
+    public void release(String holdReference) {
+        List<StockHold> active = stockHoldRepository.findByHoldReferenceWithLock(holdReference).stream()
+                .filter(hold -> hold.getStatus() == StockHold.HoldStatus.HELD
+                        || hold.getStatus() == StockHold.HoldStatus.CONFIRMED)
+                .collect(Collectors.toList());
+        finish(active, StockHold.HoldStatus.RELEASED);
+    }
+
+    // One batch of the sweep in its own transaction; returns the number of holds expired
+    public int expireStaleHolds(LocalDateTime now, int batchSize) {
+        List<StockHold> expired = stockHoldRepository.findExpiredWithLock(now, PageRequest.ofSize(batchSize));
+        finish(expired, StockHold.HoldStatus.EXPIRED);
+        return expired.size();
+    }
+
+    public int purgeFinishedHolds(LocalDateTime expiredBefore) {
+        return stockHoldRepository.deleteFinishedBefore(expiredBefore);
+    }
+
+    private void finish(List<StockHold> holds, StockHold.HoldStatus status) {
+        if (holds.isEmpty()) {
+            return;
+        }
+        productService.releaseStockBatch(holds.stream()
+                .map(hold -> new StockReservationDTO(hold.getProductId(), hold.getQuantity()))
+                .collect(Collectors.toList()));
+        holds.forEach(hold -> hold.setStatus(status));
+        stockHoldRepository.saveAll(holds);
+    }
+
+    // One hold per product, so repeated cart lines are summed first
+    private static Map<Long, Integer> mergeLines(List<StockReservationDTO> items) {
+        if (items == null || items.isEmpty()) {
+            throw new RuntimeException("Stock hold must contain at least one item");
+        }
+        Map<Long, Integer> quantitiesByProduct = new TreeMap<>();
+        for (StockReservationDTO item : items) {
+            if (item.getProductId() == null || item.getQuantity() == null || item.getQuantity() <= 0) {
+                throw new RuntimeException("Invalid reservation line: " + item);
+            }
+            quantitiesByProduct.merge(item.getProductId(), item.getQuantity(), Integer::sum);
+        }
+        return quantitiesByProduct;
+    }
+
+    private static void validateReference(String holdReference) {
+        if (holdReference == null || holdReference.isBlank() || holdReference.length() > MAX_REFERENCE_LENGTH) {
+            throw new RuntimeException("Hold reference must be 1 to " + MAX_REFERENCE_LENGTH + " characters");
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package org.security.productservice.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Expires stock holds past their TTL in batches on a background thread, returning their stock,
+// then deletes finished holds older than the retention period. Each batch is a separate
+// transaction, so a large backlog never locks many rows at once.
+@Component
+public class StockHoldSweeper {
+
+    private final StockHoldService stockHoldService;
+    private final long intervalMillis;
+    private final int batchSize;
+    private final Duration retention;
+    private final Counter expiredHolds;
+
+    private final ScheduledExecutorService scheduler =
+            Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("stock-hold-sweeper").daemon().factory());
+
+    public StockHoldSweeper(StockHoldService stockHoldService,
+                            MeterRegistry meterRegistry,
+                            @Value("${product.stock.hold.sweep-interval-ms:5000}") long intervalMillis,
+                            @Value("${product.stock.hold.sweep-batch-size:500}") int batchSize,
+                            @Value("${product.stock.hold.retention-ms:86400000}") long retentionMillis) {
+        this.stockHoldService = stockHoldService;
+        this.intervalMillis = intervalMillis;
+        this.batchSize = batchSize;
+        this.retention = Duration.ofMillis(retentionMillis);
+        this.expiredHolds = Counter.builder("product.stock.holds.expired")
+                .description("Stock holds expired by the sweeper, their stock returned")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (intervalMillis > 0) {
+            scheduler.scheduleWithFixedDelay(this::sweep, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // An exception would cancel the schedule; a failed sweep is simply retried next time
+    void sweep() {
+        try {
+            int expired;
+            do {
+                expired = stockHoldService.expireStaleHolds(LocalDateTime.now(), batchSize);
+                expiredHolds.increment(expired);
+            } while (expired == batchSize);
+            stockHoldService.purgeFinishedHolds(LocalDateTime.now().minus(retention));
+        } catch (RuntimeException e) {
+            System.err.println("Stock hold sweep failed: " + e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdown();
+    }
+}
@@ -2,14 +2,14 @@
 -- This will be executed automatically by Spring Boot
 
 -- Insert sample products
-INSERT INTO products (name, description, price, stock_quantity, version) VALUES
-('Ordinateur Portable HP', 'Ordinateur portable HP Pavilion avec processeur Intel Core i5, 8GB RAM, 256GB SSD', 899.99, 15, 0),
-('Ordinateur Portable Dell', 'Ordinateur portable Dell XPS 13 avec processeur Intel Core i7, 16GB RAM, 512GB SSD', 1299.99, 8, 0),
-('Ordinateur Portable Lenovo', 'Ordinateur portable Lenovo ThinkPad avec processeur Intel Core i5, 8GB RAM, 256GB SSD', 749.99, 12, 0),
-('Ordinateur Portable ASUS', 'Ordinateur portable ASUS ROG avec processeur AMD Ryzen 7, 16GB RAM, 1TB SSD', 1499.99, 5, 0),
-('Ordinateur Portable Apple MacBook Air', 'Ordinateur portable Apple MacBook Air M2, 8GB RAM, 256GB SSD', 1199.99, 10, 0),
-('Ordinateur Portable MSI', 'Ordinateur portable MSI Gaming avec processeur Intel Core i7, 16GB RAM, 512GB SSD, RTX 3060', 1799.99, 3, 0),
-('Ordinateur Portable Acer', 'Ordinateur portable Acer Aspire avec processeur AMD Ryzen 5, 8GB RAM, 512GB SSD', 599.99, 20, 0),
-('Ordinateur Portable Samsung', 'Ordinateur portable Samsung Galaxy Book avec processeur Intel Core i5, 8GB RAM, 256GB SSD', 699.99, 7, 0),
-('Ordinateur Portable Huawei', 'Ordinateur portable Huawei MateBook avec processeur Intel Core i5, 8GB RAM, 512GB SSD', 799.99, 9, 0),
-('Ordinateur Portable LG', 'Ordinateur portable LG Gram avec processeur Intel Core i5, 8GB RAM, 256GB SSD', 949.99, 6, 0);
+INSERT INTO products (id, name, description, price, stock_quantity, version) VALUES
+(1, 'Ordinateur Portable HP', 'Ordinateur portable HP Pavilion avec processeur Intel Core i5, 8GB RAM, 256GB SSD', 899.99, 15, 0),
+(2, 'Ordinateur Portable Dell', 'Ordinateur portable Dell XPS 13 avec processeur Intel Core i7, 16GB RAM, 512GB SSD', 1299.99, 8, 0),
+(3, 'Ordinateur Portable Lenovo', 'Ordinateur portable Lenovo ThinkPad avec processeur Intel Core i5, 8GB RAM, 256GB SSD', 749.99, 12, 0),
+(4, 'Ordinateur Portable ASUS', 'Ordinateur portable ASUS ROG avec processeur AMD Ryzen 7, 16GB RAM, 1TB SSD', 1499.99, 5, 0),
+(5, 'Ordinateur Portable Apple MacBook Air', 'Ordinateur portable Apple MacBook Air M2, 8GB RAM, 256GB SSD', 1199.99, 10, 0),
+(6, 'Ordinateur Portable MSI', 'Ordinateur portable MSI Gaming avec processeur Intel Core i7, 16GB RAM, 512GB SSD, RTX 3060', 1799.99, 3, 0),
+(7, 'Ordinateur Portable Acer', 'Ordinateur portable Acer Aspire avec processeur AMD Ryzen 5, 8GB RAM, 512GB SSD', 599.99, 20, 0),
+(8, 'Ordinateur Portable Samsung', 'Ordinateur portable Samsung Galaxy Book avec processeur Intel Core i5, 8GB RAM, 256GB SSD', 699.99, 7, 0),
+(9, 'Ordinateur Portable Huawei', 'Ordinateur portable Huawei MateBook avec processeur Intel Core i5, 8GB RAM, 512GB SSD', 799.99, 9, 0),
+(10, 'Ordinateur Portable LG', 'Ordinateur portable LG Gram avec processeur Intel Core i5, 8GB RAM, 256GB SSD', 949.99, 6, 0);
@@ -2,19 +2,71 @@
 -- This will be executed automatically by Spring Boot
 
 -- Ensure the schema is clean
+DROP TABLE IF EXISTS stock_holds CASCADE;
+DROP TABLE IF EXISTS product_change_sequence CASCADE;
+DROP TABLE IF EXISTS product_changes CASCADE;
+DROP TABLE IF EXISTS stock_buckets CASCADE;
 DROP TABLE IF EXISTS products CASCADE;
+DROP SEQUENCE IF EXISTS product_id_seq;
+
+-- Product ids come from a sequence handed out in blocks of 50 (Hibernate's pooled optimizer),
+-- so inserts can be sent in JDBC batches. The sample data below takes ids 1 to 10.
+CREATE SEQUENCE product_id_seq START WITH 101 INCREMENT BY 50;
 
 -- Create products table
 CREATE TABLE products (
-    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    id BIGINT PRIMARY KEY,
     name VARCHAR(100) NOT NULL,
     description VARCHAR(500) NOT NULL,
     price DECIMAL(10,2) NOT NULL,
     stock_quantity INTEGER NOT NULL,
+    stock_bucket_count INTEGER NOT NULL DEFAULT 0,
     version BIGINT
 );
 
+-- Create stock_buckets table (stock of hot products split across several rows)
+CREATE TABLE stock_buckets (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    product_id BIGINT NOT NULL,
+    bucket_index INTEGER NOT NULL,
+    quantity INTEGER NOT NULL,
+    FOREIGN KEY (product_id) REFERENCES products(id) ON DELETE CASCADE
+);
+
+-- Create stock_holds table (stock held for orders until confirmed, released or expired)
+CREATE TABLE stock_holds (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    hold_reference VARCHAR(64) NOT NULL,
+    product_id BIGINT NOT NULL,
+    quantity INTEGER NOT NULL,
+    status VARCHAR(16) NOT NULL,
+    expires_at TIMESTAMP NOT NULL
+);
+-- The sweeper looks up expired HELD rows oldest first
+CREATE INDEX idx_stock_holds_status_expires_at ON stock_holds (status, expires_at);
+
+-- Create product_changes table (catalog change feed read by other services' replicas)
+CREATE TABLE product_changes (
+    seq BIGINT PRIMARY KEY,
+    product_id BIGINT NOT NULL,
+    name VARCHAR(100),
+    price DECIMAL(10,2),
+    deleted BOOLEAN NOT NULL,
+    changed_at TIMESTAMP NOT NULL
+);
+
+-- Single-row counter assigning product_changes.seq in commit order
+CREATE TABLE product_change_sequence (
+    id INTEGER PRIMARY KEY,
+    last_seq BIGINT NOT NULL
+);
+INSERT INTO product_change_sequence (id, last_seq) VALUES (1, 0);
+
 -- Add constraints
 ALTER TABLE products ADD CONSTRAINT products_name_unique UNIQUE (name);
 ALTER TABLE products ADD CONSTRAINT products_stock_positive CHECK (stock_quantity >= 0);
 ALTER TABLE products ADD CONSTRAINT products_price_positive CHECK (price >= 0);
+ALTER TABLE stock_buckets ADD CONSTRAINT stock_buckets_product_bucket_unique UNIQUE (product_id, bucket_index);
+ALTER TABLE stock_buckets ADD CONSTRAINT stock_buckets_quantity_positive CHECK (quantity >= 0);
+ALTER TABLE stock_holds ADD CONSTRAINT stock_holds_reference_product_unique UNIQUE (hold_reference, product_id);
+ALTER TABLE stock_holds ADD CONSTRAINT stock_holds_quantity_positive CHECK (quantity > 0);
@@ -0,0 +1,118 @@
+package org.security.productservice.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Memory per entry and lookup throughput of LongIntHashMap against HashMap<Long, Integer> for
+// one million product ids, with stock values beyond the Integer cache as in a real catalog.
+// Run with: mvn test -Dtest=LongIntHashMapBenchmarkTest -Dbenchmark=true
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class LongIntHashMapBenchmarkTest {
+
+    private static final int ENTRIES = 1_000_000;
+    private static final int LOOKUPS = 20_000_000;
+    private static final int ROUNDS = 5;
+
+    private final long[] lookupKeys = lookupKeys(new Random(3));
+
+    @Test
+    void primitiveMap_ShouldUseLessMemoryAndLookUpFaster() {
+        // When
+        double primitiveBytes = bytesPerEntry(() -> {
+            LongIntHashMap map = new LongIntHashMap(ENTRIES);
+            for (long id = 1; id <= ENTRIES; id++) {
+                map.put(id, stock(id));
+            }
+            return map;
+        });
+        double boxedBytes = bytesPerEntry(() -> {
+            Map<Long, Integer> map = new HashMap<>(ENTRIES * 4 / 3 + 1);
+            for (long id = 1; id <= ENTRIES; id++) {
+                map.put(id, stock(id));
+            }
+            return map;
+        });
+
+        LongIntHashMap primitive = new LongIntHashMap(ENTRIES);
+        Map<Long, Integer> boxed = new HashMap<>(ENTRIES * 4 / 3 + 1);
+        for (long id = 1; id <= ENTRIES; id++) {
+            primitive.put(id, stock(id));
+            boxed.put(id, stock(id));
+        }
+        double primitiveLookups = 0;
+        double boxedLookups = 0;
+        // The first round is warm-up; later rounds keep the best figure of each map
+        for (int round = 0; round < ROUNDS; round++) {
+            double primitiveRate = lookupsPerSecond(() -> {
+                long sum = 0;
+                for (long key : lookupKeys) {
+                    sum += primitive.get(key, 0);
+                }
+                return sum;
+            });
+            double boxedRate = lookupsPerSecond(() -> {
+                long sum = 0;
+                for (long key : lookupKeys) {
+                    sum += boxed.getOrDefault(key, 0);
+                }
+                return sum;
+            });
+            if (round > 0) {
+                primitiveLookups = Math.max(primitiveLookups, primitiveRate);
+                boxedLookups = Math.max(boxedLookups, boxedRate);
+            }
+        }
+
+        // Then
+        System.out.printf("LongIntHashMap:          %5.1f bytes/entry, %6.1f M lookups/s%n",
+                primitiveBytes, primitiveLookups / 1_000_000);
+        System.out.printf("HashMap<Long, Integer>:  %5.1f bytes/entry, %6.1f M lookups/s%n",
+                boxedBytes, boxedLookups / 1_000_000);
+        assertThat(primitiveBytes).isLessThan(boxedBytes / 2);
+        assertThat(primitiveLookups).isGreaterThan(boxedLookups);
+    }
+
+    private static int stock(long id) {
+        return 1_000 + (int) (id % 5_000);
+    }
+
+    private static long[] lookupKeys(Random random) {
+        long[] keys = new long[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            keys[i] = 1 + random.nextInt(ENTRIES);
+        }
+        return keys;
+    }
+
+    // Heap growth while the built map is still reachable, divided by its entries
+    private static double bytesPerEntry(Supplier<Object> build) {
+        long before = usedHeapAfterGc();
+        Object map = build.get();
+        long after = usedHeapAfterGc();
+        assertThat(map).isNotNull();
+        return (after - before) / (double) ENTRIES;
+    }
+
+    private static long usedHeapAfterGc() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static double lookupsPerSecond(Supplier<Long> lookups) {
+        long start = System.nanoTime();
+        long sum = lookups.get();
+        long elapsed = System.nanoTime() - start;
+        assertThat(sum).isPositive();
+        return LOOKUPS / (elapsed / 1_000_000_000.0);
+    }
+}
@@ -0,0 +1,69 @@
+package org.security.productservice.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LongIntHashMapTest {
+
+    @Test
+    void putGetAndAddTo_ShouldBehaveLikeAMap() {
+        // Given
+        LongIntHashMap map = new LongIntHashMap(2);
+
+        // When
+        map.put(1L, 10);
+        map.put(2L, 20);
+        map.put(1L, 11);
+        boolean added = map.addTo(2L, -5);
+        boolean addedToMissing = map.addTo(3L, 7);
+
+        // Then
+        assertThat(map.size()).isEqualTo(2);
+        assertThat(map.get(1L, -1)).isEqualTo(11);
+        assertThat(map.get(2L, -1)).isEqualTo(15);
+        assertThat(added).isTrue();
+        assertThat(addedToMissing).isFalse();
+        assertThat(map.containsKey(3L)).isFalse();
+    }
+
+    @Test
+    void randomOperations_ShouldMatchHashMapAcrossResizesAndRemovals() {
+        // Given: a small key range so that probe runs collide and removals shift entries back
+        LongIntHashMap map = new LongIntHashMap(0);
+        Map<Long, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+
+        // When
+        for (int i = 0; i < 200_000; i++) {
+            long key = 1 + random.nextInt(5_000);
+            switch (random.nextInt(3)) {
+                case 0 -> {
+                    map.put(key, i);
+                    expected.put(key, i);
+                }
+                case 1 -> assertThat(map.remove(key)).isEqualTo(expected.remove(key) != null);
+                default -> assertThat(map.get(key, -1)).isEqualTo(expected.getOrDefault(key, -1));
+            }
+        }
+
+        // Then
+        assertThat(map.size()).isEqualTo(expected.size());
+        for (long key = 1; key <= 5_000; key++) {
+            assertThat(map.get(key, -1)).isEqualTo(expected.getOrDefault(key, -1));
+        }
+    }
+
+    @Test
+    void put_ZeroKey_ShouldBeRejected() {
+        LongIntHashMap map = new LongIntHashMap(4);
+
+        assertThatThrownBy(() -> map.put(0L, 1)).isInstanceOf(IllegalArgumentException.class);
+        assertThat(map.get(0L, -1)).isEqualTo(-1);
+    }
+}
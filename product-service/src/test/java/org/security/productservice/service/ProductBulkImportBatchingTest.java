@@ -0,0 +1,75 @@
+package org.security.productservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.security.productservice.dto.BulkImportResultDTO;
+import org.security.productservice.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = {
+        "spring.sql.init.mode=never",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.properties.hibernate.jdbc.batch_size=50",
+        "spring.jpa.properties.hibernate.order_inserts=true",
+        "spring.jpa.properties.hibernate.order_updates=true"
+})
+@Import({ProductBulkImporter.class, ProductService.class, StockBucketService.class, ProductCache.class,
+        ProductChangeFeed.class, ProductSearchIndex.class, StockAvailabilityIndex.class, SimpleMeterRegistry.class, JacksonAutoConfiguration.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ProductBulkImportBatchingTest {
+
+    private static final int PRODUCTS = 500;
+
+    @Autowired
+    private ProductBulkImporter productBulkImporter;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void importProducts_ShouldBatchInsertsAndUpdates() throws Exception {
+        // Given
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        // When
+        BulkImportResultDTO created = productBulkImporter.importProducts(ProductBulkImporter.Format.NDJSON, upload("10.00"));
+        long insertStatements = statistics.getPrepareStatementCount();
+        statistics.clear();
+        BulkImportResultDTO updated = productBulkImporter.importProducts(ProductBulkImporter.Format.NDJSON, upload("12.00"));
+        long updateStatements = statistics.getPrepareStatementCount();
+
+        // Then: one statement per row would be over 1000 (product plus change feed row)
+        assertThat(created.getCreated()).isEqualTo(PRODUCTS);
+        assertThat(updated.getUpdated()).isEqualTo(PRODUCTS);
+        assertThat(productRepository.count()).isEqualTo(PRODUCTS);
+        assertThat(insertStatements).isLessThan(100);
+        assertThat(updateStatements).isLessThan(100);
+    }
+
+    private static ByteArrayInputStream upload(String price) {
+        StringBuilder upload = new StringBuilder();
+        for (int i = 0; i < PRODUCTS; i++) {
+            upload.append("{\"name\":\"Product ").append(i).append("\",\"description\":\"Imported\",\"price\":")
+                    .append(price).append(",\"stockQuantity\":").append(i).append("}\n");
+        }
+        return new ByteArrayInputStream(upload.toString().getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,120 @@
+package org.security.productservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.security.productservice.dto.BulkImportResultDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Imports 1M generated products through POST /products/bulk's importer while tracking
+// elapsed time and peak heap. Meant to be run under a small heap so that any per-row
+// accumulation fails with an OutOfMemoryError:
+// mvn test -Dtest=ProductBulkImportBenchmarkTest -Dbenchmark=true -DargLine=-Xmx384m
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@DataJpaTest(properties = {
+        // File-backed so that the database itself does not live in the small test heap
+        "spring.datasource.url=jdbc:h2:./target/h2/product-import-test",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.sql.init.mode=never",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "logging.level.org.hibernate.SQL=WARN",
+        "logging.level.org.hibernate.orm.jdbc.bind=WARN",
+        "spring.jpa.properties.hibernate.jdbc.batch_size=50",
+        "spring.jpa.properties.hibernate.order_inserts=true",
+        "spring.jpa.properties.hibernate.order_updates=true"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({ProductBulkImporter.class, ProductService.class, StockBucketService.class, ProductCache.class,
+        ProductChangeFeed.class, SimpleMeterRegistry.class, JacksonAutoConfiguration.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ProductBulkImportBenchmarkTest {
+
+    private static final int PRODUCTS = 1_000_000;
+
+    @Autowired
+    private ProductBulkImporter productBulkImporter;
+
+    // The indexes hold every product in memory by design, which would hide the importer's own heap use
+    @MockBean
+    private ProductSearchIndex productSearchIndex;
+
+    @MockBean
+    private StockAvailabilityIndex stockAvailabilityIndex;
+
+    @Test
+    void importProducts_shouldKeepHeapFlat_forOneMillionProducts() throws Exception {
+        // Given
+        System.gc();
+        long heapBefore = usedHeap();
+        ManagementFactory.getMemoryPoolMXBeans().forEach(MemoryPoolMXBean::resetPeakUsage);
+
+        // When
+        long start = System.nanoTime();
+        BulkImportResultDTO result = productBulkImporter.importProducts(ProductBulkImporter.Format.NDJSON,
+                new GeneratedUpload(PRODUCTS));
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+
+        // Then
+        long peakGrowth = peakHeap() - heapBefore;
+        System.out.printf("Imported %d products in %.1f s (%.0f rows/s), peak heap growth %d MB%n",
+                result.getCreated(), seconds, result.getCreated() / seconds, peakGrowth / (1024 * 1024));
+        assertThat(result.getCreated()).isEqualTo(PRODUCTS);
+        assertThat(result.getFailed()).isZero();
+    }
+
+    private static long usedHeap() {
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static long peakHeap() {
+        return ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .mapToLong(pool -> pool.getPeakUsage().getUsed())
+                .sum();
+    }
+
+    // Produces the NDJSON upload one line at a time, so the test never holds it in memory
+    private static class GeneratedUpload extends InputStream {
+        private final int rows;
+        private int nextRow;
+        private byte[] line = new byte[0];
+        private int position;
+
+        GeneratedUpload(int rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        public int read() {
+            if (position == line.length) {
+                if (nextRow == rows) {
+                    return -1;
+                }
+                line = ("{\"name\":\"Imported product " + nextRow + "\",\"description\":\"Generated for the import benchmark, row "
+                        + nextRow + "\",\"price\":" + (nextRow % 1000) + ".99,\"stockQuantity\":" + (nextRow % 50) + "}\n")
+                        .getBytes(StandardCharsets.UTF_8);
+                position = 0;
+                nextRow++;
+            }
+            return line[position++] & 0xFF;
+        }
+    }
+}
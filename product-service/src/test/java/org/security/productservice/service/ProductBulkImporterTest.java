@@ -0,0 +1,131 @@
+package org.security.productservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.security.productservice.dto.BulkImportErrorDTO;
+import org.security.productservice.dto.BulkImportResultDTO;
+import org.security.productservice.dto.ProductDTO;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProductBulkImporterTest {
+
+    @Mock
+    private ProductService productService;
+
+    private ProductBulkImporter productBulkImporter;
+
+    @BeforeEach
+    void setUp() {
+        productBulkImporter = new ProductBulkImporter(productService, new ObjectMapper(), 2, 2);
+    }
+
+    @Test
+    void importProducts_Ndjson_ShouldUpsertInChunksAndReportBadLines() throws Exception {
+        // Given
+        when(productService.upsertChunk(anyList())).thenAnswer(invocation ->
+                new ProductService.BulkUpsertCounts(((List<?>) invocation.getArgument(0)).size(), 0));
+        String upload = """
+                {"name":"Mouse","description":"Wireless","price":19.99,"stockQuantity":5}
+                {"name":"Keyboard","description":"Mechanical","price":49.90,"stockQuantity":3}
+                {"name":"Cable"
+                {"name":"Stand","description":"Aluminium","price":-1,"stockQuantity":3}
+                {"name":"Hub","description":"USB","price":9.50,"stockQuantity":10}
+                """;
+
+        // When
+        BulkImportResultDTO result = productBulkImporter.importProducts(ProductBulkImporter.Format.NDJSON, stream(upload));
+
+        // Then
+        assertThat(result.getCreated()).isEqualTo(3);
+        assertThat(result.getFailed()).isEqualTo(2);
+        assertThat(result.getErrors()).extracting(BulkImportErrorDTO::getLine).containsExactly(3L, 4L);
+        verify(productService, times(2)).upsertChunk(anyList());
+    }
+
+    @Test
+    void importProducts_Csv_ShouldReadQuotedFieldsByHeaderName() throws Exception {
+        // Given
+        when(productService.upsertChunk(anyList())).thenReturn(new ProductService.BulkUpsertCounts(0, 1));
+        String upload = """
+                price,name,stock_quantity,description
+                12.50,Lamp,4,"Desk lamp, 40 cm, ""warm"" light"
+                """;
+
+        // When
+        BulkImportResultDTO result = productBulkImporter.importProducts(ProductBulkImporter.Format.CSV, stream(upload));
+
+        // Then
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<ProductDTO>> chunk = ArgumentCaptor.forClass(List.class);
+        verify(productService).upsertChunk(chunk.capture());
+        assertThat(chunk.getValue()).containsExactly(
+                new ProductDTO(null, "Lamp", "Desk lamp, 40 cm, \"warm\" light", new BigDecimal("12.50"), 4, null));
+        assertThat(result.getUpdated()).isEqualTo(1);
+        assertThat(result.getFailed()).isZero();
+    }
+
+    @Test
+    void importProducts_ShouldKeepLastRowOfANameRepeatedInAChunk() throws Exception {
+        // Given
+        when(productService.upsertChunk(anyList())).thenReturn(new ProductService.BulkUpsertCounts(1, 0));
+        String upload = """
+                {"name":"Mouse","description":"Old","price":19.99,"stockQuantity":5}
+                {"name":"Mouse","description":"New","price":17.99,"stockQuantity":5}
+                """;
+
+        // When
+        productBulkImporter.importProducts(ProductBulkImporter.Format.NDJSON, stream(upload));
+
+        // Then
+        verify(productService).upsertChunk(argThat(products ->
+                products.size() == 1 && products.get(0).getDescription().equals("New")));
+    }
+
+    @Test
+    void importProducts_RejectedChunk_ShouldReportEveryRowAndTruncateTheList() throws Exception {
+        // Given
+        when(productService.upsertChunk(anyList())).thenThrow(new RuntimeException("constraint violation"));
+        String upload = """
+                {"name":"A","description":"a","price":1,"stockQuantity":1}
+                {"name":"B","description":"b","price":1,"stockQuantity":1}
+                {"name":"C","description":"c","price":1,"stockQuantity":1}
+                """;
+
+        // When
+        BulkImportResultDTO result = productBulkImporter.importProducts(ProductBulkImporter.Format.NDJSON, stream(upload));
+
+        // Then
+        assertThat(result.getFailed()).isEqualTo(3);
+        assertThat(result.getErrors()).hasSize(2)
+                .allSatisfy(error -> assertThat(error.getMessage()).isEqualTo("Chunk rolled back: constraint violation"));
+        assertThat(result.isErrorsTruncated()).isTrue();
+    }
+
+    @Test
+    void parseFormat_ShouldAcceptCharsetParameterAndRejectOtherTypes() {
+        assertThat(ProductBulkImporter.parseFormat("text/csv; charset=UTF-8")).isEqualTo(ProductBulkImporter.Format.CSV);
+        assertThatThrownBy(() -> ProductBulkImporter.parseFormat("application/json"))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessage("Unsupported import format: application/json");
+    }
+
+    private static InputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,152 @@
+package org.security.productservice.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.security.productservice.dto.ProductChangesDTO;
+import org.security.productservice.model.Product;
+import org.security.productservice.model.ProductChange;
+import org.security.productservice.model.ProductChangeSequence;
+import org.security.productservice.repository.ProductChangeRepository;
+import org.security.productservice.repository.ProductChangeSequenceRepository;
+import org.security.productservice.repository.ProductRepository;
+import org.springframework.data.domain.PageRequest;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProductChangeFeedTest {
+
+    @Mock
+    private ProductChangeRepository productChangeRepository;
+
+    @Mock
+    private ProductChangeSequenceRepository productChangeSequenceRepository;
+
+    @Mock
+    private ProductRepository productRepository;
+
+    private ProductChangeFeed productChangeFeed;
+
+    @BeforeEach
+    void setUp() {
+        productChangeFeed = new ProductChangeFeed(productChangeRepository, productChangeSequenceRepository, productRepository);
+    }
+
+    @Test
+    void recordChange_ShouldAssignNextSequenceNumber() {
+        // Given
+        when(productChangeSequenceRepository.findByIdWithLock(ProductChangeSequence.ID))
+                .thenReturn(Optional.of(new ProductChangeSequence(ProductChangeSequence.ID, 41L)));
+
+        // When
+        productChangeFeed.recordChange(7L, "Keyboard", BigDecimal.TEN, false);
+
+        // Then
+        verify(productChangeSequenceRepository).save(new ProductChangeSequence(ProductChangeSequence.ID, 42L));
+        verify(productChangeRepository).save(argThat(change ->
+                change.getSeq() == 42L && change.getProductId() == 7L && !change.getDeleted()));
+    }
+
+    @Test
+    void recordChanges_ShouldLockSequenceOnceAndAssignConsecutiveNumbers() {
+        // Given
+        Product keyboard = new Product();
+        keyboard.setId(7L);
+        keyboard.setName("Keyboard");
+        Product mouse = new Product();
+        mouse.setId(8L);
+        mouse.setName("Mouse");
+        when(productChangeSequenceRepository.findByIdWithLock(ProductChangeSequence.ID))
+                .thenReturn(Optional.of(new ProductChangeSequence(ProductChangeSequence.ID, 41L)));
+
+        // When
+        productChangeFeed.recordChanges(List.of(keyboard, mouse));
+
+        // Then
+        verify(productChangeSequenceRepository, times(1)).findByIdWithLock(ProductChangeSequence.ID);
+        verify(productChangeSequenceRepository).save(new ProductChangeSequence(ProductChangeSequence.ID, 43L));
+        verify(productChangeRepository).saveAll(argThat((List<ProductChange> changes) ->
+                changes.size() == 2 && changes.get(0).getSeq() == 42L && changes.get(1).getProductId() == 8L));
+    }
+
+    @Test
+    void getChanges_WithoutSince_ShouldReturnSnapshotAtCurrentSequence() {
+        // Given
+        Product product = new Product();
+        product.setId(7L);
+        product.setName("Keyboard");
+        product.setPrice(BigDecimal.TEN);
+        when(productChangeSequenceRepository.findById(ProductChangeSequence.ID))
+                .thenReturn(Optional.of(new ProductChangeSequence(ProductChangeSequence.ID, 42L)));
+        when(productRepository.findAll()).thenReturn(List.of(product));
+
+        // When
+        ProductChangesDTO result = productChangeFeed.getChanges(-1);
+
+        // Then
+        assertThat(result.isSnapshot()).isTrue();
+        assertThat(result.getLatestSeq()).isEqualTo(42L);
+        assertThat(result.getChanges()).singleElement()
+                .satisfies(change -> assertThat(change.getName()).isEqualTo("Keyboard"));
+    }
+
+    @Test
+    void getChanges_WithSince_ShouldReturnDeltaAndAdvanceLatestSeq() {
+        // Given
+        when(productChangeRepository.findAfter(40L, PageRequest.ofSize(ProductChangeFeed.MAX_CHANGES_PER_CALL)))
+                .thenReturn(List.of(change(41L), change(42L)));
+
+        // When
+        ProductChangesDTO result = productChangeFeed.getChanges(40L);
+
+        // Then
+        assertThat(result.isSnapshot()).isFalse();
+        assertThat(result.getChanges()).hasSize(2);
+        assertThat(result.getLatestSeq()).isEqualTo(42L);
+    }
+
+    @Test
+    void awaitChanges_NoChangesYet_ShouldCompleteWhenChangeIsRecorded() throws Exception {
+        // Given
+        when(productChangeRepository.findAfter(any(), any())).thenReturn(List.of()).thenReturn(List.of(change(43L)));
+        when(productChangeSequenceRepository.findByIdWithLock(ProductChangeSequence.ID))
+                .thenReturn(Optional.of(new ProductChangeSequence(ProductChangeSequence.ID, 42L)));
+        CompletableFuture<ProductChangesDTO> poll = productChangeFeed.awaitChanges(42L, 10_000);
+        assertThat(poll).isNotDone();
+
+        // When
+        productChangeFeed.recordChange(7L, "Keyboard", BigDecimal.TEN, false);
+
+        // Then
+        assertThat(poll.get(5, TimeUnit.SECONDS).getLatestSeq()).isEqualTo(43L);
+    }
+
+    @Test
+    void awaitChanges_NoChangeWithinWait_ShouldCompleteWithEmptyDelta() throws Exception {
+        // Given
+        when(productChangeRepository.findAfter(any(), any())).thenReturn(List.of());
+
+        // When
+        ProductChangesDTO result = productChangeFeed.awaitChanges(42L, 50).get(5, TimeUnit.SECONDS);
+
+        // Then
+        assertThat(result.getChanges()).isEmpty();
+        assertThat(result.getLatestSeq()).isEqualTo(42L);
+    }
+
+    private ProductChange change(Long seq) {
+        return new ProductChange(seq, 7L, "Keyboard", BigDecimal.TEN, false, LocalDateTime.now());
+    }
+}
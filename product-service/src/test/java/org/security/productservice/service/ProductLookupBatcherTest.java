@@ -0,0 +1,111 @@
+package org.security.productservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.security.productservice.dto.ProductDTO;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProductLookupBatcherTest {
+
+    @Mock
+    private ProductService productService;
+
+    @Mock
+    private ProductCache productCache;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private ProductLookupBatcher productLookupBatcher;
+
+    @AfterEach
+    void tearDown() {
+        if (productLookupBatcher != null) {
+            productLookupBatcher.shutdown();
+        }
+    }
+
+    @Test
+    void getProductById_ConcurrentLookupsWithinWindow_ShouldBeResolvedByOneQuery() throws Exception {
+        // Given: products 1 to 3 exist, 99 does not
+        productLookupBatcher = new ProductLookupBatcher(productService, productCache, meterRegistry, true, 200, 100);
+        when(productService.getProductsByIds(anyCollection())).thenAnswer(invocation ->
+                invocation.<Collection<Long>>getArgument(0).stream()
+                        .filter(id -> id <= 3)
+                        .collect(Collectors.toMap(Function.identity(), ProductLookupBatcherTest::product)));
+
+        // When
+        List<Long> ids = List.of(1L, 2L, 99L, 3L, 1L);
+        List<CompletableFuture<ProductDTO>> futures = new ArrayList<>();
+        for (Long id : ids) {
+            futures.add(productLookupBatcher.getProductById(id));
+        }
+
+        // Then: every lookup gets its own product, and only the unknown id gets none
+        for (int i = 0; i < ids.size(); i++) {
+            ProductDTO product = futures.get(i).get(5, TimeUnit.SECONDS);
+            if (ids.get(i) == 99L) {
+                assertThat(product).isNull();
+            } else {
+                assertThat(product.getId()).isEqualTo(ids.get(i));
+            }
+        }
+        verify(productService, times(1)).getProductsByIds(List.of(1L, 2L, 99L, 3L));
+        assertThat(meterRegistry.summary("product.lookup.batcher.batch.size").count()).isEqualTo(1);
+        assertThat(meterRegistry.summary("product.lookup.batcher.batch.size").totalAmount()).isEqualTo(5);
+        assertThat(meterRegistry.timer("product.lookup.batcher.queue.wait").count()).isEqualTo(5);
+    }
+
+    @Test
+    void getProductById_FullBatch_ShouldBeQueriedWithoutWaitingForTheWindow() throws Exception {
+        // Given: a window far longer than the test waits
+        productLookupBatcher = new ProductLookupBatcher(productService, productCache, meterRegistry, true, 60_000, 2);
+        when(productService.getProductsByIds(anyCollection())).thenAnswer(invocation ->
+                invocation.<Collection<Long>>getArgument(0).stream()
+                        .collect(Collectors.toMap(Function.identity(), ProductLookupBatcherTest::product)));
+
+        // When
+        CompletableFuture<ProductDTO> first = productLookupBatcher.getProductById(1L);
+        CompletableFuture<ProductDTO> second = productLookupBatcher.getProductById(2L);
+
+        // Then
+        assertThat(first.get(5, TimeUnit.SECONDS).getId()).isEqualTo(1L);
+        assertThat(second.get(5, TimeUnit.SECONDS).getId()).isEqualTo(2L);
+    }
+
+    @Test
+    void getProductById_CachedProductOrFailedQuery_ShouldNotWaitOrHang() {
+        // Given
+        productLookupBatcher = new ProductLookupBatcher(productService, productCache, meterRegistry, true, 10, 100);
+        when(productCache.getCachedProduct(1L)).thenReturn(product(1L));
+        when(productService.getProductsByIds(anyCollection())).thenThrow(new RuntimeException("database unavailable"));
+
+        // When & Then
+        assertThat(productLookupBatcher.getProductById(1L)).isCompletedWithValue(product(1L));
+        assertThatThrownBy(() -> productLookupBatcher.getProductById(2L).get(5, TimeUnit.SECONDS))
+                .hasRootCauseMessage("database unavailable");
+        verify(productService, never()).getProductsByIds(List.of(1L));
+    }
+
+    private static ProductDTO product(Long id) {
+        return new ProductDTO(id, "Product " + id, null, BigDecimal.TEN, 10, 0L);
+    }
+}
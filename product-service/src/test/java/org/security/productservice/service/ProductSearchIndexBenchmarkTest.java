@@ -0,0 +1,114 @@
+package org.security.productservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.security.productservice.dto.ProductDTO;
+import org.security.productservice.repository.ProductRepository;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+// Query latency of the search index over a 500k product catalog with a skewed vocabulary,
+// for one-word, two-word and prefix (type-ahead) queries.
+// Run with: mvn test -Dtest=ProductSearchIndexBenchmarkTest -Dbenchmark=true
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class ProductSearchIndexBenchmarkTest {
+
+    private static final int PRODUCTS = 500_000;
+    private static final int VOCABULARY = 50_000;
+    private static final int NAME_WORDS = 3;
+    private static final int DESCRIPTION_WORDS = 15;
+    private static final int WARMUP_QUERIES = 5_000;
+    private static final int QUERIES = 20_000;
+    private static final int PAGE_SIZE = 20;
+
+    private final String[] vocabulary = vocabulary(new Random(7));
+
+    @Test
+    void queryLatency_p99ShouldStayUnderFiveMillis() {
+        // Given
+        ProductSearchIndex index = new ProductSearchIndex(mock(ProductRepository.class),
+                mock(PlatformTransactionManager.class), new SimpleMeterRegistry());
+        Random catalogRandom = new Random(11);
+        long buildStart = System.nanoTime();
+        index.rebuild(LongStream.rangeClosed(1, PRODUCTS).mapToObj(id -> new ProductDTO(id,
+                words(catalogRandom, NAME_WORDS), words(catalogRandom, DESCRIPTION_WORDS),
+                BigDecimal.TEN, 10, 0L)));
+        double buildMillis = (System.nanoTime() - buildStart) / 1_000_000.0;
+
+        Random queryRandom = new Random(13);
+        for (int i = 0; i < WARMUP_QUERIES; i++) {
+            index.search(query(queryRandom), 0, PAGE_SIZE);
+        }
+
+        // When
+        long[] nanos = new long[QUERIES];
+        long hits = 0;
+        for (int i = 0; i < QUERIES; i++) {
+            String query = query(queryRandom);
+            long start = System.nanoTime();
+            hits += index.search(query, 0, PAGE_SIZE).getTotalHits();
+            nanos[i] = System.nanoTime() - start;
+        }
+
+        // Then
+        Arrays.sort(nanos);
+        double p50 = nanos[QUERIES / 2] / 1_000_000.0;
+        double p99 = nanos[QUERIES * 99 / 100] / 1_000_000.0;
+        double max = nanos[QUERIES - 1] / 1_000_000.0;
+        System.out.printf("Search index over %d products built in %.0f ms%n", PRODUCTS, buildMillis);
+        System.out.printf("  %d queries, %d total hits: p50 %.3f ms, p99 %.3f ms, max %.3f ms%n",
+                QUERIES, hits, p50, p99, max);
+        assertThat(p99).isLessThan(5.0);
+    }
+
+    // One word, two words, or a word followed by a three-letter prefix as typed into a search box
+    private String query(Random random) {
+        String first = word(random);
+        return switch (random.nextInt(3)) {
+            case 0 -> first;
+            case 1 -> first + " " + word(random);
+            default -> {
+                String next = word(random);
+                yield first + " " + next.substring(0, Math.min(3, next.length()));
+            }
+        };
+    }
+
+    private String words(Random random, int count) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                text.append(' ');
+            }
+            text.append(word(random));
+        }
+        return text.toString();
+    }
+
+    // Squaring a uniform draw skews picks towards the start of the vocabulary, so a few words
+    // appear in a large share of the catalog, as in real product text
+    private String word(Random random) {
+        double draw = random.nextDouble();
+        return vocabulary[(int) (draw * draw * VOCABULARY)];
+    }
+
+    private static String[] vocabulary(Random random) {
+        String[] words = new String[VOCABULARY];
+        for (int i = 0; i < VOCABULARY; i++) {
+            char[] letters = new char[4 + random.nextInt(7)];
+            for (int j = 0; j < letters.length; j++) {
+                letters[j] = (char) ('a' + random.nextInt(26));
+            }
+            words[i] = new String(letters);
+        }
+        return words;
+    }
+}
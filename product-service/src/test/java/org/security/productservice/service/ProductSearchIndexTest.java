@@ -0,0 +1,109 @@
+package org.security.productservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.security.productservice.dto.ProductDTO;
+import org.security.productservice.dto.ProductSearchResultDTO;
+import org.security.productservice.dto.ProductSummaryDTO;
+import org.security.productservice.repository.ProductRepository;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@ExtendWith(MockitoExtension.class)
+class ProductSearchIndexTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private ProductSearchIndex productSearchIndex;
+
+    @BeforeEach
+    void setUp() {
+        productSearchIndex = new ProductSearchIndex(productRepository, transactionManager, new SimpleMeterRegistry());
+        productSearchIndex.rebuild(Stream.of(
+                product(1L, "Wireless Mouse", "Ergonomic mouse with a keyboard-style scroll wheel"),
+                product(2L, "Mechanical Keyboard", "Wired keyboard with brown switches"),
+                product(3L, "Keyboard Tray", "Under-desk tray"),
+                product(4L, "USB Cable", "Braided cable for a wireless receiver")));
+    }
+
+    @Test
+    void search_ShouldRankNameMatchesAboveDescriptionMatches() {
+        // When
+        ProductSearchResultDTO result = productSearchIndex.search("keyboard", 0, 10);
+
+        // Then
+        assertThat(result.getTotalHits()).isEqualTo(3);
+        assertThat(result.getProducts()).extracting(ProductSummaryDTO::getId).containsExactly(2L, 3L, 1L);
+    }
+
+    @Test
+    void search_ShouldMatchPrefixesBelowWholeWords() {
+        // When
+        ProductSearchResultDTO result = productSearchIndex.search("Wire", 0, 10);
+
+        // Then: "wireless" in a name, "wired" in a description, "wireless" in a description
+        assertThat(result.getProducts()).extracting(ProductSummaryDTO::getId).containsExactly(1L, 2L, 4L);
+    }
+
+    @Test
+    void search_ShouldRequireEveryQueryWord() {
+        // When
+        ProductSearchResultDTO result = productSearchIndex.search("keyboard tray", 0, 10);
+
+        // Then
+        assertThat(result.getProducts()).extracting(ProductSummaryDTO::getId).containsExactly(3L);
+        assertThat(productSearchIndex.search("keyboard lamp", 0, 10).getTotalHits()).isZero();
+    }
+
+    @Test
+    void search_ShouldPageThroughRankedHits() {
+        // When
+        ProductSearchResultDTO secondPage = productSearchIndex.search("keyboard", 1, 2);
+
+        // Then
+        assertThat(secondPage.getTotalHits()).isEqualTo(3);
+        assertThat(secondPage.getProducts()).extracting(ProductSummaryDTO::getId).containsExactly(1L);
+        assertThatThrownBy(() -> productSearchIndex.search("keyboard", 10, 100))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessage("Search results are limited to the first 1000 hits");
+    }
+
+    @Test
+    void index_ShouldReplaceTheTermsOfAnUpdatedProduct() {
+        // When
+        productSearchIndex.index(product(3L, "Monitor Stand", "Under-desk stand"));
+
+        // Then
+        assertThat(productSearchIndex.search("tray", 0, 10).getTotalHits()).isZero();
+        assertThat(productSearchIndex.search("monitor", 0, 10).getProducts())
+                .containsExactly(new ProductSummaryDTO(3L, "Monitor Stand", BigDecimal.TEN));
+    }
+
+    @Test
+    void remove_ShouldDropTheProductFromResults() {
+        // When
+        productSearchIndex.remove(2L);
+
+        // Then
+        assertThat(productSearchIndex.search("keyboard", 0, 10).getProducts())
+                .extracting(ProductSummaryDTO::getId).containsExactly(3L, 1L);
+        assertThat(productSearchIndex.search("mechanical", 0, 10).getTotalHits()).isZero();
+    }
+
+    private static ProductDTO product(Long id, String name, String description) {
+        return new ProductDTO(id, name, description, BigDecimal.TEN, 5, 0L);
+    }
+}
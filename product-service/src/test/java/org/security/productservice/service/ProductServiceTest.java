@@ -1,12 +1,17 @@
 package org.security.productservice.service;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.InOrder;
+import org.security.productservice.dto.BatchReservationResultDTO;
+import org.security.productservice.dto.CatalogVersionDTO;
 import org.security.productservice.dto.ProductDTO;
+import org.security.productservice.dto.ProductSummaryDTO;
+import org.security.productservice.dto.StockReservationDTO;
 import org.security.productservice.model.Product;
 import org.security.productservice.repository.ProductRepository;
 import org.springframework.web.server.ResponseStatusException;
@@ -19,6 +24,7 @@ import java.util.Optional;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -27,7 +33,20 @@ class ProductServiceTest {
     @Mock
     private ProductRepository productRepository;
 
-    @InjectMocks
+    @Mock
+    private StockBucketService stockBucketService;
+
+    @Mock
+    private ProductChangeFeed productChangeFeed;
+
+    @Mock
+    private ProductSearchIndex productSearchIndex;
+
+    @Mock
+    private StockAvailabilityIndex stockAvailabilityIndex;
+
+    private ProductCache productCache;
+
     private ProductService productService;
 
     private Product testProduct;
@@ -35,6 +54,9 @@ class ProductServiceTest {
 
     @BeforeEach
     void setUp() {
+        productCache = new ProductCache(new SimpleMeterRegistry(), 100, 60_000, 60_000);
+        productService = new ProductService(productRepository, stockBucketService, productCache, productChangeFeed, productSearchIndex, stockAvailabilityIndex, ProductService.ReservationStrategy.CONDITIONAL_UPDATE);
+
         testProduct = new Product();
         testProduct.setId(1L);
         testProduct.setName("Test Product");
@@ -64,6 +86,40 @@ class ProductServiceTest {
         verify(productRepository).findAll();
     }
 
+    @Test
+    void getCatalogETag_ShouldMatchTagOfLoadedCatalog() {
+        // Given: one plain product and one whose stock lives in buckets
+        testProduct.setVersion(3L);
+        Product bucketedProduct = new Product();
+        bucketedProduct.setId(2L);
+        bucketedProduct.setName("Hot Product");
+        bucketedProduct.setPrice(BigDecimal.TEN);
+        bucketedProduct.setStockQuantity(0);
+        bucketedProduct.setStockBucketCount(4);
+        bucketedProduct.setVersion(1L);
+        when(productRepository.findAll()).thenReturn(List.of(testProduct, bucketedProduct));
+        when(stockBucketService.getTotalStock(2L)).thenReturn(7);
+        when(productRepository.findCatalogVersion()).thenReturn(new CatalogVersionDTO(2L, 2L, 4L, 10L));
+        when(stockBucketService.getTotalStockOfAllProducts()).thenReturn(7L);
+
+        // When
+        String aggregateTag = productService.getCatalogETag();
+        String catalogTag = ProductService.catalogETag(productService.getAllProducts());
+
+        // Then
+        assertThat(aggregateTag).isEqualTo("\"2-2-4-17\"").isEqualTo(catalogTag);
+    }
+
+    @Test
+    void productETag_ShouldChange_WhenBucketedStockChangesWithoutVersionBump() {
+        // Given
+        ProductDTO before = new ProductDTO(2L, "Hot Product", null, BigDecimal.TEN, 7, 1L);
+        ProductDTO after = new ProductDTO(2L, "Hot Product", null, BigDecimal.TEN, 5, 1L);
+
+        // When & Then
+        assertThat(ProductService.productETag(before)).isNotEqualTo(ProductService.productETag(after));
+    }
+
     @Test
     void getProductById_ExistingId_ShouldReturnProduct() {
         // Given
@@ -88,6 +144,163 @@ class ProductServiceTest {
                 .hasMessage("Product not found with id: 1");
     }
 
+    @Test
+    void getProductById_RepeatedReads_ShouldHitDatabaseOnce() {
+        // Given
+        when(productRepository.findById(1L)).thenReturn(Optional.of(testProduct));
+
+        // When
+        productService.getProductById(1L);
+        ProductDTO result = productService.getProductById(1L);
+
+        // Then
+        assertThat(result.getName()).isEqualTo("Test Product");
+        verify(productRepository, times(1)).findById(1L);
+    }
+
+    @Test
+    void getAllProducts_RepeatedReads_ShouldServeCatalogSnapshot() {
+        // Given
+        when(productRepository.findAll()).thenReturn(List.of(testProduct));
+
+        // When
+        productService.getAllProducts();
+        List<ProductDTO> result = productService.getAllProducts();
+
+        // Then
+        assertThat(result).hasSize(1);
+        verify(productRepository, times(1)).findAll();
+    }
+
+    @Test
+    void checkAndReserveStock_Reserved_ShouldEvictProductAndCatalog() {
+        // Given
+        when(productRepository.findById(1L)).thenReturn(Optional.of(testProduct));
+        when(productRepository.findAll()).thenReturn(List.of(testProduct));
+        when(productRepository.decrementStockIfAvailable(1L, 5)).thenReturn(1);
+        productService.getProductById(1L);
+        productService.getAllProducts();
+
+        // When
+        productService.checkAndReserveStock(1L, 5);
+        testProduct.setStockQuantity(5);
+
+        // Then
+        assertThat(productService.getProductById(1L).getStockQuantity()).isEqualTo(5);
+        assertThat(productService.getAllProducts().get(0).getStockQuantity()).isEqualTo(5);
+        verify(productRepository, times(2)).findById(1L);
+        verify(productRepository, times(2)).findAll();
+    }
+
+    @Test
+    void checkAndReserveStock_NotReserved_ShouldKeepCachedProduct() {
+        // Given
+        when(productRepository.findById(1L)).thenReturn(Optional.of(testProduct));
+        when(productRepository.decrementStockIfAvailable(1L, 50)).thenReturn(0);
+        when(productRepository.findStockBucketCountById(1L)).thenReturn(Optional.of(0));
+        productService.getProductById(1L);
+
+        // When
+        productService.checkAndReserveStock(1L, 50);
+        productService.getProductById(1L);
+
+        // Then
+        verify(productRepository, times(1)).findById(1L);
+    }
+
+    @Test
+    void updateProduct_ShouldEvictOnlyTheUpdatedProduct() {
+        // Given
+        Product otherProduct = new Product();
+        otherProduct.setId(2L);
+        otherProduct.setName("Other Product");
+        otherProduct.setPrice(BigDecimal.ONE);
+        otherProduct.setStockQuantity(1);
+        when(productRepository.findById(1L)).thenReturn(Optional.of(testProduct));
+        when(productRepository.findById(2L)).thenReturn(Optional.of(otherProduct));
+        when(productRepository.save(any(Product.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        productService.getProductById(1L);
+        productService.getProductById(2L);
+
+        // When
+        testProductDTO.setPrice(BigDecimal.valueOf(79.99));
+        productService.updateProduct(1L, testProductDTO);
+
+        // Then
+        assertThat(productService.getProductById(1L).getPrice()).isEqualByComparingTo("79.99");
+        productService.getProductById(2L);
+        verify(productRepository, times(3)).findById(1L);
+        verify(productRepository, times(1)).findById(2L);
+    }
+
+    @Test
+    void updateProduct_PriceChanged_ShouldRecordCatalogChange() {
+        // Given
+        when(productRepository.findById(1L)).thenReturn(Optional.of(testProduct));
+        when(productRepository.save(any(Product.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        testProductDTO.setPrice(BigDecimal.valueOf(79.99));
+
+        // When
+        productService.updateProduct(1L, testProductDTO);
+
+        // Then
+        verify(productChangeFeed).recordChange(1L, "Test Product", BigDecimal.valueOf(79.99), false);
+    }
+
+    @Test
+    void updateProduct_OnlyStockChanged_ShouldNotRecordCatalogChange() {
+        // Given
+        when(productRepository.findById(1L)).thenReturn(Optional.of(testProduct));
+        when(productRepository.save(any(Product.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        testProductDTO.setStockQuantity(3);
+
+        // When
+        productService.updateProduct(1L, testProductDTO);
+
+        // Then
+        verifyNoInteractions(productChangeFeed);
+        verifyNoInteractions(productSearchIndex);
+    }
+
+    @Test
+    void upsertChunk_ShouldCreateNewNamesAndUpdateExistingOnes() {
+        // Given
+        ProductDTO existing = new ProductDTO(null, "Test Product", "New Description", BigDecimal.valueOf(99.99), 4, null);
+        ProductDTO added = new ProductDTO(null, "New Product", "Description", BigDecimal.ONE, 2, null);
+        when(productRepository.findByNameIn(List.of("Test Product", "New Product"))).thenReturn(List.of(testProduct));
+        when(productRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Product> products = invocation.getArgument(0);
+            products.get(1).setId(2L);
+            return products;
+        });
+
+        // When
+        ProductService.BulkUpsertCounts counts = productService.upsertChunk(List.of(existing, added));
+
+        // Then: the unchanged price keeps the existing product out of the change feed
+        assertThat(counts).isEqualTo(new ProductService.BulkUpsertCounts(1, 1));
+        assertThat(testProduct.getDescription()).isEqualTo("New Description");
+        assertThat(testProduct.getStockQuantity()).isEqualTo(4);
+        verify(productChangeFeed).recordChanges(argThat(products ->
+                products.size() == 1 && products.get(0).getName().equals("New Product")));
+        verify(productSearchIndex).index(anyList());
+        verify(productRepository, never()).existsByName(any());
+    }
+
+    @Test
+    void getProductSummariesByIds_ShouldUseSingleQuery() {
+        // Given
+        when(productRepository.findAllById(List.of(1L, 2L))).thenReturn(List.of(testProduct));
+
+        // When
+        List<ProductSummaryDTO> result = productService.getProductSummariesByIds(List.of(1L, 2L));
+
+        // Then
+        assertThat(result).containsExactly(new ProductSummaryDTO(1L, "Test Product", BigDecimal.valueOf(99.99)));
+        verify(productRepository).findAllById(List.of(1L, 2L));
+        verify(productRepository, never()).findById(any());
+    }
+
     @Test
     void createProduct_ValidData_ShouldCreateProduct() {
         // Given
@@ -107,6 +320,7 @@ class ProductServiceTest {
         assertThat(result.getId()).isEqualTo(1L);
         assertThat(result.getName()).isEqualTo("Test Product");
         verify(productRepository).save(any(Product.class));
+        verify(productSearchIndex).index(result);
     }
 
     @Test
@@ -153,20 +367,21 @@ class ProductServiceTest {
     @Test
     void deleteProduct_ExistingId_ShouldDeleteProduct() {
         // Given
-        when(productRepository.findById(1L)).thenReturn(Optional.of(testProduct));
+        when(productRepository.existsById(1L)).thenReturn(true);
 
         // When
         productService.deleteProduct(1L);
 
         // Then
-        verify(productRepository).findById(1L);
-        verify(productRepository).delete(testProduct);
+        verify(productRepository).deleteById(1L);
+        verify(productChangeFeed).recordChange(1L, null, null, true);
+        verify(productSearchIndex).remove(1L);
     }
 
     @Test
     void deleteProduct_NonExistingId_ShouldThrowException() {
         // Given
-        when(productRepository.findById(1L)).thenReturn(Optional.empty());
+        when(productRepository.existsById(1L)).thenReturn(false);
 
         // When & Then
         assertThatThrownBy(() -> productService.deleteProduct(1L))
@@ -177,46 +392,216 @@ class ProductServiceTest {
     @Test
     void checkAndReserveStock_SufficientStock_ShouldReturnTrue() {
         // Given
-        testProduct.setStockQuantity(10);
-        when(productRepository.findById(1L)).thenReturn(Optional.of(testProduct));
+        when(productRepository.decrementStockIfAvailable(1L, 5)).thenReturn(1);
 
         // When
         boolean result = productService.checkAndReserveStock(1L, 5);
 
         // Then
         assertThat(result).isTrue();
-        assertThat(testProduct.getStockQuantity()).isEqualTo(5); // Stock reduced
-        verify(productRepository).findById(1L);
-        verify(productRepository).save(testProduct);
+        verify(productRepository).decrementStockIfAvailable(1L, 5);
+        verify(productRepository, never()).findByIdWithLock(any());
+        verify(productRepository, never()).save(any(Product.class));
     }
 
     @Test
     void checkAndReserveStock_InsufficientStock_ShouldReturnFalse() {
         // Given
-        testProduct.setStockQuantity(3);
-        when(productRepository.findById(1L)).thenReturn(Optional.of(testProduct));
+        when(productRepository.decrementStockIfAvailable(1L, 5)).thenReturn(0);
+        when(productRepository.findStockBucketCountById(1L)).thenReturn(Optional.of(0));
 
         // When
         boolean result = productService.checkAndReserveStock(1L, 5);
 
         // Then
         assertThat(result).isFalse();
-        assertThat(testProduct.getStockQuantity()).isEqualTo(3); // Stock unchanged
-        verify(productRepository).findById(1L);
         verify(productRepository, never()).save(any(Product.class));
     }
 
     @Test
-    void checkAndReserveStock_NonExistingProduct_ShouldReturnFalse() {
+    void checkAndReserveStock_NonExistingProduct_ShouldThrowException() {
         // Given
-        when(productRepository.findById(1L)).thenReturn(Optional.empty());
+        when(productRepository.decrementStockIfAvailable(1L, 5)).thenReturn(0);
+        when(productRepository.findStockBucketCountById(1L)).thenReturn(Optional.empty());
+
+        // When & Then
+        assertThatThrownBy(() -> productService.checkAndReserveStock(1L, 5))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessage("Product not found with id: 1");
+    }
+
+    @Test
+    void checkAndReserveStock_BucketedProduct_ShouldReserveFromBuckets() {
+        // Given
+        when(productRepository.decrementStockIfAvailable(1L, 5)).thenReturn(0);
+        when(productRepository.findStockBucketCountById(1L)).thenReturn(Optional.of(4));
+        when(stockBucketService.reserve(1L, 4, 5)).thenReturn(true);
 
         // When
         boolean result = productService.checkAndReserveStock(1L, 5);
 
+        // Then
+        assertThat(result).isTrue();
+        verify(stockBucketService).reserve(1L, 4, 5);
+    }
+
+    @Test
+    void getProductById_BucketedProduct_ShouldReturnSumOfBuckets() {
+        // Given
+        testProduct.setStockQuantity(0);
+        testProduct.setStockBucketCount(4);
+        when(productRepository.findById(1L)).thenReturn(Optional.of(testProduct));
+        when(stockBucketService.getTotalStock(1L)).thenReturn(37);
+
+        // When
+        ProductDTO result = productService.getProductById(1L);
+
+        // Then
+        assertThat(result.getStockQuantity()).isEqualTo(37);
+    }
+
+    @Test
+    void checkAndReserveStock_PessimisticLockStrategy_SufficientStock_ShouldReturnTrue() {
+        // Given
+        ProductService lockingService = new ProductService(productRepository, stockBucketService, productCache, productChangeFeed, productSearchIndex, stockAvailabilityIndex, ProductService.ReservationStrategy.PESSIMISTIC_LOCK);
+        testProduct.setStockQuantity(10);
+        when(productRepository.findByIdWithLock(1L)).thenReturn(Optional.of(testProduct));
+
+        // When
+        boolean result = lockingService.checkAndReserveStock(1L, 5);
+
+        // Then
+        assertThat(result).isTrue();
+        assertThat(testProduct.getStockQuantity()).isEqualTo(5); // Stock reduced
+        verify(productRepository).findByIdWithLock(1L);
+        verify(productRepository).save(testProduct);
+        verify(productRepository, never()).decrementStockIfAvailable(any(), any());
+    }
+
+    @Test
+    void checkAndReserveStock_PessimisticLockStrategy_InsufficientStock_ShouldReturnFalse() {
+        // Given
+        ProductService lockingService = new ProductService(productRepository, stockBucketService, productCache, productChangeFeed, productSearchIndex, stockAvailabilityIndex, ProductService.ReservationStrategy.PESSIMISTIC_LOCK);
+        testProduct.setStockQuantity(3);
+        when(productRepository.findByIdWithLock(1L)).thenReturn(Optional.of(testProduct));
+
+        // When
+        boolean result = lockingService.checkAndReserveStock(1L, 5);
+
         // Then
         assertThat(result).isFalse();
-        verify(productRepository).findById(1L);
+        assertThat(testProduct.getStockQuantity()).isEqualTo(3); // Stock unchanged
+        verify(productRepository, never()).save(any(Product.class));
+    }
+
+    @Test
+    void releaseStockBatch_ShouldReturnStockToRowOrBuckets() {
+        // Given
+        when(productRepository.findStockBucketCountById(1L)).thenReturn(Optional.of(0));
+        when(productRepository.findStockBucketCountById(2L)).thenReturn(Optional.of(4));
+
+        // When
+        productService.releaseStockBatch(List.of(
+                new StockReservationDTO(2L, 3),
+                new StockReservationDTO(1L, 2)));
+
+        // Then
+        verify(productRepository).incrementStock(1L, 2);
+        verify(stockBucketService).release(2L, 4, 3);
+        verify(stockAvailabilityIndex).adjust(1L, 2);
+        verify(stockAvailabilityIndex).adjust(2L, 3);
+    }
+
+    @Test
+    void checkAndReserveStockInArrivalOrder_ShouldAcceptWhileStockLastsWithOneUpdate() {
+        // Given
+        testProduct.setStockQuantity(10);
+        when(productRepository.findByIdWithLock(1L)).thenReturn(Optional.of(testProduct));
+        when(productRepository.decrementStockIfAvailable(1L, 10)).thenReturn(1);
+
+        // When
+        List<Boolean> result = productService.checkAndReserveStockInArrivalOrder(1L, List.of(4, 5, 3, 1));
+
+        // Then
+        assertThat(result).containsExactly(true, true, false, true);
+        verify(productRepository).decrementStockIfAvailable(1L, 10);
         verify(productRepository, never()).save(any(Product.class));
+        verify(stockAvailabilityIndex).adjust(1L, -10);
+    }
+
+    @Test
+    void checkAndReserveStockInArrivalOrder_UpdateMatchingNoRow_ShouldFailTheBatch() {
+        // Given: the locked row showed 10 in stock, yet the conditional UPDATE matches nothing
+        testProduct.setStockQuantity(10);
+        when(productRepository.findByIdWithLock(1L)).thenReturn(Optional.of(testProduct));
+        when(productRepository.decrementStockIfAvailable(1L, 9)).thenReturn(0);
+
+        // When & Then
+        assertThatThrownBy(() -> productService.checkAndReserveStockInArrivalOrder(1L, List.of(4, 5)))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessageContaining("changed before reserving 9");
+        verifyNoInteractions(stockAvailabilityIndex);
+    }
+
+    @Test
+    void checkAndReserveStockBatch_SufficientStock_ShouldLockInAscendingIdOrder() {
+        // Given
+        Product otherProduct = new Product();
+        otherProduct.setId(2L);
+        otherProduct.setName("Other Product");
+        otherProduct.setStockQuantity(4);
+        when(productRepository.findByIdWithLock(1L)).thenReturn(Optional.of(testProduct));
+        when(productRepository.findByIdWithLock(2L)).thenReturn(Optional.of(otherProduct));
+
+        // When
+        BatchReservationResultDTO result = productService.checkAndReserveStockBatch(List.of(
+                new StockReservationDTO(2L, 3),
+                new StockReservationDTO(1L, 2),
+                new StockReservationDTO(2L, 1)));
+
+        // Then
+        assertThat(result.isReserved()).isTrue();
+        assertThat(result.getInsufficientProductIds()).isEmpty();
+        assertThat(testProduct.getStockQuantity()).isEqualTo(8);
+        assertThat(otherProduct.getStockQuantity()).isEqualTo(0); // Duplicate lines merged
+        InOrder inOrder = inOrder(productRepository);
+        inOrder.verify(productRepository).findByIdWithLock(1L);
+        inOrder.verify(productRepository).findByIdWithLock(2L);
+        inOrder.verify(productRepository).saveAll(anyList());
+    }
+
+    @Test
+    void checkAndReserveStockBatch_InsufficientStock_ShouldReserveNothing() {
+        // Given
+        Product otherProduct = new Product();
+        otherProduct.setId(2L);
+        otherProduct.setName("Other Product");
+        otherProduct.setStockQuantity(1);
+        when(productRepository.findByIdWithLock(1L)).thenReturn(Optional.of(testProduct));
+        when(productRepository.findByIdWithLock(2L)).thenReturn(Optional.of(otherProduct));
+
+        // When
+        BatchReservationResultDTO result = productService.checkAndReserveStockBatch(List.of(
+                new StockReservationDTO(1L, 5),
+                new StockReservationDTO(2L, 2)));
+
+        // Then
+        assertThat(result.isReserved()).isFalse();
+        assertThat(result.getInsufficientProductIds()).containsExactly(2L);
+        assertThat(testProduct.getStockQuantity()).isEqualTo(10); // Stock unchanged
+        assertThat(otherProduct.getStockQuantity()).isEqualTo(1);
+        verify(productRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    void checkAndReserveStockBatch_NonExistingProduct_ShouldThrowException() {
+        // Given
+        when(productRepository.findByIdWithLock(1L)).thenReturn(Optional.empty());
+
+        // When & Then
+        assertThatThrownBy(() -> productService.checkAndReserveStockBatch(List.of(new StockReservationDTO(1L, 1))))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessage("Product not found with id: 1");
+        verify(productRepository, never()).saveAll(anyList());
     }
 }
@@ -0,0 +1,112 @@
+package org.security.productservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReservationCombinerTest {
+
+    @Mock
+    private ProductService productService;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private ReservationCombiner reservationCombiner;
+
+    @AfterEach
+    void tearDown() {
+        if (reservationCombiner != null) {
+            reservationCombiner.shutdown();
+        }
+    }
+
+    @Test
+    void reserve_Disabled_ShouldCallProductServiceDirectly() {
+        // Given
+        reservationCombiner = new ReservationCombiner(productService, meterRegistry, false, 5, 64);
+        when(productService.checkAndReserveStock(1L, 2)).thenReturn(true);
+
+        // When
+        boolean result = reservationCombiner.reserve(1L, 2).join();
+
+        // Then
+        assertThat(result).isTrue();
+        verify(productService, never()).checkAndReserveStockInArrivalOrder(any(), anyList());
+    }
+
+    @Test
+    void reserve_ConcurrentCallsWithinWindow_ShouldBeAppliedInOneBatch() throws Exception {
+        // Given: enough stock for the first seven of ten callers
+        reservationCombiner = new ReservationCombiner(productService, meterRegistry, true, 200, 64);
+        when(productService.checkAndReserveStockInArrivalOrder(eq(1L), anyList())).thenAnswer(invocation -> {
+            List<Integer> quantities = invocation.getArgument(1);
+            List<Boolean> results = new ArrayList<>();
+            for (int i = 0; i < quantities.size(); i++) {
+                results.add(i < 7);
+            }
+            return results;
+        });
+
+        // When
+        List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            futures.add(reservationCombiner.reserve(1L, 1));
+        }
+
+        // Then
+        for (int i = 0; i < futures.size(); i++) {
+            assertThat(futures.get(i).get(5, TimeUnit.SECONDS)).isEqualTo(i < 7);
+        }
+        verify(productService, times(1)).checkAndReserveStockInArrivalOrder(eq(1L), anyList());
+        assertThat(meterRegistry.summary("product.reservation.combiner.batch.size").count()).isEqualTo(1);
+        assertThat(meterRegistry.summary("product.reservation.combiner.batch.size").totalAmount()).isEqualTo(10);
+        assertThat(meterRegistry.timer("product.reservation.combiner.queue.wait").count()).isEqualTo(10);
+    }
+
+    @Test
+    void reserve_BatchSizeCapReached_ShouldFlushBeforeWindowEnds() throws Exception {
+        // Given: a window far longer than the test timeout
+        reservationCombiner = new ReservationCombiner(productService, meterRegistry, true, 60_000, 3);
+        when(productService.checkAndReserveStockInArrivalOrder(1L, List.of(1, 2, 3))).thenReturn(List.of(true, true, false));
+
+        // When
+        CompletableFuture<Boolean> first = reservationCombiner.reserve(1L, 1);
+        CompletableFuture<Boolean> second = reservationCombiner.reserve(1L, 2);
+        CompletableFuture<Boolean> third = reservationCombiner.reserve(1L, 3);
+
+        // Then
+        assertThat(first.get(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(second.get(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(third.get(5, TimeUnit.SECONDS)).isFalse();
+    }
+
+    @Test
+    void reserve_BatchFails_ShouldCompleteEveryCallerExceptionally() {
+        // Given
+        reservationCombiner = new ReservationCombiner(productService, meterRegistry, true, 10, 64);
+        when(productService.checkAndReserveStockInArrivalOrder(eq(1L), anyList()))
+                .thenThrow(new RuntimeException("Product not found with id: 1"));
+
+        // When
+        CompletableFuture<Boolean> first = reservationCombiner.reserve(1L, 1);
+        CompletableFuture<Boolean> second = reservationCombiner.reserve(1L, 1);
+
+        // Then
+        assertThat(first).failsWithin(5, TimeUnit.SECONDS);
+        assertThat(second).failsWithin(5, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,105 @@
+package org.security.productservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReservationIdempotencyStoreTest {
+
+    @Mock
+    private ReservationCombiner reservationCombiner;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private ReservationIdempotencyStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new ReservationIdempotencyStore(reservationCombiner, meterRegistry, 600_000, 1_000);
+    }
+
+    @Test
+    void reserve_RepeatedRequestId_ShouldReplayFirstResultWithoutReservingAgain() {
+        // Given
+        when(reservationCombiner.reserve(1L, 2)).thenReturn(CompletableFuture.completedFuture(true));
+
+        // When
+        boolean first = store.reserve("req-1", 1L, 2).join();
+        boolean replayed = store.reserve("req-1", 1L, 2).join();
+
+        // Then
+        assertThat(first).isTrue();
+        assertThat(replayed).isTrue();
+        verify(reservationCombiner, times(1)).reserve(1L, 2);
+        assertThat(meterRegistry.counter("product.reservation.idempotency.replays").count()).isEqualTo(1);
+    }
+
+    @Test
+    void reserve_RetryWhileFirstCallIsRunning_ShouldShareItsResult() {
+        // Given
+        CompletableFuture<Boolean> running = new CompletableFuture<>();
+        when(reservationCombiner.reserve(1L, 2)).thenReturn(running);
+
+        // When
+        CompletableFuture<Boolean> first = store.reserve("req-1", 1L, 2);
+        CompletableFuture<Boolean> retry = store.reserve("req-1", 1L, 2);
+        running.complete(false);
+
+        // Then
+        assertThat(first.join()).isFalse();
+        assertThat(retry.join()).isFalse();
+        verify(reservationCombiner, times(1)).reserve(1L, 2);
+    }
+
+    @Test
+    void reserve_FailedCall_ShouldBeForgottenSoItCanBeRetried() {
+        // Given
+        when(reservationCombiner.reserve(1L, 2))
+                .thenThrow(new RuntimeException("Product not found with id: 1"))
+                .thenReturn(CompletableFuture.completedFuture(true));
+
+        // When
+        CompletableFuture<Boolean> failed = store.reserve("req-1", 1L, 2);
+        boolean retried = store.reserve("req-1", 1L, 2).join();
+
+        // Then
+        assertThat(failed).isCompletedExceptionally();
+        assertThat(retried).isTrue();
+        verify(reservationCombiner, times(2)).reserve(1L, 2);
+    }
+
+    @Test
+    void reserve_RequestIdReusedForAnotherReservation_ShouldBeRejected() {
+        // Given
+        when(reservationCombiner.reserve(1L, 2)).thenReturn(CompletableFuture.completedFuture(true));
+        store.reserve("req-1", 1L, 2).join();
+
+        // When & Then
+        assertThatThrownBy(() -> store.reserve("req-1", 1L, 3))
+                .isInstanceOf(ReservationIdempotencyStore.RequestIdReusedException.class);
+        verify(reservationCombiner, never()).reserve(1L, 3);
+    }
+
+    @Test
+    void reserve_WithoutRequestId_ShouldReserveEveryTime() {
+        // Given
+        when(reservationCombiner.reserve(1L, 2)).thenReturn(CompletableFuture.completedFuture(true));
+
+        // When
+        store.reserve(null, 1L, 2).join();
+        store.reserve(null, 1L, 2).join();
+
+        // Then
+        verify(reservationCombiner, times(2)).reserve(1L, 2);
+    }
+}
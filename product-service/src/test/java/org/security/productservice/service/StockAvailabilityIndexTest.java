@@ -0,0 +1,97 @@
+package org.security.productservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.security.productservice.dto.ProductAvailabilityDTO;
+import org.security.productservice.dto.ProductDTO;
+import org.security.productservice.dto.StockLevelDTO;
+import org.security.productservice.repository.ProductRepository;
+import org.security.productservice.repository.StockBucketRepository;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+@ExtendWith(MockitoExtension.class)
+class StockAvailabilityIndexTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private StockBucketRepository stockBucketRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private StockAvailabilityIndex stockAvailabilityIndex;
+
+    @BeforeEach
+    void setUp() {
+        stockAvailabilityIndex = new StockAvailabilityIndex(productRepository, stockBucketRepository,
+                transactionManager, new SimpleMeterRegistry(), 0);
+        // Product 3 is bucketed: its column is 0 and its stock is the bucket total
+        stockAvailabilityIndex.rebuild(
+                Stream.of(new StockLevelDTO(1L, 5L), new StockLevelDTO(2L, 0L), new StockLevelDTO(3L, 0L)),
+                List.of(new StockLevelDTO(3L, 12L)));
+    }
+
+    @Test
+    void getAvailability_ShouldAnswerFromMemoryAndLeaveOutUnknownIds() {
+        // When
+        List<ProductAvailabilityDTO> availability = stockAvailabilityIndex.getAvailability(Arrays.asList(3L, 2L, 99L, null, 1L));
+
+        // Then
+        assertThat(stockAvailabilityIndex.isReady()).isTrue();
+        assertThat(availability).containsExactly(
+                new ProductAvailabilityDTO(3L, 12, true),
+                new ProductAvailabilityDTO(2L, 0, false),
+                new ProductAvailabilityDTO(1L, 5, true));
+    }
+
+    @Test
+    void changes_ShouldUpdateTheIndex() {
+        // When: outside a transaction the changes apply immediately
+        stockAvailabilityIndex.adjust(1L, -2);
+        stockAvailabilityIndex.adjust(3L, 4);
+        stockAvailabilityIndex.update(new ProductDTO(4L, "Hub", "USB", BigDecimal.TEN, 7, 0L));
+        stockAvailabilityIndex.remove(2L);
+
+        // Then
+        assertThat(stockAvailabilityIndex.getAvailability(List.of(1L, 2L, 3L, 4L)))
+                .extracting(ProductAvailabilityDTO::getProductId, ProductAvailabilityDTO::getAvailableStock)
+                .containsExactly(
+                        tuple(1L, 3),
+                        tuple(3L, 16),
+                        tuple(4L, 7));
+    }
+
+    @Test
+    void adjust_UnindexedProduct_ShouldWaitForTheNextResync() {
+        // When
+        stockAvailabilityIndex.adjust(5L, 3);
+
+        // Then
+        assertThat(stockAvailabilityIndex.getAvailability(List.of(5L))).isEmpty();
+    }
+
+    @Test
+    void getAvailability_TooManyIds_ShouldThrow() {
+        List<Long> ids = Collections.nCopies(StockAvailabilityIndex.MAX_IDS_PER_REQUEST + 1, 1L);
+
+        assertThatThrownBy(() -> stockAvailabilityIndex.getAvailability(ids))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessage("At most 10000 product ids per request");
+    }
+}
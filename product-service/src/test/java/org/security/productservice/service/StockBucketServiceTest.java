@@ -0,0 +1,165 @@
+package org.security.productservice.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.security.productservice.model.Product;
+import org.security.productservice.model.StockBucket;
+import org.security.productservice.repository.ProductRepository;
+import org.security.productservice.repository.StockBucketRepository;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StockBucketServiceTest {
+
+    @Mock
+    private StockBucketRepository stockBucketRepository;
+
+    @Mock
+    private ProductRepository productRepository;
+
+    private StockBucketService stockBucketService;
+
+    private Product testProduct;
+
+    @BeforeEach
+    void setUp() {
+        stockBucketService = new StockBucketService(stockBucketRepository, productRepository);
+
+        testProduct = new Product();
+        testProduct.setId(1L);
+        testProduct.setName("Test Product");
+        testProduct.setDescription("Test Description");
+        testProduct.setPrice(BigDecimal.valueOf(99.99));
+        testProduct.setStockQuantity(10);
+    }
+
+    @Test
+    void reserve_FirstBucketEmpty_ShouldFallBackToSibling() {
+        // Given: only one of the four buckets can serve the request
+        when(stockBucketRepository.decrementIfAvailable(eq(1L), anyInt(), eq(2)))
+                .thenAnswer(invocation -> ((Integer) invocation.getArgument(1)) == 3 ? 1 : 0);
+
+        // When
+        boolean result = stockBucketService.reserve(1L, 4, 2);
+
+        // Then
+        assertThat(result).isTrue();
+        verify(stockBucketRepository).decrementIfAvailable(1L, 3, 2);
+        verify(stockBucketRepository, never()).findByProductIdWithLock(1L);
+    }
+
+    @Test
+    void reserve_NoSingleBucketLargeEnough_ShouldDrainAcrossBuckets() {
+        // Given
+        List<StockBucket> buckets = buckets(2, 2, 2);
+        when(stockBucketRepository.decrementIfAvailable(eq(1L), anyInt(), eq(5))).thenReturn(0);
+        when(stockBucketRepository.findByProductIdWithLock(1L)).thenReturn(buckets);
+
+        // When
+        boolean result = stockBucketService.reserve(1L, 3, 5);
+
+        // Then
+        assertThat(result).isTrue();
+        assertThat(buckets).extracting(StockBucket::getQuantity).containsExactly(0, 0, 1);
+        verify(stockBucketRepository).saveAll(buckets);
+    }
+
+    @Test
+    void reserve_InsufficientTotal_ShouldReturnFalse() {
+        // Given
+        when(stockBucketRepository.decrementIfAvailable(eq(1L), anyInt(), eq(7))).thenReturn(0);
+        when(stockBucketRepository.findByProductIdWithLock(1L)).thenReturn(buckets(2, 2, 2));
+
+        // When
+        boolean result = stockBucketService.reserve(1L, 3, 7);
+
+        // Then
+        assertThat(result).isFalse();
+        verify(stockBucketRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void configureBuckets_UnbucketedProduct_ShouldSplitStockEvenly() {
+        // Given
+        when(productRepository.findByIdWithLock(1L)).thenReturn(Optional.of(testProduct));
+
+        // When
+        stockBucketService.configureBuckets(1L, 4);
+
+        // Then
+        ArgumentCaptor<List<StockBucket>> captor = ArgumentCaptor.forClass(List.class);
+        verify(stockBucketRepository).saveAll(captor.capture());
+        assertThat(captor.getValue()).extracting(StockBucket::getQuantity).containsExactly(3, 3, 2, 2);
+        assertThat(testProduct.getStockQuantity()).isZero();
+        assertThat(testProduct.getStockBucketCount()).isEqualTo(4);
+        verify(productRepository).save(testProduct);
+    }
+
+    @Test
+    void configureBuckets_ZeroCount_ShouldMergeBucketsBackIntoProduct() {
+        // Given
+        testProduct.setStockQuantity(0);
+        testProduct.setStockBucketCount(3);
+        when(productRepository.findByIdWithLock(1L)).thenReturn(Optional.of(testProduct));
+        when(stockBucketRepository.findByProductIdWithLock(1L)).thenReturn(buckets(1, 4, 2));
+
+        // When
+        stockBucketService.configureBuckets(1L, 0);
+
+        // Then
+        assertThat(testProduct.getStockQuantity()).isEqualTo(7);
+        assertThat(testProduct.getStockBucketCount()).isZero();
+        verify(stockBucketRepository).deleteByProductId(1L);
+        verify(stockBucketRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    void rebalance_ShouldEvenOutBuckets() {
+        // Given
+        testProduct.setStockBucketCount(3);
+        List<StockBucket> buckets = buckets(0, 7, 1);
+        when(productRepository.findByIdWithLock(1L)).thenReturn(Optional.of(testProduct));
+        when(stockBucketRepository.findByProductIdWithLock(1L)).thenReturn(buckets);
+
+        // When
+        stockBucketService.rebalance(1L);
+
+        // Then
+        assertThat(buckets).extracting(StockBucket::getQuantity).containsExactly(3, 3, 2);
+    }
+
+    @Test
+    void rebalance_UnbucketedProduct_ShouldThrowException() {
+        // Given
+        when(productRepository.findByIdWithLock(1L)).thenReturn(Optional.of(testProduct));
+
+        // When & Then
+        assertThatThrownBy(() -> stockBucketService.rebalance(1L))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessage("Stock buckets are not enabled for product: 1");
+    }
+
+    private List<StockBucket> buckets(int... quantities) {
+        List<StockBucket> buckets = new ArrayList<>();
+        for (int i = 0; i < quantities.length; i++) {
+            buckets.add(new StockBucket((long) i + 1, 1L, i, quantities[i]));
+        }
+        return buckets;
+    }
+}
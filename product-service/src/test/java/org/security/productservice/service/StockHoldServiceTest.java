@@ -0,0 +1,161 @@
+package org.security.productservice.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.security.productservice.dto.BatchReservationResultDTO;
+import org.security.productservice.dto.StockReservationDTO;
+import org.security.productservice.model.StockHold;
+import org.security.productservice.repository.StockHoldRepository;
+import org.springframework.data.domain.Pageable;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StockHoldServiceTest {
+
+    private static final String REFERENCE = "order-42";
+
+    @Mock
+    private StockHoldRepository stockHoldRepository;
+
+    @Mock
+    private ProductService productService;
+
+    private StockHoldService stockHoldService;
+
+    @BeforeEach
+    void setUp() {
+        stockHoldService = new StockHoldService(stockHoldRepository, productService, 60_000);
+    }
+
+    @Test
+    void hold_ShouldReserveStockAndRecordOneHoldPerProduct() {
+        // Given
+        when(stockHoldRepository.findByHoldReferenceWithLock(REFERENCE)).thenReturn(List.of());
+        when(productService.checkAndReserveStockBatch(anyList())).thenReturn(new BatchReservationResultDTO(true, List.of()));
+
+        // When
+        BatchReservationResultDTO result = stockHoldService.hold(REFERENCE, List.of(
+                new StockReservationDTO(2L, 1), new StockReservationDTO(1L, 3), new StockReservationDTO(2L, 4)));
+
+        // Then
+        assertThat(result.isReserved()).isTrue();
+        verify(productService).checkAndReserveStockBatch(List.of(new StockReservationDTO(1L, 3), new StockReservationDTO(2L, 5)));
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<StockHold>> holds = ArgumentCaptor.forClass(List.class);
+        verify(stockHoldRepository).saveAll(holds.capture());
+        assertThat(holds.getValue()).extracting(StockHold::getProductId, StockHold::getQuantity, StockHold::getStatus)
+                .containsExactly(
+                        tuple(1L, 3, StockHold.HoldStatus.HELD),
+                        tuple(2L, 5, StockHold.HoldStatus.HELD));
+        assertThat(holds.getValue().get(0).getExpiresAt()).isAfter(LocalDateTime.now());
+    }
+
+    @Test
+    void hold_Retried_ShouldNotReserveStockAgain() {
+        // Given
+        when(stockHoldRepository.findByHoldReferenceWithLock(REFERENCE))
+                .thenReturn(List.of(hold(1L, 3, StockHold.HoldStatus.HELD)));
+
+        // When
+        BatchReservationResultDTO result = stockHoldService.hold(REFERENCE, List.of(new StockReservationDTO(1L, 3)));
+
+        // Then
+        assertThat(result.isReserved()).isTrue();
+        verifyNoInteractions(productService);
+        verify(stockHoldRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    void hold_InsufficientStock_ShouldRecordNothing() {
+        // Given
+        when(stockHoldRepository.findByHoldReferenceWithLock(REFERENCE)).thenReturn(List.of());
+        when(productService.checkAndReserveStockBatch(anyList())).thenReturn(new BatchReservationResultDTO(false, List.of(1L)));
+
+        // When
+        BatchReservationResultDTO result = stockHoldService.hold(REFERENCE, List.of(new StockReservationDTO(1L, 3)));
+
+        // Then
+        assertThat(result.getInsufficientProductIds()).containsExactly(1L);
+        verify(stockHoldRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    void hold_ReleasedReference_ShouldThrow() {
+        // Given
+        when(stockHoldRepository.findByHoldReferenceWithLock(REFERENCE))
+                .thenReturn(List.of(hold(1L, 3, StockHold.HoldStatus.RELEASED)));
+
+        // When & Then
+        assertThatThrownBy(() -> stockHoldService.hold(REFERENCE, List.of(new StockReservationDTO(1L, 3))))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessage("Stock holds for reference order-42 have been released");
+        verifyNoInteractions(productService);
+    }
+
+    @Test
+    void confirm_ShouldConfirmHeldHolds_andRejectExpiredOnes() {
+        // Given
+        StockHold held = hold(1L, 3, StockHold.HoldStatus.HELD);
+        when(stockHoldRepository.findByHoldReferenceWithLock(REFERENCE)).thenReturn(List.of(held));
+        when(stockHoldRepository.findByHoldReferenceWithLock("order-43"))
+                .thenReturn(List.of(hold(1L, 3, StockHold.HoldStatus.EXPIRED)));
+
+        // When
+        stockHoldService.confirm(REFERENCE);
+
+        // Then
+        assertThat(held.getStatus()).isEqualTo(StockHold.HoldStatus.CONFIRMED);
+        assertThatThrownBy(() -> stockHoldService.confirm("order-43"))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessage("Stock holds for reference order-43 have already expired");
+        verifyNoInteractions(productService);
+    }
+
+    @Test
+    void release_ShouldReturnStockOfActiveHoldsOnly() {
+        // Given
+        StockHold confirmed = hold(1L, 3, StockHold.HoldStatus.CONFIRMED);
+        StockHold released = hold(2L, 1, StockHold.HoldStatus.RELEASED);
+        when(stockHoldRepository.findByHoldReferenceWithLock(REFERENCE)).thenReturn(List.of(confirmed, released));
+
+        // When
+        stockHoldService.release(REFERENCE);
+
+        // Then
+        verify(productService).releaseStockBatch(List.of(new StockReservationDTO(1L, 3)));
+        assertThat(confirmed.getStatus()).isEqualTo(StockHold.HoldStatus.RELEASED);
+    }
+
+    @Test
+    void expireStaleHolds_ShouldReturnStockAndMarkHoldsExpired() {
+        // Given
+        StockHold stale = hold(1L, 3, StockHold.HoldStatus.HELD);
+        LocalDateTime now = LocalDateTime.now();
+        when(stockHoldRepository.findExpiredWithLock(eq(now), any(Pageable.class))).thenReturn(List.of(stale));
+
+        // When
+        int expired = stockHoldService.expireStaleHolds(now, 100);
+
+        // Then
+        assertThat(expired).isEqualTo(1);
+        verify(productService).releaseStockBatch(List.of(new StockReservationDTO(1L, 3)));
+        assertThat(stale.getStatus()).isEqualTo(StockHold.HoldStatus.EXPIRED);
+    }
+
+    private static StockHold hold(Long productId, int quantity, StockHold.HoldStatus status) {
+        return new StockHold(null, REFERENCE, productId, quantity, status, LocalDateTime.now().plusMinutes(1));
+    }
+}
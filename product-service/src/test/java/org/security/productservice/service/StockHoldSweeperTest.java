@@ -0,0 +1,37 @@
+package org.security.productservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StockHoldSweeperTest {
+
+    @Mock
+    private StockHoldService stockHoldService;
+
+    @Test
+    void sweep_ShouldExpireBatchesUntilOneIsShort_thenPurgeFinishedHolds() {
+        // Given
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        StockHoldSweeper sweeper = new StockHoldSweeper(stockHoldService, meterRegistry, 0, 100, 60_000);
+        when(stockHoldService.expireStaleHolds(any(LocalDateTime.class), eq(100))).thenReturn(100, 100, 7);
+
+        // When
+        sweeper.sweep();
+
+        // Then
+        verify(stockHoldService, times(3)).expireStaleHolds(any(LocalDateTime.class), eq(100));
+        verify(stockHoldService).purgeFinishedHolds(any(LocalDateTime.class));
+        assertThat(meterRegistry.get("product.stock.holds.expired").counter().count()).isEqualTo(207.0);
+    }
+}
@@ -0,0 +1,75 @@
+package org.security.productservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.security.productservice.model.Product;
+import org.security.productservice.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = {
+        "spring.sql.init.mode=never",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "product.stock.reservation-strategy=CONDITIONAL_UPDATE"
+})
+@Import({ProductService.class, StockBucketService.class, ProductCache.class, ProductChangeFeed.class, ProductSearchIndex.class, StockAvailabilityIndex.class, SimpleMeterRegistry.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class StockReservationConcurrencyTest {
+
+    private static final int THREADS = 200;
+    private static final int INITIAL_STOCK = 50;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Test
+    void checkAndReserveStock_ConcurrentCallsOnOneProduct_ShouldNeverOversell() throws Exception {
+        // Given
+        Product product = new Product();
+        product.setName("Flash Sale Product");
+        product.setDescription("Flash Sale Description");
+        product.setPrice(BigDecimal.valueOf(9.99));
+        product.setStockQuantity(INITIAL_STOCK);
+        Long productId = productRepository.save(product).getId();
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                return productService.checkAndReserveStock(productId, 1);
+            }));
+        }
+
+        // When
+        start.countDown();
+        int reserved = 0;
+        for (Future<Boolean> result : results) {
+            if (result.get()) {
+                reserved++;
+            }
+        }
+        executor.shutdown();
+
+        // Then
+        assertThat(reserved).isEqualTo(INITIAL_STOCK);
+        assertThat(productRepository.findById(productId).orElseThrow().getStockQuantity()).isZero();
+    }
+}